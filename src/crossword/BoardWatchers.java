@@ -0,0 +1,197 @@
+package crossword;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of the clients waiting for the boards of matches to change. Instead of parking a thread per waiting client,
+ * every pending watcher is kept in the registry of its match, and is completed by a small pool of dispatcher threads
+ * when the match changes.
+ * Threadsafe.
+ */
+public class BoardWatchers {
+
+    // Abstraction function:
+    //    AF(pending, dispatcher, wakeups) = the clients waiting for a match to change, where pending.get(match) holds the
+    //      watchers of match that haven't been completed yet, and dispatcher runs the checks and deliveries for those
+    //      watchers. wakeups is the number of times a waiting watcher has been checked again after a change signal.
+    //
+    // Rep invariant:
+    //    no list in pending is empty, and no watcher appears in more than one list or twice in one list
+    //
+    // Safety from rep exposure:
+    //    all fields are private and final
+    //    pending and the lists in it are never returned or taken in as parameters
+    //    matches and watchers are taken in as parameters and kept, but they are shared with the client on purpose:
+    //      the registry only calls their public methods
+    //
+    // Thread safety argument:
+    //    pending is a concurrent map, and each list in it is only read or mutated while holding the lock of the match
+    //      it belongs to, so registering a watcher and checking it against a change of the same match never interleave.
+    //      A list is removed from pending under the same lock as soon as it becomes empty, and watch() only adds to the
+    //      list that is currently in pending, so a watcher can never be added to a list that was already dropped.
+    //    A watcher is removed from its list (under the match lock) before it is delivered, so every watcher is delivered
+    //      exactly once. Only the version check is made under the match lock; deliveries, which build the response from
+    //      the immutable MatchSnapshot read under that lock, are made on the dispatcher without holding any lock, so
+    //      rendering the board never holds up moves in its match. Deliveries never block either: they hand the writes
+    //      to their clients to other threads, so a client that stops reading never holds a dispatcher thread, which
+    //      every match shares.
+    //    dispatcher is a threadsafe executor, and wakeups is an atomic counter.
+
+    /**
+     * A client waiting for a match to change.
+     */
+    public interface Watcher {
+
+        /**
+         * Check whether the change this watcher is waiting for has happened. Called while holding the lock of the
+         * watched match, so it must be quick and must not block.
+         * @param version the current version of the board of the watched match, as given by Match.getVersion()
+         * @return true if the change has happened and the watcher should be delivered, otherwise false to keep waiting
+         */
+        boolean check(long version);
+
+        /**
+         * Deliver the change to the client. Called on a dispatcher thread, without holding any lock. The dispatcher
+         * threads are shared by every match, so it must not block: it may build the response, but must hand the write
+         * to the client to another thread.
+         * @param snapshot the watched match as it was when check() returned true; its version is the one given to check()
+         */
+        void deliver(MatchSnapshot snapshot);
+    }
+
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+    private final Map<Match, List<Watcher>> pending;
+    private final ExecutorService dispatcher;
+    private final AtomicLong wakeups = new AtomicLong();
+
+    /**
+     * Create an empty registry of watchers
+     * @param dispatcherThreads the number of threads that complete watchers, > 0
+     */
+    public BoardWatchers(int dispatcherThreads) {
+        final int poolNumber = POOL_NUMBER.incrementAndGet();
+        final AtomicInteger threadNumber = new AtomicInteger();
+
+        this.pending = new ConcurrentHashMap<>();
+        this.dispatcher = Executors.newFixedThreadPool(dispatcherThreads, runnable -> {
+            final Thread thread = new Thread(runnable, "board-watchers-" + poolNumber + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Check the rep invariant of the watchers of one match
+     * @param match the match whose watchers to check, whose lock is held by the caller
+     */
+    private void checkRep(Match match) {
+        assert Thread.holdsLock(match);
+
+        final List<Watcher> watchers = pending.get(match);
+        assert watchers == null || !watchers.isEmpty();
+    }
+
+    /**
+     * Start watching a match. If the change the watcher is waiting for already happened, it is delivered right away
+     * (on a dispatcher thread); otherwise it is delivered after the first call to matchChanged(match) that finds it.
+     * @param match the match to watch
+     * @param watcher the client waiting for the match to change
+     */
+    public void watch(Match match, Watcher watcher) {
+        synchronized (match) {
+            final MatchSnapshot snapshot = match.getSnapshot();
+
+            if (watcher.check(snapshot.getVersion())) {
+                dispatcher.execute(() -> watcher.deliver(snapshot));
+            } else {
+                pending.computeIfAbsent(match, m -> new ArrayList<>()).add(watcher);
+            }
+            checkRep(match);
+        }
+    }
+
+    /**
+     * Signal that a match may have changed. Every watcher of the match is checked again on a dispatcher thread, and the
+     * ones whose change happened are delivered and stop watching. Returns without waiting for the checks, so it is safe
+     * to call while holding the lock of the match.
+     * @param match the match that may have changed
+     */
+    public void matchChanged(Match match) {
+        if (pending.containsKey(match)) {
+            dispatcher.execute(() -> dispatch(match));
+        }
+    }
+
+    /**
+     * @param match a match
+     * @return the number of watchers of match that are still waiting
+     */
+    public int getNumberWatchers(Match match) {
+        synchronized (match) {
+            final List<Watcher> watchers = pending.get(match);
+            return watchers == null ? 0 : watchers.size();
+        }
+    }
+
+    /**
+     * Get the number of wakeups so far: the number of times a waiting watcher was checked again because its match may
+     * have changed. A wakeup that doesn't deliver its watcher was wasted, so this measures how precise the change
+     * signals are.
+     * @return the number of wakeups since this registry was created
+     */
+    public long getWakeups() {
+        return wakeups.get();
+    }
+
+    /**
+     * Stop the dispatcher threads. Watchers that are still waiting are never delivered.
+     */
+    public void shutdown() {
+        dispatcher.shutdownNow();
+    }
+
+    /**
+     * Check every watcher of a match, and deliver the ones whose change happened
+     * @param match the match that may have changed
+     */
+    private void dispatch(Match match) {
+        final List<Watcher> ready = new ArrayList<>();
+        final MatchSnapshot snapshot;
+
+        synchronized (match) {
+            final List<Watcher> watchers = pending.get(match);
+            if (watchers == null) {
+                return; // an earlier dispatch already delivered every watcher
+            }
+
+            snapshot = match.getSnapshot();
+            wakeups.addAndGet(watchers.size());
+            final Iterator<Watcher> iterator = watchers.iterator();
+            while (iterator.hasNext()) {
+                final Watcher watcher = iterator.next();
+                if (watcher.check(snapshot.getVersion())) {
+                    iterator.remove();
+                    ready.add(watcher);
+                }
+            }
+
+            if (watchers.isEmpty()) {
+                pending.remove(match);
+            }
+            checkRep(match);
+        }
+
+        for (Watcher watcher : ready) {
+            watcher.deliver(snapshot);
+        }
+    }
+}
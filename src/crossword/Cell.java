@@ -1,7 +1,8 @@
 package crossword;
 
-import java.util.ArrayList;
-import java.util.List;
+import static crossword.Verification.check;
+
+import java.util.Arrays;
 
 /**
  * Cell, or space of a board to represent a letter of a word.
@@ -10,36 +11,74 @@ import java.util.List;
 public class Cell {
     
     // Abstraction function:
-    //    AF(row, col, value, correspondingWords, existState) =
-    //      A cell on the crossword puzzle at the location [row x col] with the value given by value which corresponds
-    //      to one or two words contained in correspondingWords (meaning that this cell 
-    //      is part of all words in correspondingWords). ExistState defines whether or not this cell is part of
-    //      the crossword puzzle. (PRESENT = part of the puzzle, ABSENT = not part of the puzzle)
+    //    AF(row, col, value, flags, numberWords, word0, word1, owner0, owner1, extraWords) =
+    //      A cell on the crossword puzzle at the location [row x col] with the value given by value, which is part of
+    //      the crossword puzzle unless the ABSENT bit of flags is set. The cell corresponds to numberWords words
+    //      (meaning that it is part of all those words; more than two only in an inconsistent puzzle): word0, word1,
+    //      and then the words of extraWords. owner0 and owner1 are the owners of word0 and word1, and the CONFIRMED0
+    //      and CONFIRMED1 bits of flags say whether they are confirmed; extraWords keeps the same for the other words.
+    //      This lets the cell tell whether it is owned or can be changed without asking its words. The words tell
+    //      the cell whenever that changes.
     //      
     // Representation invariant:
     //    row >= 0 && col >= 0
-    //    len(value) <= 1
-    //    correspondingWords is at most size 2
+    //    numberWords >= 0
+    //    word0 is null iff numberWords < 1, and word1 is null iff numberWords < 2
+    //    extraWords is null iff numberWords <= MAX_WORDS, and otherwise holds numberWords - MAX_WORDS slots
+    //    for every word of the cell: its owner slot is the owner of the word (null if it has none), and its confirmed
+    //      bit is whether the word is confirmed; the owner slots and confirmed bits of missing words are null and unset
+    //    flags has no bits set other than ABSENT, CONFIRMED0 and CONFIRMED1
     //
     // Safety from rep exposure:
     //    Constructor takes in immutable types
     //    All methods take in and return immutable types except for addWord
     //    addWord takes in a mutable type but this is intended rep exposure because words need to be shared between cells
     //        and the cells need direct aliases to the words that they are part of
+    //    word0, word1 and extraWords are never returned
     //   
     // Thread safety argument:
-    //   This class is not threadsafe, but it's OK because only Match accesses Cell methods, and Match is threadsafe. This ensures that at most 
-    //   one thread is looking at a Cell at a time.
+    //   This class is not threadsafe, but it's OK because only Match accesses Cell methods, and Match is threadsafe. Match
+    //   only touches a cell while holding the locks of all of the words of the cell (or the lock of the whole board),
+    //   which ensures that at most one thread is looking at a Cell at a time. addWord, the only method that adds words,
+    //   is only called by the constructor of Match, before the cell is shared with other threads.
+    //
+    // Space:
+    //   A Match allocates one Cell for every cell of its puzzle, so the state of the cell for its (at most two) words
+    //   is kept in fields of the Cell itself, rather than in arrays of its own. Only an overfull cell, which is part of
+    //   more than two words, allocates extraWords.
     
     public enum Exist {PRESENT, ABSENT}
 
     private final int row; // (0-indexed)
     private final int col; 
     private char value;
-    private final List<Word> correspondingWords;
-    private final Exist existState;
+    private byte flags;
+    private int numberWords;
+    private Word word0;
+    private Word word1;
+    private Player owner0;
+    private Player owner1;
+    private ExtraWord[] extraWords; // null unless this cell is overfull
     
     private static final char EMPTY_CELL = '?';
+    private static final int MAX_WORDS = 2;
+    
+    private static final byte ABSENT = 1;
+    private static final byte CONFIRMED0 = 1 << 1;
+    private static final byte CONFIRMED1 = 1 << 2;
+    
+    /**
+     * A word of an overfull cell past its first two, with the owner and confirmed flag that the cell keeps for it.
+     */
+    private static final class ExtraWord {
+        private final Word word;
+        private Player owner;
+        private boolean confirmed;
+        
+        private ExtraWord(Word word) {
+            this.word = word;
+        }
+    }
     
     /**
      * Constructor for a cell 
@@ -51,28 +90,76 @@ public class Cell {
         this.row = pRow;
         this.col = pCol;
         this.value = EMPTY_CELL; // empty cell represents no character there
-        this.correspondingWords = new ArrayList<Word>();
-        this.existState = state;
+        this.flags = state == Exist.ABSENT ? ABSENT : 0;
+    }
+    
+    /**
+     * Check cell's rep invariant. Only called by the Match this cell belongs to, at the end of a command; runs whether
+     * or not Java assertions are enabled.
+     * @throws AssertionError if the rep invariant is violated
+     */
+    void checkRep() {
+        check(row >= 0, "row >= 0");
+        check(col >= 0, "col >= 0");
+        check(numberWords >= 0, "numberWords >= 0");
+        check((word0 == null) == (numberWords < 1) && (word1 == null) == (numberWords < 2),
+                "the words of the cell fill the first slots");
+        check(extraWords == null ? numberWords <= MAX_WORDS : extraWords.length == numberWords - MAX_WORDS,
+                "extra slots only for extra words");
+        check((flags & ~(ABSENT | CONFIRMED0 | CONFIRMED1)) == 0, "only known flags are set");
         
-        checkRep();
+        for(int i = 0; i < Math.max(numberWords, MAX_WORDS); i++) {
+            final Word word = getWord(i);
+            if(word == null) {
+                check(getOwner(i) == null && !isConfirmed(i), "missing words have no owner and are not confirmed");
+            } else {
+                check(word.hasOwner() ? word.getOwner().equals(getOwner(i)) : getOwner(i) == null,
+                        "owners match the words");
+                check(word.isConfirmed() == isConfirmed(i), "confirmed flags match the words");
+            }
+        }
+    }
+    
+    /**
+     * @param slot index of one of the words of this cell, or of one of its first two slots
+     * @return the word in that slot, or null if there is none
+     */
+    private Word getWord(int slot) {
+        switch(slot) {
+        case 0: return word0;
+        case 1: return word1;
+        default: return extraWords[slot - MAX_WORDS].word;
+        }
     }
     
     /**
-     * Check cell's rep invariant
+     * @param slot index of one of the words of this cell, or of one of its first two slots
+     * @return the owner this cell keeps for the word in that slot, or null if it has none
      */
-    private void checkRep() {
-        assert row >= 0;
-        assert col >= 0;
-        assert correspondingWords.size() <= 2;
-        assert existState != null;
+    private Player getOwner(int slot) {
+        switch(slot) {
+        case 0: return owner0;
+        case 1: return owner1;
+        default: return extraWords[slot - MAX_WORDS].owner;
+        }
+    }
+    
+    /**
+     * @param slot index of one of the words of this cell, or of one of its first two slots
+     * @return whether this cell keeps the word in that slot as confirmed
+     */
+    private boolean isConfirmed(int slot) {
+        switch(slot) {
+        case 0: return (flags & CONFIRMED0) != 0;
+        case 1: return (flags & CONFIRMED1) != 0;
+        default: return extraWords[slot - MAX_WORDS].confirmed;
+        }
     }
     
     /**
      * @return the row that this cell is located at on the gameboard
      */
     public int getRow() {
-        checkRep();
-        
         return row;
     }
     
@@ -80,8 +167,6 @@ public class Cell {
      * @return the column that this cell is located at on the gameboard
      */
     public int getCol() {
-        checkRep();
-        
         return col;
     }
     
@@ -89,18 +174,14 @@ public class Cell {
      * @return true if this cell is part of the gameboard, false otherwise
      */
     public boolean isPresent() {
-        checkRep();
-        
-        return existState == Exist.PRESENT;
+        return (flags & ABSENT) == 0;
     }
     
     /**
      * @return true if this cell is part of the gameboard, false otherwise
      */
     public boolean isAbsent() {
-        checkRep();
-        
-        return existState == Exist.ABSENT;
+        return (flags & ABSENT) != 0;
     }
     
     /**
@@ -112,13 +193,11 @@ public class Cell {
     public boolean changeValue(char pValue, Player player) {
         if(pValue == getCurrentValue() || canChangeValue(player))
         {
-            value = pValue;
+            setValue(pValue);
             
-            checkRep();
             return true;
         }
         
-        checkRep();
         return false;
     }
     
@@ -131,24 +210,35 @@ public class Cell {
             return false;
         }
         
-        value = EMPTY_CELL;
-        checkRep();
+        setValue(EMPTY_CELL);
         return true;
     }
     
+    /**
+     * Change the value of this cell, and tell its words, which keep count of their correct letters
+     * @param newValue the new value of this cell
+     */
+    private void setValue(char newValue) {
+        final char oldValue = value;
+        value = newValue;
+        
+        if(oldValue != newValue) {
+            for(int i = 0; i < numberWords; i++) {
+                getWord(i).letterChanged(this, oldValue, newValue);
+            }
+        }
+    }
+    
     /**
      * Checks if the cell is owned (so that one of the corresponding words that hosts this cell is controlled by someone)
      * @return true iff one of the words corresponding to this cell has an owner
      */
     public boolean isOwned() {
-        for(Word word : correspondingWords) {
-            if(word.hasOwner()) {
-                checkRep();
+        for(int i = 0; i < numberWords; i++) {
+            if(getOwner(i) != null) {
                 return true;
             }
         }
-        
-        checkRep();
         return false;
     }
     
@@ -156,18 +246,16 @@ public class Cell {
      * Clear all of the words that this cell maps to
      */
     public void clearCorrespondingWords() {
-        for(Word word : correspondingWords) {
-            word.clearThisInsertedWord();
+        for(int i = 0; i < numberWords; i++) {
+            getWord(i).clearThisInsertedWord();
         }
         
-        checkRep();
     }
     
     /**
      * @return the value hosted in this cell
      */
     public char getCurrentValue() {
-        checkRep();
         return value;
     }
     
@@ -175,17 +263,61 @@ public class Cell {
      * @return true if the cell doesn't contain value and is part of the gameboard, false otherwise
      */
     public boolean isBlank() {
-        checkRep();
         return isPresent() && getCurrentValue() == EMPTY_CELL;
     }
     
     /**
-     * Adds a word to the guesses associated with the value of the cell
+     * Adds a word to the guesses associated with the value of the cell. A cell of a consistent puzzle is part of at
+     * most two words; a cell of an inconsistent puzzle may be part of more, which isOverfull() reports.
      * @param word the word being guessed
      */ 
     public void addWord(Word word) {
-        correspondingWords.add(word);
-        checkRep();
+        switch(numberWords) {
+        case 0:
+            word0 = word;
+            break;
+        case 1:
+            word1 = word;
+            break;
+        default:
+            extraWords = extraWords == null ? new ExtraWord[1] : Arrays.copyOf(extraWords, extraWords.length + 1);
+            extraWords[extraWords.length - 1] = new ExtraWord(word);
+        }
+        numberWords++;
+        wordChanged(word);
+        word.addSharingCell(this);
+    }
+    
+    /**
+     * @return true iff this cell is part of more than two words, which means its puzzle is inconsistent
+     */
+    public boolean isOverfull() {
+        return numberWords > MAX_WORDS;
+    }
+    
+    /**
+     * Update the owner and confirmed flag this cell keeps for one of its words. Called by the word whenever its owner
+     * changes or it is confirmed.
+     * @param word one of the words that this cell is part of
+     */
+    void wordChanged(Word word) {
+        final Player owner = word.hasOwner() ? word.getOwner() : null;
+        final boolean wordConfirmed = word.isConfirmed();
+        
+        if(word == word0) {
+            owner0 = owner;
+            flags = (byte) (wordConfirmed ? flags | CONFIRMED0 : flags & ~CONFIRMED0);
+        } else if(word == word1) {
+            owner1 = owner;
+            flags = (byte) (wordConfirmed ? flags | CONFIRMED1 : flags & ~CONFIRMED1);
+        } else {
+            int slot = 0;
+            while(extraWords[slot].word != word) {
+                slot++;
+            }
+            extraWords[slot].owner = owner;
+            extraWords[slot].confirmed = wordConfirmed;
+        }
     }
     
     /**
@@ -195,21 +327,17 @@ public class Cell {
      * @return true if the cell's value is changeable in accordance with the final project handout
      */
     public boolean canChangeValue(Player player) {
-        for(Word word : correspondingWords) {
-            if(word.isConfirmed() || (word.hasOwner() && !player.equals(word.getOwner()))) {
-                checkRep();
+        for(int i = 0; i < numberWords; i++) {
+            if(isConfirmed(i) || (getOwner(i) != null && !player.equals(getOwner(i)))) {
                 return false;
             }
         }
         
-        checkRep();
         return true;
     }
     
     @Override
     public String toString() {
-        checkRep();
-        
         if(isAbsent()) {
             return "#";
         }
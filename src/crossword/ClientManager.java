@@ -12,6 +12,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Queue;
+import java.util.function.Predicate;
 
 import crossword.Client.ClientState;
 
@@ -19,6 +20,8 @@ import crossword.Client.ClientState;
  * Client manager to receive responses and communicate with server
  */
 public class ClientManager {
+    
+    private static final int PLAY_HEADER_LINES = 8;
 
     /*
      * Abstraction Function
@@ -43,7 +46,9 @@ public class ClientManager {
      *          2. The part that is synchronized checks for the initial condition again before running the rest of the 
      *             code to make sure that the condition holds true while running the rest of the code.
      *             
-     *  receiveResponse() is not synchronized but all referenced variables are confined to the method call. 
+     *  receiveResponse() and receiveEvents() are not synchronized but all referenced variables are confined to the method call. 
+     *  The consumers of the event streams check the state of the client again while holding its lock before every event,
+     *      and stop reading the stream as soon as the client has left the state the stream was opened for.
      *  Only public method is the main() method which is only ever run once per lifecycle. 
      * 
      */
@@ -109,32 +114,28 @@ public class ClientManager {
         
         socketIn.close();
 
-        // watch match list
+        // watch match list, as a stream of events that stays open while the client is choosing a match
         new Thread(() -> {
             while (true) {
                     try {
                         if (client.getState() == ClientState.CHOOSE) {
-                            final URL sendURL = new URL("http://" + host + ":" + port + "/watchmatches/");
-                            final BufferedReader responseBuffer = new BufferedReader(new InputStreamReader(sendURL.openStream(), UTF_8));
-                            // Get the response into one big line then parse it
-                            final String response = receiveResponse(responseBuffer);
-//                            SwingUtilities.invokeLater( () -> {
-                            synchronized(client) {
-                                if (client.getState() == ClientState.CHOOSE) {
-                                    try {
-                                        client.parseResponse(response, "");
-                                    } catch (IOException e) {
-                                        e.printStackTrace();
+                            final URL sendURL = new URL("http://" + host + ":" + port + "/streammatches/");
+                            try (BufferedReader events = new BufferedReader(new InputStreamReader(sendURL.openStream(), UTF_8))) {
+                                receiveEvents(events, response -> {
+                                    synchronized(client) {
+                                        if (client.getState() != ClientState.CHOOSE) {
+                                            return false;
+                                        }
+                                        try {
+                                            client.parseResponse(response, "");
+                                        } catch (IOException e) {
+                                            e.printStackTrace();
+                                        }
+                                        client.repaint();
+                                        return true;
                                     }
-                                    try {
-                                        responseBuffer.close();
-                                    } catch (IOException e) {
-                                        e.printStackTrace();
-                                    }
-                                    client.repaint();
-                                }
+                                });
                             }
-//                            });
                         }
                     } catch (IOException e) {
                         e.printStackTrace();
@@ -142,32 +143,34 @@ public class ClientManager {
             }
         }).start();
 
-        // watch board
+        // watch board, as a stream of events that stays open until the match finishes
         new Thread(() -> {
             while (true) {
                     try {
                         if (client.getState() == ClientState.PLAY) {
-                            final URL sendURL = new URL("http://" + host + ":" + port + "/watchboard/" + client.getUserID() + "/" + client.getMatchID());
-                            final BufferedReader responseBuffer = new BufferedReader(new InputStreamReader(sendURL.openStream(), UTF_8));
-                            // Get the response into one big line then parse it
-                            final String response = receiveResponse(responseBuffer);
-//                            SwingUtilities.invokeLater( () -> {
-                            synchronized(client) {
-                                if (client.getState() == ClientState.PLAY) {
-                                    try {
-                                        client.parseResponse(response, "");
-                                    } catch (IOException e) {
-                                        e.printStackTrace();
-                                    }
-                                    try {
-                                        responseBuffer.close();
-                                    } catch (IOException e) {
-                                        e.printStackTrace();
+                            final String matchID = client.getMatchID();
+                            // ask for versioned boards, so every event after the first only carries what changed
+                            final VersionedBoard board = new VersionedBoard();
+                            final URL sendURL = new URL("http://" + host + ":" + port + "/streamboard/" + client.getUserID() + "/" + matchID
+                                    + "?since=" + board.getVersion());
+                            try (BufferedReader events = new BufferedReader(new InputStreamReader(sendURL.openStream(), UTF_8))) {
+                                receiveEvents(events, response -> {
+                                    synchronized(client) {
+                                        if (client.getState() != ClientState.PLAY || !matchID.equals(client.getMatchID())) {
+                                            return false;
+                                        }
+                                        try {
+                                            client.parseResponse(withWholeBoard(board, response), "");
+                                        } catch (IOException e) {
+                                            e.printStackTrace();
+                                        } catch (IllegalArgumentException e) {
+                                            return false; // out of step with the server, so reconnect for a snapshot
+                                        }
+                                        client.repaint();
+                                        return true;
                                     }
-                                    client.repaint();
-                                }
+                                });
                             }
-//                            });
                         }
                     } catch (IOException e) {
                         e.printStackTrace();
@@ -177,6 +180,53 @@ public class ClientManager {
 
     }
 
+    /**
+     * Reads server-sent events from a text/event-stream response, and passes the data of every event to a consumer, until
+     * the stream ends or the consumer stops it.
+     * @param events the bufferedReader of the stream of events
+     * @param consumer called with the data of each event, exactly as the server sent it (the data lines of the event,
+     *                 joined with newlines); returns true to keep reading, or false to stop
+     * @throws IOException if the stream cannot be read
+     */
+    public static void receiveEvents(final BufferedReader events, final Predicate<String> consumer) throws IOException {
+        String data = null;
+        String line;
+        while ((line = events.readLine()) != null) {
+            if (line.isEmpty()) { // a blank line ends an event
+                if (data != null && !consumer.test(data)) {
+                    return;
+                }
+                data = null;
+            } else if (line.startsWith("data:")) {
+                final String value = line.substring("data:".length());
+                final String content = value.startsWith(" ") ? value.substring(1) : value;
+                data = data == null ? content : data + "\n" + content;
+            }
+            // other fields (event, id, retry) and comments don't change the data
+        }
+    }
+
+    /**
+     * Turn a play response whose board is a versioned update into the same response with the whole board, by applying
+     * the update to a copy of the board
+     * @param board the copy of the board the update applies to; it is updated to the new version
+     * @param response a response from the server with a versioned board, as sent to a request with the query since=VERSION
+     * @return the response with the whole board in place of the update if it is a play response, otherwise response itself
+     * @throws IllegalArgumentException if the update does not apply to board
+     */
+    public static String withWholeBoard(final VersionedBoard board, final String response) {
+        if (!response.startsWith("play\n")) {
+            return response;
+        }
+        
+        // play, update type, playerID, playerPoints, playerChallengePts, otherPlayerID, otherPlayerPts, otherPlayerChallengePts
+        int headerEnd = 0;
+        for (int i = 0; i < PLAY_HEADER_LINES; i++) {
+            headerEnd = response.indexOf('\n', headerEnd) + 1;
+        }
+        return response.substring(0, headerEnd) + board.apply(response.substring(headerEnd));
+    }
+
     /**
      * Constructs the response into one big string, properly formatted with newlines kept, as read through response
      * @param response the bufferedReader that needs to be read from
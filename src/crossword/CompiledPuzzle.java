@@ -0,0 +1,241 @@
+package crossword;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import crossword.Word.Direction;
+import edu.mit.eecs.parserlib.UnableToParseException;
+
+/**
+ * Compiled binary form of a valid puzzle, stored next to its puzzle file with the extension ".puzzlec", so a server can
+ * load the puzzle by mapping the file into memory, without parsing or checking it again.
+ *
+ * A compiled puzzle is, in big-endian order:
+ *
+ *      header: MAGIC, FORMAT_VERSION, number of words n, number of strings m (4 ints)
+ *      n word records of 5 ints: start row, start column, direction (0 ACROSS, 1 DOWN), string index of the hint,
+ *          string index of the answer
+ *      string table: m pairs of ints (offset of the string in the string data, length in bytes), then the string data,
+ *          every string in UTF-8; string 0 is the name of the puzzle, string 1 its description
+ *
+ * Equal strings are stored once. Only consistent puzzles are compiled, so a compiled puzzle is never checked again.
+ */
+public class CompiledPuzzle {
+
+    /** extension of compiled puzzle files, added to the name of the puzzle file */
+    public static final String EXTENSION = ".puzzlec";
+
+    private static final int MAGIC = 0x50555A43; // "PUZC"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_INTS = 4;
+    private static final int WORD_RECORD_INTS = 5;
+    private static final int STRING_INDEX_INTS = 2;
+    private static final int NAME_STRING = 0;
+    private static final int DESCRIPTION_STRING = 1;
+
+    private CompiledPuzzle() {
+        throw new AssertionError("not instantiable");
+    }
+
+    /**
+     * Compile every valid puzzle in a folder, writing each compiled puzzle next to its puzzle file
+     * @param args the folder to compile
+     * @throws IOException if a compiled puzzle cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("usage: CompiledPuzzle FOLDER");
+        }
+
+        final File[] files = new File(args[0]).listFiles();
+        for (File puzzle : files == null ? new File[0] : files) {
+            // hidden files, such as the manifest of a server, are not puzzles
+            if (!puzzle.isFile() || puzzle.getName().startsWith(".") || isCompiledFile(puzzle)) {
+                continue;
+            }
+            try {
+                final PuzzleTemplate template = PuzzleParser.parse(puzzle);
+                final List<String> conflicts = PuzzleValidator.findConflicts(template);
+                if (conflicts.isEmpty()) {
+                    write(template, compiledFileOf(puzzle));
+                    System.out.println("compiled " + puzzle.getName());
+                } else {
+                    System.err.println(puzzle.getName() + ": " + conflicts);
+                }
+            } catch (UnableToParseException e) {
+                System.err.println(puzzle.getName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @param file any file
+     * @return true iff file is named like a compiled puzzle
+     */
+    public static boolean isCompiledFile(File file) {
+        return file.getName().endsWith(EXTENSION);
+    }
+
+    /**
+     * @param puzzle a puzzle file
+     * @return the file that holds the compiled form of puzzle, which may not exist
+     */
+    public static File compiledFileOf(File puzzle) {
+        return new File(puzzle.getParentFile(), puzzle.getName() + EXTENSION);
+    }
+
+    /**
+     * Write the compiled form of a puzzle. The file is replaced as a whole, so a reader never sees it half written.
+     * @param template a consistent puzzle
+     * @param compiled file to write the compiled puzzle to
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(PuzzleTemplate template, File compiled) throws IOException {
+        final int numberWords = template.getNumberWords();
+        final List<byte[]> strings = new ArrayList<>();
+        final Map<String, Integer> stringIndex = new HashMap<>();
+        addString(template.getName(), strings, stringIndex);
+        addString(template.getDescription(), strings, stringIndex);
+
+        final int[] words = new int[numberWords * WORD_RECORD_INTS];
+        for (int i = 0; i < numberWords; i++) {
+            final int record = i * WORD_RECORD_INTS;
+            words[record] = template.getStartRow(i);
+            words[record + 1] = template.getStartCol(i);
+            words[record + 2] = template.getDirection(i) == Direction.ACROSS ? 0 : 1;
+            words[record + 3] = addString(template.getHint(i), strings, stringIndex);
+            words[record + 4] = addString(template.getAnswer(i), strings, stringIndex);
+        }
+
+        int dataLength = 0;
+        for (byte[] string : strings) {
+            dataLength += string.length;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES
+                * (HEADER_INTS + words.length + strings.size() * STRING_INDEX_INTS) + dataLength);
+
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(numberWords).putInt(strings.size());
+        for (int value : words) {
+            buffer.putInt(value);
+        }
+        int offset = 0;
+        for (byte[] string : strings) {
+            buffer.putInt(offset).putInt(string.length);
+            offset += string.length;
+        }
+        for (byte[] string : strings) {
+            buffer.put(string);
+        }
+
+        final Path target = compiled.toPath();
+        // the temporary file is hidden, so a catalog watching the folder never takes it for a puzzle
+        final Path temporary = Files.createTempFile(target.toAbsolutePath().getParent(), "." + compiled.getName(), ".tmp");
+        try {
+            Files.write(temporary, buffer.array());
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Add a string to the string table of a compiled puzzle, unless it is already there
+     * @param string string to add
+     * @param strings the UTF-8 bytes of the strings of the table so far, in order; mutated to add string
+     * @param stringIndex map from every string in the table to its index; mutated to add string
+     * @return the index of string in the table
+     */
+    private static int addString(String string, List<byte[]> strings, Map<String, Integer> stringIndex) {
+        return stringIndex.computeIfAbsent(string, s -> {
+            strings.add(s.getBytes(UTF_8));
+            return strings.size() - 1;
+        });
+    }
+
+    /**
+     * Load a compiled puzzle by mapping its file into memory
+     * @param compiled a file written by write()
+     * @return the puzzle in the file
+     * @throws IOException if the file cannot be read, or is not a compiled puzzle in this format, including if it is
+     *                     truncated or corrupt
+     */
+    public static PuzzleTemplate read(File compiled) throws IOException {
+        final MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(compiled.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < Integer.BYTES * HEADER_INTS || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("not a compiled puzzle: " + compiled);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                throw new IOException("not a compiled puzzle: " + compiled);
+            }
+            final int numberWords = buffer.getInt();
+            final int numberStrings = buffer.getInt();
+            // the word records and the string table must fit in the file, so a corrupt header can never make us
+            // allocate more than the size of the file
+            final long tablesEnd = (long) Integer.BYTES
+                    * (HEADER_INTS + (long) numberWords * WORD_RECORD_INTS + (long) numberStrings * STRING_INDEX_INTS);
+            if (numberWords < 0 || numberStrings <= DESCRIPTION_STRING || tablesEnd > buffer.capacity()) {
+                throw new IOException("corrupt compiled puzzle: " + compiled);
+            }
+
+            final int stringTable = Integer.BYTES * (HEADER_INTS + numberWords * WORD_RECORD_INTS);
+            final int stringData = (int) tablesEnd;
+            final String[] strings = new String[numberStrings];
+            for (int i = 0; i < numberStrings; i++) {
+                final int entry = stringTable + Integer.BYTES * i * STRING_INDEX_INTS;
+                final int offset = buffer.getInt(entry);
+                final int length = buffer.getInt(entry + Integer.BYTES);
+                if (offset < 0 || length < 0 || (long) stringData + offset + length > buffer.capacity()) {
+                    throw new IOException("corrupt compiled puzzle: " + compiled);
+                }
+                final byte[] bytes = new byte[length];
+                buffer.position(stringData + offset);
+                buffer.get(bytes);
+                strings[i] = new String(bytes, UTF_8);
+            }
+
+            final int[] startRows = new int[numberWords];
+            final int[] startCols = new int[numberWords];
+            final Direction[] directions = new Direction[numberWords];
+            final String[] hints = new String[numberWords];
+            final String[] answers = new String[numberWords];
+            buffer.position(Integer.BYTES * HEADER_INTS);
+            for (int i = 0; i < numberWords; i++) {
+                startRows[i] = buffer.getInt();
+                startCols[i] = buffer.getInt();
+                final int direction = buffer.getInt();
+                if (direction != 0 && direction != 1) {
+                    throw new IOException("corrupt compiled puzzle: " + compiled);
+                }
+                directions[i] = direction == 0 ? Direction.ACROSS : Direction.DOWN;
+                hints[i] = strings[buffer.getInt()];
+                answers[i] = strings[buffer.getInt()];
+            }
+
+            return new PuzzleTemplate(strings[NAME_STRING], strings[DESCRIPTION_STRING], startRows, startCols, directions,
+                    hints, answers);
+        } catch (BufferUnderflowException | BufferOverflowException | IndexOutOfBoundsException
+                | IllegalArgumentException | NegativeArraySizeException e) {
+            throw new IOException("corrupt compiled puzzle: " + compiled, e);
+        }
+    }
+}
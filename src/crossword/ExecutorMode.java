@@ -0,0 +1,86 @@
+package crossword;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ways a Server can run the HTTP exchanges it receives.
+ */
+public enum ExecutorMode {
+
+    /** every exchange runs on a platform thread from a pool that grows without bound */
+    CACHED,
+
+    /** every exchange runs on its own virtual thread; needs Java 21 or later */
+    VIRTUAL,
+
+    /**
+     * exchanges run on a fixed number of platform threads, and wait in a bounded queue when every thread is busy;
+     * an exchange that arrives while the queue is full is rejected, which closes its connection
+     */
+    BOUNDED;
+
+    /** name of the system property that selects the executor mode of a server */
+    public static final String PROPERTY = "crossword.executor";
+
+    /**
+     * Find the executor mode with a given name
+     * @param name name of the mode, in any case
+     * @return the mode called name
+     * @throws IllegalArgumentException if there is no mode called name
+     */
+    public static ExecutorMode parse(String name) {
+        return ExecutorMode.valueOf(name.trim().toUpperCase());
+    }
+
+    /**
+     * Find the executor mode selected by the system property crossword.executor
+     * @return the selected mode, or CACHED if the property is not set
+     * @throws IllegalArgumentException if the property does not name a mode
+     */
+    public static ExecutorMode fromSystemProperty() {
+        final String name = System.getProperty(PROPERTY);
+        return name == null ? CACHED : parse(name);
+    }
+
+    /**
+     * Create a new executor that runs tasks in this mode
+     * @param threads number of threads of a BOUNDED executor, > 0; ignored by the other modes
+     * @param queueCapacity number of tasks that can wait for a thread of a BOUNDED executor, > 0; ignored by the other modes
+     * @return a new executor
+     * @throws UnsupportedOperationException if this mode is VIRTUAL and the running Java does not have virtual threads
+     */
+    public ExecutorService newExecutor(int threads, int queueCapacity) {
+        switch (this) {
+        case CACHED:
+            return Executors.newCachedThreadPool();
+        case VIRTUAL:
+            return newVirtualThreadPerTaskExecutor();
+        case BOUNDED:
+            return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), new ThreadPoolExecutor.AbortPolicy());
+        default:
+            throw new AssertionError(this);
+        }
+    }
+
+    /**
+     * Create an executor that starts a new virtual thread for each task. Looked up reflectively, so this class still
+     * compiles and runs on Java versions without virtual threads.
+     * @return a new virtual thread per task executor
+     * @throws UnsupportedOperationException if the running Java does not have virtual threads
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new UnsupportedOperationException("virtual threads need Java 21 or later", e);
+        } catch (InvocationTargetException e) {
+            throw new UnsupportedOperationException("virtual threads are not available", e.getCause());
+        }
+    }
+}
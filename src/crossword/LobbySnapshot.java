@@ -0,0 +1,111 @@
+package crossword;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable, serialized list of the puzzles that can be started and the matches that can be joined on a server, at one
+ * version of its lobby. Built once per change of the lobby, and shared by every request and watcher that sends it.
+ */
+public class LobbySnapshot {
+
+    // Abstraction function:
+    //    AF(version, puzzleNames, allMatches, update) = the lobby at version version, where puzzleNames are the names of
+    //      the puzzles that can be started, and allMatches is the text of the lobby as sent in a choose response: the
+    //      number of puzzles and their names, then the number of matches and the ID and description of each of them.
+    //      update is the whole choose response with state "update", encoded in UTF-8.
+    //
+    // Rep invariant:
+    //    version >= 0
+    //    update is the UTF-8 encoding of "choose\nupdate\n" + allMatches
+    //
+    // Safety from rep exposure:
+    //    all fields are private and final
+    //    puzzleNames must be an unmodifiable set, and is only compared, never returned
+    //    update is never returned; writeUpdateTo() only writes a copy of it to a stream
+    //
+    // Thread safety argument:
+    //    immutable, and all fields are final, so a snapshot can be shared by any number of threads
+
+    private static final String CHOOSE = "choose\n";
+    private static final String UPDATE = "update";
+
+    private final long version;
+    private final Set<String> puzzleNames;
+    private final String allMatches;
+    private final byte[] update;
+
+    /**
+     * Serialize the lobby of a server
+     * @param version the version of the lobby, >= 0
+     * @param puzzleNames the names of the puzzles that can be started, an unmodifiable set that is never mutated
+     * @param matchDescriptions map from the ID of every match that can be joined to its description; must not change
+     *                          while the snapshot is built
+     */
+    public LobbySnapshot(long version, Set<String> puzzleNames, Map<String, String> matchDescriptions) {
+        final StringBuilder text = new StringBuilder();
+
+        text.append(puzzleNames.size()).append('\n');
+        for (String puzzleName : puzzleNames) {
+            text.append(puzzleName).append('\n');
+        }
+
+        text.append(matchDescriptions.size()).append('\n');
+        for (Map.Entry<String, String> match : matchDescriptions.entrySet()) {
+            text.append(match.getKey()).append('\n');
+            text.append(match.getValue()).append('\n');
+        }
+
+        this.version = version;
+        this.puzzleNames = puzzleNames;
+        this.allMatches = text.toString();
+        this.update = getResponse(UPDATE).getBytes(UTF_8);
+        checkRep();
+    }
+
+    /**
+     * Check the rep invariant
+     */
+    private void checkRep() {
+        assert version >= 0;
+    }
+
+    /**
+     * @return the version of the lobby this is a snapshot of
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Check whether this snapshot is still current
+     * @param lobbyVersion the current version of the lobby
+     * @param currentPuzzleNames the names of the puzzles that can currently be started
+     * @return true iff this snapshot was taken at lobbyVersion, with the same puzzles
+     */
+    public boolean isCurrent(long lobbyVersion, Set<String> currentPuzzleNames) {
+        return version == lobbyVersion && puzzleNames.equals(currentPuzzleNames);
+    }
+
+    /**
+     * @param state state that the client should switch to, must not contain newlines
+     * @return choose response: choose, state, then the number of puzzles, the puzzles, the number of matches, and the
+     *         ID and description of each match, one per line
+     */
+    public String getResponse(String state) {
+        return CHOOSE + state + "\n" + allMatches;
+    }
+
+    /**
+     * Write the choose response with state "update" to a stream, without encoding it again
+     * @param out stream to write to
+     * @throws IOException if the response cannot be written
+     */
+    public void writeUpdateTo(OutputStream out) throws IOException {
+        out.write(update);
+    }
+}
@@ -1,11 +1,18 @@
 package crossword;
 
+import static crossword.Verification.check;
+
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import crossword.Cell.Exist;
 import crossword.Word.ChallengeResult;
@@ -18,49 +25,123 @@ import crossword.Word.TryResult;
 public class Match {
     
     // Abstraction function:
-    //    AF(matchName, matchDescription, words, idToWordMap, gameBoard, rows, columns, players, scores, challengePts, gameStarted) = 
+    //    AF(template, matchName, matchDescription, words, cells, rows, columns, players, scores, challengePts, gameStarted) = 
     //     A (rows x columns) crossword match with the name matchName and description matchDescription, and both players on the match are 
     //     stored with players, where scores.get(i) gives the number of words confirmed under player i, challengePts.get(i) represents 
     //     the number of challenge points that player i has, and gameStarted is whether or not the match has started (false if in waiting).
-    //     The Word objects that represents the words on the puzzle are stored within words, and idToWordMap maps the IDs of the words on the puzzle
-    //     to the corresponding Word objects in this Match. gameBoard[i][j] gives the Cell at index [i, j] on the Match board, and represents a cell
-    //     at index (i, j) within the crossword puzzle.
+    //     The Word objects that represents the words on the puzzle are stored within words, where the word with ID i is words.get(i-1).
+    //     cells[i * columns + j] is the Cell at index [i, j] on the Match board if that cell is part of the puzzle, and null if it is not
+    //     (no Cell is allocated for the cells that are not part of the puzzle). template is the puzzle being played.
+    //     version counts the changes made to the board so far, and changeLog holds the most recent of those changes, where each
+    //     change lists the cells (and owners and confirmed flags of words) whose value became different at that version. 
+    //     lettersSeen[i * columns + j] and wordsSeen are the values of the cells and words as of the current version.
+    //     snapshot is the state of the match as of the end of the last command, as seen by clients that don't take the lock.
+    //     correctWords is the number of words whose cells hold their correct value.
+    //     overfullCells is true iff some cell is part of more than two words, which only happens in an inconsistent puzzle.
+    //     wordLocks and boardLock are how tries are made in parallel: a try on the word with index k can only change the
+    //     words in template.getMoveWords(k) and the cells in template.getMoveCells(k), and locks the words in
+    //     template.getMoveLocks(k).
     
     // Rep invariant: 
     //    matchName cannot contain newlines, or tabs
     //    rows >= 0 && col >= 0
-    //    ids in idToWordMap are >= 1, unique, and increasingly sequential.
-    //    every word in the list words appears as a value in idToWordMap and vice versa
+    //    words.get(i).getID() == i+1
+    //    cells.length == rows * columns
     //    players.size() == 2 (there are exactly two players)
     //    scores.keySet().size() == 2
     //    challengePts.keySet().size() == 2
     //    same players in players, scores, and challengePts
     //    if gameStarted is true, must have two players, otherwise must have at most 1 player
+    //    started has completed normally (with this match) iff gameStarted is true; it can only be cancelled before that
+    //    version >= 0, changeLog.size() <= CHANGE_LOG_CAPACITY, and the versions in changeLog are consecutive, ending at version
+    //    lettersSeen[i] is the letter of cells[i] ('#' if cells[i] is null), and wordsSeen[i] is getWordState(words.get(i)), as of the last move
+    //    snapshot has the current version, shows lettersSeen and wordsSeen, and has the current players, scores and
+    //      challenge points, whenever no command is running
+    //    the rep invariants of every Word in words and every Cell in cells hold
+    //    correctWords is the number of words in words for which isCorrect() is true
+    //    overfullCells is true iff some Cell in cells isOverfull()
+    //    wordLocks.length == words.size()
+    //    The rep invariant is checked by verify(), once at the end of each command that can mutate the match (addPlayer,
+    //    tryInsert, challenge, a finishing isFinished), never in getters. How often depends on verification: never, one
+    //    in sampleRate commands, or always.
     //    
     //
     // Safety from rep exposure:
-    //    matchName, matchDescription, words, gameBoard, rows, columns are private and final
+    //    template, matchName, matchDescription, words, cells, rows, columns are private and final, and template is immutable
     //    players, scores, challengePts, state are also private final
     //    Match constructor takes in immutable types, so it's safe to directly alias them (it's SRE)
     //    Other public methods only take in and return immutable types, so it's SRE because we don't expose our rep to potential unintended mutation
+    //    snapshot is immutable, and every array in it is a copy that this match never mutates, so it's safe to return it
+    //    changeListeners is private final and never returned; the listeners in it are given to us by the client to be run
+    //      after every move, so keeping references to them is not rep exposure
+    //    the locks are private final, and never returned; the arrays of word and cell indices of template are never mutated
     //   
     // Thread safety argument:
-    //   We use the monitor pattern and synchronize every method with a lock on this object, which ensures thread safety 
-    //   because only one thread can be in a given method at any given time, so all accesses to our rep happen within
-    //   Match's methods, which are all guarded by this Match object's lock.
+    //   The board (the Words in words and the Cells in cells) is guarded by fine-grained locks, so moves on parts of the
+    //   board that don't touch each other run in parallel: wordLocks[k] guards words.get(k), and a cell is guarded by the
+    //   locks of all of its words together, so it can only be changed while holding all of them. A try on word k
+    //   (tryInsert) holds boardLock shared and the locks of the words in getMoveLocks(k) of template. It only changes the
+    //   words in getMoveWords(k) and the cells in getMoveCells(k), whose words are all in getMoveLocks(k): clearing a crossing word clears its cells, and
+    //   changing those cells changes the count of correct letters of the words crossing it, which is why a try locks the
+    //   words two crossings away and not just one. Word locks are always taken in ascending order, after boardLock, so two
+    //   tries never deadlock. Commands that change the scores or touch the whole board (challenge, a finishing
+    //   isFinished, checkRep) hold boardLock exclusively instead, so no try is running while they do; this way a snapshot
+    //   never shows the scores of a challenge without its board.
+    //   Everything else (players, scores, challengePts, gameStarted, version, changeLog, lettersSeen, wordsSeen,
+    //   correctWords, commands, changeListeners) is guarded by this object's lock, which is only held for short steps and
+    //   is always taken last, never while waiting for a word lock or boardLock. At the end of a move, while still holding
+    //   its word locks, the move takes this lock and records the changes to its own cells and words only, as the next
+    //   version. Changes made by another move that is still running are never in lettersSeen or wordsSeen before that
+    //   move records them, so every version is the board after some order of whole moves (moves that ran at the same time
+    //   touched different cells and words, so their order doesn't matter).
+    //   words, cells and template are never changed after the constructor, and template is immutable, so they are read
+    //   without a lock. getSnapshot(), toString() and getUpdateSince() only read snapshot: it is volatile, and is replaced as a whole,
+    //   while holding this lock, at the end of every command, so a reader that doesn't take any lock sees the match as of
+    //   the end of some command, never in the middle of one. Change listeners are run while holding this lock, so a
+    //   listener always sees the version right after the move that fired it. whenStarted() doesn't touch the rep except
+    //   for the threadsafe future started, which is final.
+    //   No thread ever waits on this object's monitor (clients that wait for a change register a change listener, or a
+    //   callback on whenStarted()), so methods don't notify; a watcher finds out whether anything changed by comparing getVersion().
     
     
+    private final PuzzleTemplate template;
     private final String matchName;
     private final String matchDescription;
     private final List<Word> words;
-    private final Map<Integer, Word> idToWordMap; 
-    private final Cell[][] gameBoard;
+    private final Cell[] cells;
     private final int rows;
     private final int columns;
     private final List<Player> players;
     private final Map<Player, Integer> scores;
     private final Map<Player, Integer> challengePts;
     private boolean gameStarted;
+    private final List<Runnable> changeListeners = new ArrayList<>();
+    private final CompletableFuture<Match> started = new CompletableFuture<>();
+    private long version;
+    private final Deque<MatchSnapshot.Change> changeLog = new ArrayDeque<>();
+    private final char[] lettersSeen;
+    private final String[] wordsSeen;
+    
+    private static final int CHANGE_LOG_CAPACITY = 64;
+    private static final char ABSENT_CELL = '#';
+    
+    // how often the rep invariant is checked, and the number of commands run so far, which decides when it is sampled
+    private final Verification verification;
+    private final int sampleRate;
+    private long commands;
+    
+    // number of words that hold their correct value, kept up to date by the words themselves
+    private int correctWords;
+    
+    // whether a cell is part of more than two words, so the layout of the puzzle is inconsistent
+    private final boolean overfullCells;
+    
+    // the state of the match at the end of the last command, published for readers that don't take the lock
+    private volatile MatchSnapshot snapshot;
+    
+    // locks of the board; which words a move locks and can change is the same for every match, so template has it
+    private final ReentrantReadWriteLock boardLock = new ReentrantReadWriteLock();
+    private final ReentrantLock[] wordLocks;
     
     /**
      * Constructor for the Match object
@@ -69,85 +150,274 @@ public class Match {
      * @param wordTuples the words associated with this match
      */
     public Match(String matchName, String matchDescription, List<WordTuple> wordTuples) {
-        this.matchName = matchName;
-        this.matchDescription = matchDescription;
-        this.words = new ArrayList<>();
-        this.idToWordMap = new HashMap<Integer, Word>();
+        this(new PuzzleTemplate(matchName, matchDescription, wordTuples));
+    }
+    
+    /**
+     * Construct a new match of a compiled puzzle. Only the state of this game is allocated; the name, description, hints,
+     * answers, and geometry of the puzzle are shared with template. The puzzle may be inconsistent, even with a cell
+     * that is part of more than two words; checkConsistency() then returns false.
+     * @param template the puzzle to play
+     */
+    public Match(PuzzleTemplate template) {
+        this.template = template;
+        this.matchName = template.getName();
+        this.matchDescription = template.getDescription();
+        this.words = new ArrayList<>(template.getNumberWords());
+        this.rows = template.getRows();
+        this.columns = template.getColumns();
+        
+        this.cells = new Cell[rows * columns];
+        
+        for(int cell : template.getPresentCells()) {
+            this.cells[cell] = new Cell(cell / columns, cell % columns, Exist.PRESENT);
+        }
         
-        int counter = 1;
-
-        for (WordTuple wordTuple : wordTuples) {
-            Word newWord = new Word(wordTuple.getRow(), wordTuple.getCol(), wordTuple.getHint(), counter,
-                    wordTuple.getWord().toLowerCase(), wordTuple.getDirection());
+        for(int index = 0; index < template.getNumberWords(); index++) {
+            final Word word = new Word(template.getStartRow(index), template.getStartCol(index), template.getHint(index), index+1,
+                    template.getAnswer(index), template.getDirection(index).name());
             
-            this.words.add(newWord);
-           
-            counter++;
-        }
-                
-        int maxRow = 0;
-        int maxColumn = 0;
-
-        for(Word word : words) {
+            // NOTE: this order of iteration is CRUCIAL to maintaining the rep invariant of Word, CANNOT CHANGE THIS
+            for(int i = word.getRowLowerBound(); i <= word.getRowUpperBound(); i++) {
+                for(int j = word.getColumnLowerBound(); j <= word.getColumnUpperBound(); j++) {
+                    word.addInvolvedCell(this.cells[i * columns + j]);
+                    this.cells[i * columns + j].addWord(word);
+                }
+            }
             
-            maxRow = Math.max(maxRow, word.getRowUpperBound()+1);
-            maxColumn = Math.max(maxColumn, word.getColumnUpperBound()+1);
+            this.words.add(word);
+            word.setMatch(this);
         }
         
-        this.rows = maxRow;
-        this.columns = maxColumn;
-        
-        this.gameBoard = new Cell[rows][columns];
+        this.wordLocks = new ReentrantLock[words.size()];
+        for(int k = 0; k < words.size(); k++) {
+            this.wordLocks[k] = new ReentrantLock();
+        }
         
-        for(int i = 0; i < rows; i++) {
-            for(int j = 0; j < columns; j++) {
-                this.gameBoard[i][j] = new Cell(i, j, Exist.ABSENT);
-            }
+        boolean overfull = false;
+        for(int cell : template.getPresentCells()) {
+            overfull |= cells[cell].isOverfull();
         }
+        this.overfullCells = overfull;
         
-        for(Word word : words) {
-            final int rowLower = word.getRowLowerBound();
-            final int rowHigher = word.getRowUpperBound();
-            final int colLower = word.getColumnLowerBound();
-            final int colHigher = word.getColumnUpperBound();
-            
-            
-            // CAUTION CAUTION CAUTION: DO *NOT* CHANGE THIS
-            for(int i = rowLower; i <= rowHigher; i++) { // NOTE: this order of iteration is CRUCIAL to maintaining the rep invariant, CANNOT CHANGE THIS
-                for(int j = colLower; j <= colHigher; j++) {
-                    if(this.gameBoard[i][j].isAbsent()) {
-                        this.gameBoard[i][j] = new Cell(i, j, Exist.PRESENT); // be careful, we don't want to override any cells that already exist
-                    }
-                    word.addInvolvedCell(this.gameBoard[i][j]);
-                    this.gameBoard[i][j].addWord(word);
-                }
-            }
-            
-            this.idToWordMap.put(word.getID(), word);
+        this.lettersSeen = new char[rows * columns];
+        for(int i = 0; i < lettersSeen.length; i++) {
+            this.lettersSeen[i] = getLetter(i);
+        }
+        this.wordsSeen = new String[words.size()];
+        for(int i = 0; i < words.size(); i++) {
+            this.wordsSeen[i] = getWordState(words.get(i));
         }
         
         players = new ArrayList<>();
         scores = new HashMap<>();
         challengePts = new HashMap<>();
         
-        checkRep();
+        verification = Verification.fromSystemProperty();
+        sampleRate = Verification.sampleRateFromSystemProperty();
+        publish();
+        verify();
     }
     
     /**
      * Add a player to this match
      * @param player player to add
      */
-    public synchronized void addPlayer(Player player) {
-        players.add(player);
-        scores.put(player, 0);
-        challengePts.put(player, 0);
+    public void addPlayer(Player player) {
+        synchronized(this) {
+            players.add(player);
+            scores.put(player, 0);
+            challengePts.put(player, 0);
+            
+            publish(); // before starting the game, so whoever is told it started sees both players
+            if(players.size() == 2) {
+                this.startGame();
+            }
+        }
         
-        if(players.size() == 2) {
-            this.startGame();
+        verify();
+    }
+    
+    /**
+     * Get a future that completes when this match has two players, so a client can wait for the second player without
+     * holding a thread or the lock of this match. Callbacks that don't run asynchronously are run by the thread that
+     * adds the second player, while it holds the lock of this match, so they must be quick and must not block.
+     * @return a new future that completes with this match when it has two players, or completes exceptionally with a
+     *         CancellationException (as the cause of a CompletionException) if cancelStart() is called before then
+     */
+    public CompletableFuture<Match> whenStarted() {
+        return started.copy();
+    }
+    
+    /**
+     * Give up on this match before it starts: every future returned by whenStarted() completes exceptionally. Does
+     * nothing if the match has already started.
+     * @return true iff the match had not started, so it was cancelled
+     */
+    public synchronized boolean cancelStart() {
+        return !gameStarted && started.cancel(false);
+    }
+    
+    /**
+     * Add a listener that is run every time a move changes the board of this match, that is, every time getVersion()
+     * goes up: a try or a challenge that changes a cell or a word, or the match finishing and confirming its words. Moves
+     * that change nothing, such as a failed try, and reads never run it. The listener is run while holding the lock of
+     * this match, so it must be quick and must not block.
+     * @param listener listener to run after every move that changes the board
+     */
+    public synchronized void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+    
+    /**
+     * Record the changes made by the last move as a new version, and if the move changed anything, run every change
+     * listener of this match. Must be called while holding the locks of every given cell and word, or boardLock
+     * exclusively.
+     * @param cellIndices indices of the cells in cells that the move could have changed, in ascending order
+     * @param wordIndices indices of the words in words that the move could have changed, in ascending order
+     */
+    private synchronized void fireChanged(int[] cellIndices, int[] wordIndices) {
+        final boolean changed = recordChanges(cellIndices, wordIndices);
+        publish(); // scores may have changed even if the board didn't
+        if(!changed) {
+            return; // nothing a watcher could see has changed, so don't wake any of them
         }
         
-        this.notifyAll();
-        checkRep();
+        for (Runnable listener : changeListeners) {
+            listener.run();
+        }
+    }
+    
+    /**
+     * Publish the current state of this match as a new snapshot. The board of the last snapshot is reused if the
+     * version didn't change, so publishing after a move that only changed scores doesn't copy the board.
+     */
+    private synchronized void publish() {
+        final int[] playerScores = new int[players.size()];
+        final int[] playerChallengePts = new int[players.size()];
+        for(int i = 0; i < players.size(); i++) {
+            playerScores[i] = scores.get(players.get(i));
+            playerChallengePts[i] = challengePts.get(players.get(i));
+        }
+        
+        final MatchSnapshot last = snapshot;
+        if(last != null && last.getVersion() == version) {
+            snapshot = last.withPlayers(players, playerScores, playerChallengePts);
+        } else {
+            snapshot = new MatchSnapshot(template, version, lettersSeen.clone(), wordsSeen.clone(), new ArrayList<>(changeLog),
+                    players, playerScores, playerChallengePts);
+        }
+    }
+    
+    /**
+     * Get the state of this match as of the end of the last command (addPlayer, tryInsert, challenge, isFinished).
+     * Never waits for the lock of this match, so a client can build a response while moves are being made, and every
+     * value it reads from the snapshot is from the same moment.
+     * @return an immutable snapshot of this match
+     */
+    public MatchSnapshot getSnapshot() {
+        return snapshot;
+    }
+    
+    /**
+     * Compare some cells and words to the values seen at the current version, and if any of them changed, record the
+     * changes as the next version. Only reads the given cells and words, so it doesn't race with moves on the rest of the
+     * board.
+     * @param cellIndices indices of the cells in cells to compare, in ascending order
+     * @param wordIndices indices of the words in words to compare, in ascending order
+     * @return true iff anything changed, so a new version was recorded
+     */
+    private synchronized boolean recordChanges(int[] cellIndices, int[] wordIndices) {
+        final List<String> lines = new ArrayList<>();
+        
+        for(int i : cellIndices) {
+            final char letter = getLetter(i);
+            if(letter != lettersSeen[i]) {
+                lettersSeen[i] = letter;
+                lines.add("cell " + (i / columns) + " " + (i % columns) + " " + letter);
+            }
+        }
+        
+        for(int i : wordIndices) {
+            final String wordState = getWordState(words.get(i));
+            if(!wordState.equals(wordsSeen[i])) {
+                wordsSeen[i] = wordState;
+                lines.add("word " + wordState);
+            }
+        }
+        
+        if(lines.isEmpty()) {
+            return false;
+        }
+        
+        version++;
+        changeLog.addLast(new MatchSnapshot.Change(version, List.copyOf(lines)));
+        if(changeLog.size() > CHANGE_LOG_CAPACITY) {
+            changeLog.removeFirst();
+        }
+        return true;
+    }
+    
+    /**
+     * @param index index of a cell in cells, i * columns + j for the cell [i, j]
+     * @return the letter of that cell as shown on the board: '#' if it is not part of the puzzle, otherwise its value
+     */
+    private synchronized char getLetter(int index) {
+        final Cell cell = cells[index];
+        return cell == null ? ABSENT_CELL : cell.getCurrentValue();
+    }
+    
+    /**
+     * Find the word with a given ID. words never changes, so no lock is needed.
+     * @param wordID any integer
+     * @return the word of this match with ID wordID, or null if there is none
+     */
+    private Word getWord(int wordID) {
+        return wordID >= 1 && wordID <= words.size() ? words.get(wordID - 1) : null;
+    }
+    
+    /**
+     * @param word a word of this match
+     * @return the parts of the line of word in toString() that can change during the match:
+     *         word ID, has owner, is confirmed (then owner ID if has owner)
+     */
+    private static String getWordState(Word word) {
+        return word.getID() + " " + String.valueOf(word.hasOwner()) + " " + String.valueOf(word.isConfirmed()) + " " 
+                + (word.hasOwner() ? String.valueOf(word.getOwner()) : "");
+    }
+    
+    /**
+     * Get the version of the board. The version starts at 0, and goes up by one after every move that changes a cell,
+     * the owner of a word, or whether a word is confirmed.
+     * @return the current version of the board
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+    
+    /**
+     * Get what changed on the board since a given version, for a client that already has the board at that version.
+     * Only the most recent changes are kept, so a client that is too far behind gets the whole board instead.
+     * 
+     * @param since the version of the board the client has, or a negative number if it has none
+     * @return if the changes since that version are still known, a delta in the following format:
+     * 
+     * first line: "delta", the version the delta starts from, and the current version
+     * next line: how many lines of changes follow (n)
+     * next n lines, in the order they must be applied:
+     *      "cell", row, column, and the new value of the cell (as in toString())
+     *      "word", word ID, has owner, is confirmed (then owner ID if has owner) (as in toString())
+     * 
+     * otherwise, a snapshot of the whole board: "snapshot" and the current version, followed by toString() on the next lines
+     * 
+     * example:
+     * delta 3 4
+     * 2
+     * cell 1 1 a
+     * word 2 true false iAmOwner
+     */
+    public String getUpdateSince(long since) {
+        return snapshot.getUpdateSince(since);
     }
     
     /**
@@ -155,9 +425,6 @@ public class Match {
      * @return number of current players.
      */
     public synchronized int getNumberPlayers() {
-        this.notifyAll();
-        checkRep();
-        
         return players.size();
     }
     
@@ -166,41 +433,108 @@ public class Match {
      */
     private synchronized void startGame() {
         this.gameStarted = true;
-        
-        this.notifyAll();
-        checkRep();
+        started.complete(this);
     }
     
     private synchronized boolean gameIsStarted() {
-        this.notifyAll();
-        checkRep();
-        
         return this.gameStarted;
     }
     
     /**
-     * Check for valid match rep invariant
+     * Count a command that may have mutated this match, and check the rep invariant after it if the verification level
+     * of this match says so. Must be called without holding any lock of this match.
      */
-    private synchronized void checkRep() {
-        assert matchName.indexOf("\n") == -1;
-        assert rows >= 0;
-        assert columns >= 0;
+    private void verify() {
+        final boolean sampled;
+        synchronized(this) {
+            commands++;
+            sampled = verification.shouldVerify(commands, sampleRate);
+        }
+        if(sampled) {
+            checkRep();
+        }
+    }
+    
+    /**
+     * Check for valid match rep invariant, including the rep invariants of every word and cell of this match. 
+     * Runs whether or not Java assertions are enabled. Waits for the moves that are running to finish, so it must be
+     * called without holding any lock of this match.
+     * @throws AssertionError if the rep invariant is violated
+     */
+    void checkRep() {
+        boardLock.writeLock().lock();
+        try {
+            synchronized(this) {
+                checkRepLocked();
+            }
+        } finally {
+            boardLock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Check the rep invariant, while holding boardLock exclusively and the lock of this match
+     * @throws AssertionError if the rep invariant is violated
+     */
+    private void checkRepLocked() {
+        check(matchName.indexOf("\n") == -1, "match name has no newlines");
+        check(rows >= 0, "rows >= 0");
+        check(columns >= 0, "columns >= 0");
         
-        for(int i = 1; i <= idToWordMap.size(); i++) {
-            assert idToWordMap.containsKey(i);
+        for(int i = 0; i < words.size(); i++) {
+            check(words.get(i).getID() == i + 1, "word IDs are 1 to n, in order");
         }
+        check(cells.length == rows * columns, "one slot per cell of the board");
         
-        assert checkSetEquality(new HashSet<>(words), new HashSet<>(idToWordMap.values()));
+        check(this.gameStarted ? started.isDone() : !started.isDone() || started.isCancelled(),
+                "started is completed iff the game started");
+        
+        check(version >= 0, "version >= 0");
+        check(changeLog.size() <= CHANGE_LOG_CAPACITY, "change log is capped");
+        check(changeLog.isEmpty() || changeLog.peekLast().getVersion() == version, "change log ends at the current version");
+        for(int i = 0; i < lettersSeen.length; i++) {
+            check(lettersSeen[i] == getLetter(i), "lettersSeen is the current board");
+        }
+        for(int i = 0; i < words.size(); i++) {
+            check(wordsSeen[i].equals(getWordState(words.get(i))), "wordsSeen is the current board");
+        }
+        check(snapshot.getVersion() == version && snapshot.showsBoard(lettersSeen, wordsSeen), "snapshot has the current board");
+        check(snapshot.getNumberPlayers() == players.size(), "snapshot has the current players");
+        for(Player player : players) {
+            check(snapshot.getScore(player) == getScore(player) && snapshot.getChallengePoints(player) == getChallengePoints(player),
+                    "snapshot has the current scores");
+        }
         
         if(this.gameStarted) {
-            assert this.players.size() == 2;
+            check(this.players.size() == 2, "a started game has two players");
         }
         else {
-            assert this.players.size() <= 1;
+            check(this.players.size() <= 1, "a game that hasn't started has at most one player");
         }
         
-        assert checkSetEquality(scores.keySet(), new HashSet<>(players));
-        assert checkSetEquality(scores.keySet(), challengePts.keySet());
+        check(checkSetEquality(scores.keySet(), new HashSet<>(players)), "every player has a score");
+        check(checkSetEquality(scores.keySet(), challengePts.keySet()), "every player has challenge points");
+        
+        int correct = 0;
+        for(Word word : words) {
+            word.checkRep();
+            check(word.isCorrect() == word.getCurrentValue().equals(word.getCorrectValue()), "isCorrect() matches the word's letters");
+            correct += word.isCorrect() ? 1 : 0;
+        }
+        check(correct == correctWords, "correctWords counts the correct words");
+        
+        boolean overfull = false;
+        for(Cell cell : cells) {
+            overfull |= cell != null && cell.isOverfull();
+        }
+        check(overfull == overfullCells, "overfullCells records whether a cell is in more than two words");
+        
+        check(wordLocks.length == words.size(), "every word has its lock");
+        for(Cell cell : cells) {
+            if(cell != null) {
+                cell.checkRep();
+            }
+        }
     }
     
     /**
@@ -230,9 +564,6 @@ public class Match {
     public synchronized void decreaseChallenge(Player player) {
         final int currentChallenge = challengePts.get(player);
         challengePts.put(player, currentChallenge-1);
-        
-        this.notifyAll();
-        checkRep();
     }
     
     /**
@@ -242,9 +573,6 @@ public class Match {
     public synchronized void incrementChallengeByTwo(Player player) {
         final int currentChallenge = challengePts.get(player);
         challengePts.put(player, currentChallenge+2);
-        
-        this.notifyAll();
-        checkRep();
     }
     
     /**
@@ -254,9 +582,6 @@ public class Match {
     public synchronized void incrementScore(Player player) {
         final int currentScore = scores.get(player);
         scores.put(player, currentScore+1);
-        
-        this.notifyAll();
-        checkRep();
     }
     
     /**
@@ -264,9 +589,6 @@ public class Match {
      * @return the score of the given player (which is number of words confirmed correct + challenge points)
      */
     public synchronized int getScore(Player player) {
-        this.notifyAll();
-        checkRep();
-        
         return scores.get(player) + challengePts.get(player);
     }
     
@@ -275,9 +597,6 @@ public class Match {
      * @return the number of challenge points of the given player
      */
     public synchronized int getChallengePoints(Player player) {
-        this.notifyAll();
-        checkRep();
-        
         return challengePts.get(player);
     }
     
@@ -290,17 +609,24 @@ public class Match {
      * what was on the board (already confirmed, or owned by other player), SUCCESS if it is consistent (and it was inserted onto the board),
      * WRONG_ID if the word ID did not exist within the match
      */
-    public synchronized TryResult tryInsert(Player player, int wordID, String tryWord) {
+    public TryResult tryInsert(Player player, int wordID, String tryWord) {
         tryWord = tryWord.toLowerCase();
         
-        if(!idToWordMap.containsKey(wordID)) return TryResult.WRONG_ID;
-        
-        final Word word = idToWordMap.get(wordID);
-        
-        this.notifyAll();
-        checkRep();
+        final Word word = getWord(wordID);
+        if(word == null) return TryResult.WRONG_ID;
+        
+        final int index = wordID - 1;
+        final TryResult result;
+        lockMove(index);
+        try {
+            result = word.tryInsertNewWord(player, tryWord);
+            fireChanged(template.getMoveCells(index), template.getMoveWords(index));
+        } finally {
+            unlockMove(index);
+        }
+        verify();
         
-        return word.tryInsertNewWord(player, tryWord);
+        return result;
     }
     
     /**
@@ -311,17 +637,48 @@ public class Match {
      * @return the result of the challenge in terms of ChallengeResult (INVALID if it wasn't consistent according to the rules, INCORRECT if the challenge was
      * incorrect, and CORRECT if the challenge is correct)
      */
-    public synchronized ChallengeResult challenge(Player player, int wordID, String challengeGuess) {
+    public ChallengeResult challenge(Player player, int wordID, String challengeGuess) {
         challengeGuess = challengeGuess.toLowerCase();
         
-        if(!idToWordMap.containsKey(wordID)) return ChallengeResult.INVALID;
+        final Word word = getWord(wordID);
+        if(word == null) return ChallengeResult.INVALID;
 
-        final Word word = idToWordMap.get(wordID);
-        
-        this.notifyAll();
-        checkRep();
+        final int index = wordID - 1;
+        final ChallengeResult result;
+        boardLock.writeLock().lock(); // changes the scores, which are part of every snapshot, so no try may run meanwhile
+        try {
+            result = word.tryChallenge(player, challengeGuess, this);
+            fireChanged(template.getMoveCells(index), template.getMoveWords(index));
+        } finally {
+            boardLock.writeLock().unlock();
+        }
+        verify();
         
-        return word.tryChallenge(player, challengeGuess, this);
+        return result;
+    }
+    
+    /**
+     * Take the locks a try on a word needs: boardLock shared, then the locks of the words the try can touch, in
+     * ascending order
+     * @param index the index of the word in words
+     */
+    private void lockMove(int index) {
+        boardLock.readLock().lock();
+        for(int word : template.getMoveLocks(index)) {
+            wordLocks[word].lock();
+        }
+    }
+    
+    /**
+     * Release the locks taken by lockMove(index)
+     * @param index the index of the word in words
+     */
+    private void unlockMove(int index) {
+        final int[] locked = template.getMoveLocks(index);
+        for(int i = locked.length - 1; i >= 0; i--) {
+            wordLocks[locked[i]].unlock();
+        }
+        boardLock.readLock().unlock();
     }
     
     /**
@@ -341,167 +698,18 @@ public class Match {
      * 1 1 ACROSS 2 true false iAmOwner
      */
     @Override
-    public synchronized String toString() {
-        String resultString = "";
-        resultString += rows + "x" + columns + "\n";
-        
-        for(int i = 0; i < rows; i++) {
-            for(int j = 0; j < columns; j++) {
-                resultString += gameBoard[i][j].toString();
-            }
-            resultString += "\n";
-        }
-        
-        resultString += words.size() + "\n";
-        
-        for(Word word : words) {
-            resultString += word.getRowLowerBound() + " " + word.getColumnLowerBound() + " " + word.getDirection().name() + " " 
-        + word.getID() + " " + String.valueOf(word.hasOwner()) + " " + String.valueOf(word.isConfirmed()) + " " + (word.hasOwner() ? String.valueOf(word.getOwner()) : "") + "\n";
-            resultString += word.getHint() + "\n";
-        }
-        
-        return resultString;
+    public String toString() {
+        return snapshot.toString();
     }
     
     /**
-     * Checks if this board is consistent with regards to the specifications laid out in the Final Project handout
-     * @return true if the board is consistent with regards to the Final Project handout
+     * Checks if this board is consistent with regards to the specifications laid out in the Final Project handout.
+     * Takes time linear in the number of letters of the puzzle; see PuzzleValidator.
+     * @return true if the board is consistent with regards to the Final Project handout, which is never the case if
+     *         a cell is part of more than two words
      */
     public synchronized boolean checkConsistency() {
-        /*
-         * IMPLEMENTATION IDEA
-         * 
-         * Go through every pair of words on the board and check:
-         *    1. If the words have the same orientation (both DOWN or both ACROSS), then they cannot intersect anywhere
-         *          a. Since they have the same orientation, if they DO intersect, they must have the same row or same column
-         *          b. The problem reduces to finding whether or not two 1D ranges overlap (well known trick for doing this), or can just use brute force
-         *    2. If the words have different orientations, they can intersect at most one point
-         *          a. Brute force can be used, or we can find the intersections of the lines, and check if the intersection point lies in both segments
-         *    3. Check to make sure that the words are different (since all words must be unique)
-         */
-        
-        for(int i = 0; i < words.size(); i++) { // iterating on the first word
-            
-            final Word firstWord = words.get(i);
-            final String firstValue = firstWord.getCorrectValue();
-            final boolean firstVertical = firstWord.isVertical();
-
-            for(int j = i+1; j < words.size(); j++) {
-                
-                final Word secondWord = words.get(j);
-                final String secondValue = secondWord.getCorrectValue();
-                final boolean secondVertical = secondWord.isVertical();
-                
-                if(firstValue.equals(secondValue)) { // #3: every word must be unique
-                    return false;
-                }
-                
-                if(firstVertical && secondVertical) { // #1: the words are the same orientation (VERTICAL)
-                    // words with the same orientation CANNOT intersect, we check their bounding rectangles
-                    final int firstCol = firstWord.getColumnLowerBound();
-                    final int secondCol = secondWord.getColumnLowerBound();
-                    
-                    if(firstCol != secondCol) {
-                        continue; // if the columns don't match, there's no way the pair overlaps
-                    }
-                    
-                    final int firstLowerRow = firstWord.getRowLowerBound();
-                    final int firstHigherRow = firstWord.getRowUpperBound();
-                    
-                    final int secondLowerRow = secondWord.getRowLowerBound();
-                    final int secondHigherRow = secondWord.getRowUpperBound();
-                    
-                    if(oneDimensionOverlap(firstLowerRow, firstHigherRow, secondLowerRow, secondHigherRow)) {
-                        return false;
-                    }
-                }
-                else if(!firstVertical && !secondVertical) { // #1: the words are the same orientation (HORIZONTAL)
-                    final int firstRow = firstWord.getRowLowerBound();
-                    final int secondRow = secondWord.getRowLowerBound();
-                    
-                    if(firstRow != secondRow) {
-                        continue; // if the rows don't match, then this pair definitely doesn't overlap
-                    }
-                    
-                    final int firstLowerCol = firstWord.getColumnLowerBound();
-                    final int firstHigherCol = firstWord.getColumnUpperBound();
-                    
-                    final int secondLowerCol = secondWord.getColumnLowerBound();
-                    final int secondHigherCol = secondWord.getColumnUpperBound();
-                    
-                    if(oneDimensionOverlap(firstLowerCol, firstHigherCol, secondLowerCol, secondHigherCol)) {
-                        return false;
-                    }
-                }
-                else { // #2: check the point of intersection for words with different orientations
-                    
-                    if (firstVertical) { // first word is vertical, so second is horizontal
-                        final boolean consistent = verticalHorizontalConsistent(firstWord, secondWord);
-                        if(!consistent) {
-                            return false;
-                        }
-                    } else { // the second word is vertical, first word is horizontal
-                        final boolean consistent = verticalHorizontalConsistent(secondWord, firstWord);
-                        if(!consistent) {
-                            return false;
-                        }
-                    }
-                    
-                }
-            }
-            
-        }
-        
-        return true;
-    }
-    
-    /**
-     * Check if two one dimensional ranges, [firstLow, firstHigh] and [secondLow, secondHigh] intersect.
-     * @param firstLow the beginning of the first range
-     * @param firstHigh the end of the first range
-     * @param secondLow the beginning of the second range
-     * @param secondHigh the end of the second range
-     * @return true iff the ranges overlap
-     */
-    private synchronized boolean oneDimensionOverlap(int firstLow, int firstHigh, int secondLow, int secondHigh) {
-        return firstLow <= secondHigh && secondLow <= firstHigh; // returns true iff [firstLow, firstHigh] and [secondLow, secondHigh] overlap
-    }
-    
-    /**
-     * Check if two words (the first must be vertical and second must be horizontal) are consistent with each other.
-     * @param verticalWord the vertically aligned word
-     * @param horizontalWord the horizontally aligned word
-     * @return whether or not the two words (one vertical and one horizontal) are consistent with each other
-     */
-    private synchronized boolean verticalHorizontalConsistent(Word verticalWord, Word horizontalWord) {
-        assert verticalWord.isVertical();
-        assert horizontalWord.isHorizontal();
-        
-        final int verticalLowerRow = verticalWord.getRowLowerBound(); // this refers to the vertical line's lower index boundary
-        final int verticalHigherRow = verticalWord.getRowUpperBound();
-        final int potentialCol = verticalWord.getColumnLowerBound(); // column of the potential intersection
-        
-        final int horizontalLowerCol = horizontalWord.getColumnLowerBound(); // horizontal line's left boundary
-        final int horizontalHigherCol = horizontalWord.getColumnUpperBound();
-        final int potentialRow = horizontalWord.getRowLowerBound(); // row of the potential intersection
-        
-        if (potentialCol <= horizontalHigherCol // lies in between the boundaries of the two words
-                && potentialCol >= horizontalLowerCol 
-                && potentialRow <= verticalHigherRow 
-                && potentialRow >= verticalLowerRow) { // we have an intersection
-            
-            final int verticalWordIndex = potentialRow - verticalLowerRow;
-            final int horizontalWordIndex = potentialCol - horizontalLowerCol;
-            
-            final char verticalWordChar = verticalWord.getCorrectCharAt(verticalWordIndex);
-            final char horizontalWordChar = horizontalWord.getCorrectCharAt(horizontalWordIndex);
-            
-            if (verticalWordChar != horizontalWordChar) {
-                return false;
-            }
-        }
-        
-        return true;
+        return !overfullCells && PuzzleValidator.isConsistent(template);
     }
     
     /**
@@ -509,9 +717,6 @@ public class Match {
      * @return the name of the match
      */
     public synchronized String getMatchName() {
-        this.notifyAll();
-        checkRep();
-        
         return matchName;
     }
     
@@ -520,44 +725,58 @@ public class Match {
      * @return the description of the match
      */
     public synchronized String getMatchDescription() {
-        this.notifyAll();
-        checkRep();
-        
         return matchDescription;
     }
     
     /**
      * Determines if this current match is finished, where finished is defined by project handout rules
      * If the current match is finished, then it sets all words with owners to be confirmed and updates the scores of the players accordingly
+     * While other moves are running, it may return false for a board that one of them is about to finish, but never
+     * true for a board that isn't finished; a move that makes a word correct must be followed by a call to isFinished().
      * @return true iff match is finished (and all words with owners 
      */
-    public synchronized boolean isFinished() {
-        for(Word word : this.words) {
-            final String currentValue = word.getCurrentValue();
-            final String correctValue = word.getCorrectValue();
-            if(!currentValue.equals(correctValue)) {
-                this.notifyAll();
-                checkRep();
-                
+    public boolean isFinished() {
+        synchronized(this) {
+            if(correctWords < words.size()) { // kept up to date as letters change, so no word needs to be read here
                 return false;
             }
         }
         
-        // at this point, we know that the match is done for sure, so we confirm all unconfirmed words and update the score
-        
-        for(Word word : this.words) {
-            if(word.hasOwner() && !word.isConfirmed()) {
-                word.setConfirmed();
-                incrementScore(word.getOwner());
+        boardLock.writeLock().lock();
+        try {
+            synchronized(this) {
+                if(correctWords < words.size()) { // checked again now that no move is running
+                    return false;
+                }
+                
+                // at this point, we know that the match is done for sure, so we confirm all unconfirmed words and update the score
+                
+                for(Word word : this.words) {
+                    if(word.hasOwner() && !word.isConfirmed()) {
+                        word.setConfirmed();
+                        incrementScore(word.getOwner());
+                    }
+                }
+                
+                fireChanged(template.getPresentCells(), template.getAllWords());
             }
+        } finally {
+            boardLock.writeLock().unlock();
         }
-        
-        this.notifyAll();
-        checkRep();
+        verify();
         
         return true;
     }
     
+    /**
+     * Update the count of correct words. Called by a word of this match, while a command holds the lock of that word,
+     * every time the word becomes correct or stops being correct.
+     * @param word a word of this match
+     */
+    synchronized void wordCorrectnessChanged(Word word) {
+        correctWords += word.isCorrect() ? 1 : -1;
+    }
+    
     /**
      * Find the winner's player ID of a finished match. If there's a tie, returns "TIE"
      * @return the ID of the winner of the match, based on total points
@@ -584,9 +803,6 @@ public class Match {
      * @return if match contains given player
      */
     public synchronized boolean containsPlayer(Player player) {
-        this.notifyAll();
-        checkRep();
-        
         return players.contains(player);
     }
     
@@ -599,9 +815,6 @@ public class Match {
      */
     public synchronized Player getOtherPlayer(Player player) {
         
-        this.notifyAll();
-        checkRep();
-        
         assert this.gameIsStarted();
         
         if (players.get(0).equals(player)) {
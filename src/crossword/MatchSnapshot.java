@@ -0,0 +1,264 @@
+package crossword;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable state of a match at the end of one of its commands: the board at one version, the most recent changes to
+ * the board, and the players with their scores and challenge points. Published by the match after every command, so
+ * responses can be built from one consistent view of the match without taking its lock.
+ */
+public class MatchSnapshot {
+
+    // Abstraction function:
+    //    AF(template, version, letters, wordStates, changes, players, scores, challengePoints) = the match of the puzzle
+    //      template at board version version, where letters[i * columns + j] is the letter shown in cell [i, j] ('#' if the
+    //      cell is not part of the puzzle), wordStates[k] is the state of the word with ID k+1 as shown on the board (word
+    //      ID, has owner, is confirmed, then owner ID if it has one), and changes holds the most recent changes to the
+    //      board, ending at version. players are the players of the match, in the order they joined, and player i has
+    //      scores[i] points and challengePoints[i] challenge points. board, once set, is the text of the board.
+    //
+    // Rep invariant:
+    //    version >= 0
+    //    letters.length == template.getRows() * template.getColumns(), wordStates.length == template.getNumberWords()
+    //    the versions in changes are consecutive, and end at version if changes is not empty
+    //    players.size() <= 2, and scores.length == challengePoints.length == players.size()
+    //
+    // Safety from rep exposure:
+    //    all fields are private; all but board are final, and board is an immutable String
+    //    letters, wordStates, scores and challengePoints are given to us by Match, which never mutates them afterwards,
+    //      and are never returned
+    //    template, changes and players are immutable
+    //
+    // Thread safety argument:
+    //    immutable, except for board, which caches the text of the board the first time toString() is called, and is
+    //    carried over to later snapshots of the same board by withPlayers(). Every thread that renders it renders the
+    //    same String, and Strings are safely published even through a data race, so a thread either sees null and
+    //    renders it again, or sees a complete board. Every other field is final.
+
+    private static final int BOARD_CHARS_PER_WORD = 64;
+
+    private final PuzzleTemplate template;
+    private final long version;
+    private final char[] letters;
+    private final String[] wordStates;
+    private final List<Change> changes;
+    private final List<Player> players;
+    private final int[] scores;
+    private final int[] challengePoints;
+    private String board;
+
+    /**
+     * Immutable record of the cells and words whose values changed from one version of the board to the next.
+     */
+    static class Change {
+        private final long version;
+        private final List<String> lines;
+
+        /**
+         * @param version the version of the board these changes led to
+         * @param lines one line per cell or word that changed, in the format of getUpdateSince(); an unmodifiable list
+         */
+        Change(long version, List<String> lines) {
+            this.version = version;
+            this.lines = lines;
+        }
+
+        /**
+         * @return the version of the board these changes led to
+         */
+        long getVersion() {
+            return version;
+        }
+    }
+
+    /**
+     * Make a snapshot of a match. Takes ownership of the arrays, which the caller must never mutate afterwards.
+     * @param template the puzzle being played
+     * @param version the version of the board, >= 0
+     * @param letters the letter shown in each cell of the board, in row-major order
+     * @param wordStates the state of each word as shown on the board, in order of word ID
+     * @param changes the most recent changes to the board, oldest first, ending at version
+     * @param players the players of the match, at most 2
+     * @param scores the score of each player
+     * @param challengePoints the challenge points of each player
+     */
+    MatchSnapshot(PuzzleTemplate template, long version, char[] letters, String[] wordStates, List<Change> changes,
+            List<Player> players, int[] scores, int[] challengePoints) {
+        this(template, version, letters, wordStates, changes, players, scores, challengePoints, null);
+    }
+
+    /**
+     * Make a snapshot of a match whose board text may already be known. Takes ownership of the arrays.
+     * @param board the text of the board shown by letters and wordStates, or null if it hasn't been rendered yet
+     * @see #MatchSnapshot(PuzzleTemplate, long, char[], String[], List, List, int[], int[])
+     */
+    private MatchSnapshot(PuzzleTemplate template, long version, char[] letters, String[] wordStates,
+            List<Change> changes, List<Player> players, int[] scores, int[] challengePoints, String board) {
+        this.template = template;
+        this.version = version;
+        this.letters = letters;
+        this.wordStates = wordStates;
+        this.changes = List.copyOf(changes);
+        this.players = List.copyOf(players);
+        this.scores = scores;
+        this.challengePoints = challengePoints;
+        this.board = board;
+        checkRep();
+    }
+
+    /**
+     * Check the rep invariant
+     */
+    private void checkRep() {
+        assert version >= 0;
+        assert letters.length == template.getRows() * template.getColumns();
+        assert wordStates.length == template.getNumberWords();
+        for (int i = 1; i < changes.size(); i++) {
+            assert changes.get(i).version == changes.get(i - 1).version + 1;
+        }
+        assert changes.isEmpty() || changes.get(changes.size() - 1).version == version;
+        assert players.size() <= 2;
+        assert scores.length == players.size() && challengePoints.length == players.size();
+    }
+
+    /**
+     * Make a snapshot with the same board as this one, and new players and scores
+     * @param newPlayers the players of the match, at most 2
+     * @param newScores the score of each player; owned by the new snapshot
+     * @param newChallengePoints the challenge points of each player; owned by the new snapshot
+     * @return a snapshot of the board of this snapshot, with those players, sharing the text of the board if this
+     *         snapshot has already rendered it
+     */
+    MatchSnapshot withPlayers(List<Player> newPlayers, int[] newScores, int[] newChallengePoints) {
+        return new MatchSnapshot(template, version, letters, wordStates, changes, newPlayers, newScores,
+                newChallengePoints, board);
+    }
+
+    /**
+     * @param currentLetters the letter shown in each cell of a board, in row-major order
+     * @param currentWordStates the state of each word as shown on a board, in order of word ID
+     * @return true iff this snapshot shows exactly that board
+     */
+    boolean showsBoard(char[] currentLetters, String[] currentWordStates) {
+        return Arrays.equals(letters, currentLetters) && Arrays.equals(wordStates, currentWordStates);
+    }
+
+    /**
+     * @return the version of the board in this snapshot; see Match.getVersion()
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the number of players of the match
+     */
+    public int getNumberPlayers() {
+        return players.size();
+    }
+
+    /**
+     * @param player a player of the match
+     * @return the total score of player: the points for confirmed words plus the challenge points
+     * @throws IllegalArgumentException if player is not a player of the match
+     */
+    public int getScore(Player player) {
+        final int index = indexOf(player);
+        return scores[index] + challengePoints[index];
+    }
+
+    /**
+     * @param player a player of the match
+     * @return the challenge points of player
+     * @throws IllegalArgumentException if player is not a player of the match
+     */
+    public int getChallengePoints(Player player) {
+        return challengePoints[indexOf(player)];
+    }
+
+    /**
+     * @param player a player of a match with two players
+     * @return the player of the match that is not player
+     */
+    public Player getOtherPlayer(Player player) {
+        assert players.size() == 2;
+        return players.get(0).equals(player) ? players.get(1) : players.get(0);
+    }
+
+    /**
+     * @param player a player of the match
+     * @return the index of player in players
+     * @throws IllegalArgumentException if player is not a player of the match
+     */
+    private int indexOf(Player player) {
+        final int index = players.indexOf(player);
+        if (index < 0) {
+            throw new IllegalArgumentException("not a player of this match: " + player.getID());
+        }
+        return index;
+    }
+
+    /**
+     * Get what changed on the board since a given version, in the format of Match.getUpdateSince()
+     * @param since the version of the board the client has, or a negative number if it has none
+     * @return a delta from since to the version of this snapshot if the changes since then are still known, otherwise
+     *         a snapshot of the whole board
+     */
+    public String getUpdateSince(long since) {
+        if (since < 0 || since > version || (since < version && changes.get(0).version > since + 1)) {
+            return "snapshot " + version + "\n" + toString();
+        }
+
+        final StringBuilder delta = new StringBuilder();
+        int numberLines = 0;
+        for (Change change : changes) {
+            if (change.version > since) {
+                for (String line : change.lines) {
+                    delta.append(line).append("\n");
+                    numberLines++;
+                }
+            }
+        }
+
+        return "delta " + since + " " + version + "\n" + numberLines + "\n" + delta;
+    }
+
+    /**
+     * @return the board in this snapshot, in the format of Match.toString()
+     */
+    @Override
+    public String toString() {
+        String text = board;
+        if (text == null) {
+            text = renderBoard();
+            board = text;
+        }
+        return text;
+    }
+
+    /**
+     * Build the text of the board, in the format of Match.toString()
+     * @return the board in this snapshot
+     */
+    private String renderBoard() {
+        final int rows = template.getRows();
+        final int columns = template.getColumns();
+        final StringBuilder text = new StringBuilder(rows * (columns + 1) + wordStates.length * BOARD_CHARS_PER_WORD);
+        text.append(rows).append("x").append(columns).append("\n");
+
+        for (int i = 0; i < rows; i++) {
+            text.append(letters, i * columns, columns).append("\n");
+        }
+
+        text.append(wordStates.length).append("\n");
+
+        for (int k = 0; k < wordStates.length; k++) {
+            text.append(template.getStartRow(k)).append(" ").append(template.getStartCol(k)).append(" ")
+                    .append(template.getDirection(k).name()).append(" ").append(wordStates[k]).append("\n");
+            text.append(template.getHint(k)).append("\n");
+        }
+
+        return text.toString();
+    }
+}
@@ -1,5 +1,7 @@
 package crossword;
 
+import java.util.regex.Pattern;
+
 /**
  * An immutable player of memory scramble.
  * Threadsafe.
@@ -17,11 +19,13 @@ public class Player {
     // Thread safety argument:
     //   Player is immutable, and the fields are all final and immutable types, so it is thread safe. (since it cannot be mutated, so we don't risk violating the rep invariant)
     
+    private static final Pattern VALID_ID = Pattern.compile("[a-zA-Z0-9]+");
+    
     private final String id;
 
     /**
      * Construct a new player object.
-     * @param pID the ID of the player
+     * @param pID the ID of the player, must satisfy isValidID()
      */
     public Player(String pID) {
         id = pID;
@@ -30,7 +34,16 @@ public class Player {
     
     private void checkRep() {
         assert id != null;
-        assert id.matches("^[a-zA-Z0-9]+$");
+        assert isValidID(id);
+    }
+    
+    /**
+     * Check whether a string can be the ID of a player
+     * @param pID the string to check
+     * @return true iff pID is not empty, and only contains letters and digits
+     */
+    public static boolean isValidID(String pID) {
+        return VALID_ID.matcher(pID).matches();
     }
     
     /**
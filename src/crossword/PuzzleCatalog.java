@@ -0,0 +1,526 @@
+package crossword;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import edu.mit.eecs.parserlib.UnableToParseException;
+
+/**
+ * In-memory index of the valid puzzles in a folder of puzzle files, kept up to date while the folder changes.
+ * The index holds the name and validity of each puzzle file, and the template of every puzzle it had to parse to check
+ * it. A puzzle that was valid without being parsed (its contents were checked before, or it has a newer compiled
+ * puzzle) is only loaded when a match is first created from it. Either way, a template is kept for the next matches
+ * until the contents of the file change, and a puzzle is never parsed twice for the same contents.
+ * Checking a puzzle means parsing all of it, so the verdict for every contents checked is kept by the hash of the
+ * contents, and can be saved in a manifest file (see PuzzleManifest): a file whose contents were checked before,
+ * even by an earlier server, is only read and hashed.
+ * Threadsafe.
+ */
+public class PuzzleCatalog {
+
+    // Abstraction function:
+    //    AF(folder, index, templates, manifest, watchService, loaded) = the puzzles in the folder folder, where
+    //      index.entries.get(name) describes the last version of the file called name that was checked (its modification
+    //      time and size, the modification time of its compiled file, the hash of its contents, whether it was a valid
+    //      puzzle, and the template parsed to check it, if it was parsed), and index.validPuzzleNames holds the names of all the files that were valid puzzles at the time
+    //      of the last published batch of a refresh. index.checkedContents.get(hash) is true iff the contents with that
+    //      hash are a valid puzzle, for every contents checked so far; if manifest is present, the verdicts are saved in
+    //      it after every refresh that checks new contents.
+    //      templates.get(name), if present, is the template loaded from the version templates.get(name).version (see
+    //      Entry.getVersion()) of the file called name, which its entry had when it was loaded, or holds null if that
+    //      version was not a valid puzzle after all.
+    //      If watchService is present, the folder is being watched, and every change to it triggers a refresh.
+    //      loaded has been counted down iff the first refresh has finished.
+    //
+    // Rep invariant:
+    //    index.validPuzzleNames is exactly the set of names in index.entries whose entry is valid
+    //    for every entry with a hash, index.checkedContents.get(hash) is the validity of the entry
+    //    every entry with a template is valid
+    //    every name in templates is the name of a file that was in the folder as of some refresh
+    //
+    // Safety from rep exposure:
+    //    all fields are private; folder, manifest and refreshLock are final and immutable
+    //    an Index is immutable: its maps and set are unmodifiable copies, which are never mutated
+    //    index.entries and index.checkedContents are never returned or taken in as a parameter; the templates in the
+    //      entries are immutable, so they are shared with every caller of getTemplate()
+    //    index.validPuzzleNames is unmodifiable and never mutated, so it's safe to return it directly
+    //    templates is never returned or taken in as a parameter; the templates in it are immutable, so they are shared
+    //      with every caller of getTemplate()
+    //
+    // Thread safety argument:
+    //    index is volatile and holds an immutable Index, which a refresh replaces as a whole after each batch, so
+    //    readers never need a lock and always see a complete index. A refresh builds the next index in its own maps,
+    //    holding only refreshLock, which serializes refreshes so no published index is lost, and which nothing else
+    //    takes: getValidPuzzleNames(), getTemplate(), checkRep(), startWatching() and stopWatching() never wait for
+    //    a load.
+    //    The files of a batch are loaded by other threads (of the common fork-join pool), which only read their own file
+    //    and an immutable map of the checked contents, and never touch the rep.
+    //    watchService is only accessed in synchronized methods, so it is guarded by this object's lock, which is never
+    //    held while loading.
+    //    getTemplate() only reads index and folder, and the puzzle file itself, and reads and writes templates, a
+    //    concurrent map of immutable values: two threads may load the same version of a puzzle at once, and then both
+    //    store the same template, so either one can be kept. A template is only stored under the version it was read
+    //    from, so a file that changes while it is loaded never leaves a template under the version it had before.
+    //    loaded is a threadsafe latch, and is final.
+
+    private final File folder;
+    private volatile Index index;
+    private final Map<String, CachedTemplate> templates = new ConcurrentHashMap<>();
+    private final File manifest; // null if the checked contents are not saved
+    private final Object refreshLock = new Object();
+    private WatchService watchService;
+    private final CountDownLatch loaded = new CountDownLatch(1);
+
+    private static final int LOAD_BATCH = 256;
+
+    /**
+     * Immutable record of the last checked version of one puzzle file.
+     */
+    private static class Entry {
+        private final long lastModified;
+        private final long size;
+        private final long compiledModified; // 0 if the file has no compiled puzzle
+        private final String hash; // null if the file wasn't read, because it has a newer compiled puzzle or can't be read
+        private final boolean valid;
+        private final PuzzleTemplate template; // null unless the file was parsed to check it, and is valid
+
+        private Entry(long lastModified, long size, long compiledModified, String hash, boolean valid,
+                PuzzleTemplate template) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.compiledModified = compiledModified;
+            this.hash = hash;
+            this.valid = valid;
+            this.template = template;
+        }
+
+        /**
+         * @param previous the entry of an earlier version of the file, or null
+         * @return this entry, with the template of previous if this entry has none, and both are the same contents
+         */
+        private Entry keepingTemplateOf(Entry previous) {
+            if (template != null || previous == null || previous.template == null || hash == null
+                    || !hash.equals(previous.hash)) {
+                return this;
+            }
+            return new Entry(lastModified, size, compiledModified, hash, valid, previous.template);
+        }
+
+        private boolean isCurrent(File file) {
+            return lastModified == file.lastModified() && size == file.length()
+                    && compiledModified == CompiledPuzzle.compiledFileOf(file).lastModified();
+        }
+
+        /**
+         * @return the hash of the contents of the file, or if the file wasn't read, the modification time of its
+         *         compiled puzzle: two versions of a file have the same version iff they hold the same puzzle
+         */
+        private String getVersion() {
+            return hash != null ? hash : "compiled " + compiledModified;
+        }
+    }
+
+    /**
+     * Immutable template loaded from one version of a puzzle file.
+     */
+    private static class CachedTemplate {
+        private final String version; // null if it is not known which version the template was read from
+        private final PuzzleTemplate template; // null if the file was not a valid puzzle after all
+
+        private CachedTemplate(String version, PuzzleTemplate template) {
+            this.version = version;
+            this.template = template;
+        }
+    }
+
+    /**
+     * Immutable state of the catalog as of one published batch of a refresh: the entries of the files checked, the
+     * verdicts for the contents checked, and the names of the valid puzzles among the entries.
+     */
+    private static class Index {
+        private final Map<String, Entry> entries;
+        private final Map<String, Boolean> checkedContents;
+        private final Set<String> validPuzzleNames;
+
+        private Index(Map<String, Entry> entries, Map<String, Boolean> checkedContents) {
+            this.entries = Map.copyOf(entries);
+            this.checkedContents = Map.copyOf(checkedContents);
+            final Set<String> valid = new HashSet<>();
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                if (entry.getValue().valid) {
+                    valid.add(entry.getKey());
+                }
+            }
+            this.validPuzzleNames = Collections.unmodifiableSet(valid);
+        }
+    }
+
+    /**
+     * Create a catalog of the puzzles in a folder, checking every puzzle in it once before returning.
+     * @param folderPath path to the folder that holds the puzzles
+     */
+    public PuzzleCatalog(String folderPath) {
+        this(folderPath, false, null);
+    }
+
+    /**
+     * Create a catalog of the puzzles in a folder, checking every puzzle in it once, without a manifest.
+     * @param folderPath path to the folder that holds the puzzles
+     * @param loadInBackground if false, every puzzle is checked before returning; if true, the puzzles are checked by a
+     *                         new background thread, and the catalog holds the valid puzzles loaded so far until
+     *                         awaitLoaded() returns
+     */
+    public PuzzleCatalog(String folderPath, boolean loadInBackground) {
+        this(folderPath, loadInBackground, null);
+    }
+
+    /**
+     * Create a catalog of the puzzles in a folder, checking every puzzle in it once, unless the manifest says its
+     * contents were already checked.
+     * @param folderPath path to the folder that holds the puzzles
+     * @param loadInBackground if false, every puzzle is checked before returning; if true, the puzzles are checked by a
+     *                         new background thread, and the catalog holds the valid puzzles loaded so far until
+     *                         awaitLoaded() returns
+     * @param manifest manifest file that records the contents already checked, created if it doesn't exist and updated
+     *                 after every refresh; null to check every puzzle. A manifest that cannot be read is reported and
+     *                 replaced.
+     */
+    public PuzzleCatalog(String folderPath, boolean loadInBackground, File manifest) {
+        this.folder = new File(folderPath);
+        this.manifest = manifest;
+
+        Map<String, Boolean> checkedContents = Map.of();
+        if (manifest != null) {
+            try {
+                checkedContents = PuzzleManifest.read(manifest);
+            } catch (IOException e) {
+                System.err.println("cannot read puzzle manifest, checking every puzzle: " + e);
+            }
+        }
+        this.index = new Index(Map.of(), checkedContents);
+
+        if (loadInBackground) {
+            final Thread loadThread = new Thread(() -> {
+                refresh();
+                loaded.countDown();
+            }, "puzzle-catalog-load-" + folder.getName());
+            loadThread.setDaemon(true);
+            loadThread.start();
+        } else {
+            refresh();
+            loaded.countDown();
+        }
+        checkRep();
+    }
+
+    /**
+     * Wait until every puzzle that was in the folder when this catalog was created has been checked
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void awaitLoaded() throws InterruptedException {
+        loaded.await();
+    }
+
+    /**
+     * Check the rep invariant
+     */
+    private void checkRep() {
+        final Index current = index;
+        final Set<String> expected = new HashSet<>();
+        for (Map.Entry<String, Entry> entry : current.entries.entrySet()) {
+            if (entry.getValue().valid) {
+                expected.add(entry.getKey());
+            }
+            if (entry.getValue().hash != null) {
+                assert current.checkedContents.get(entry.getValue().hash) == entry.getValue().valid;
+            }
+            assert entry.getValue().template == null || entry.getValue().valid;
+        }
+        assert expected.equals(current.validPuzzleNames);
+    }
+
+    /**
+     * Get the names of the valid puzzles, as of the last refresh. Never reads from disk.
+     * @return unmodifiable set of the file names of the valid puzzles in the folder
+     */
+    public Set<String> getValidPuzzleNames() {
+        return index.validPuzzleNames;
+    }
+
+    /**
+     * Get the template of a valid puzzle: the one parsed when the puzzle was checked, if it was, otherwise the one
+     * loaded by an earlier call, or else loaded now. The template is kept, and only loaded again once a refresh finds
+     * that the contents of the file changed (by their hash), or that its compiled puzzle changed.
+     * @param puzzleName the file name of the puzzle
+     * @return the template of the puzzle, or null if there was no valid puzzle with that name as of the last refresh,
+     *         or the file is no longer a valid puzzle
+     */
+    public PuzzleTemplate getTemplate(String puzzleName) {
+        final Entry entry = index.entries.get(puzzleName);
+        if (entry == null || !entry.valid) {
+            return null;
+        }
+        if (entry.template != null) {
+            return entry.template;
+        }
+        final String version = entry.getVersion();
+        final CachedTemplate cached = templates.get(puzzleName);
+        if (cached != null && cached.version.equals(version)) {
+            return cached.template;
+        }
+
+        final CachedTemplate loaded = loadTemplate(puzzleName);
+        if (version.equals(loaded.version)) { // otherwise the file changed since the refresh, and the next one reloads it
+            templates.put(puzzleName, loaded);
+        }
+        return loaded.template;
+    }
+
+    /**
+     * Load a puzzle, reading its file again: from its compiled puzzle file if that file is newer than the puzzle
+     * file, otherwise by parsing and checking the puzzle file.
+     * @param puzzleName the file name of the puzzle
+     * @return the template of the puzzle (null if the file is not a valid puzzle), with the version it was read from
+     *         (see Entry.getVersion()), or with a null version if the compiled puzzle changed while it was read
+     */
+    private CachedTemplate loadTemplate(String puzzleName) {
+        final File puzzle = new File(folder, puzzleName);
+        final File compiled = CompiledPuzzle.compiledFileOf(puzzle);
+        final long compiledModified = compiled.lastModified();
+        if (compiledModified > puzzle.lastModified()) {
+            try {
+                final PuzzleTemplate template = CompiledPuzzle.read(compiled);
+                final boolean unchanged = compiled.lastModified() == compiledModified;
+                return new CachedTemplate(unchanged ? "compiled " + compiledModified : null, template);
+            } catch (IOException e) {
+                System.err.println(puzzleName + ": cannot load compiled puzzle, parsing it instead: " + e);
+            }
+        }
+        try {
+            final byte[] contents = Files.readAllBytes(puzzle.toPath());
+            return new CachedTemplate(PuzzleManifest.hash(contents), compileValidPuzzle(puzzleName, contents));
+        } catch (IOException e) {
+            System.err.println(puzzleName + ": cannot read puzzle: " + e);
+            return new CachedTemplate(null, null);
+        }
+    }
+
+    /**
+     * Bring the catalog up to date with the folder. Only files that were added or changed (by modification time or size) since
+     * the last refresh, or whose compiled puzzle changed, are loaded again; removed files are dropped. A loaded file is
+     * only parsed and checked if its contents were never checked before. Compiled puzzle files (see CompiledPuzzle) and
+     * hidden files, whose names start with '.', such as the manifest, are not puzzles.
+     * Files are loaded in parallel, in batches of LOAD_BATCH files, and the valid puzzles are published after every
+     * batch, so readers see the puzzles loaded so far while a large folder is loading. A file that cannot be loaded is
+     * reported and left out, without stopping the others. Waits for a refresh running in another thread to finish
+     * first, but never blocks readers of the catalog.
+     * @return the number of files that were loaded
+     */
+    int refresh() {
+        synchronized (refreshLock) {
+            final int loadedFiles = refreshLocked();
+            checkRep();
+            return loadedFiles;
+        }
+    }
+
+    /**
+     * Refresh the catalog, see refresh(). Must hold refreshLock.
+     * @return the number of files that were loaded
+     */
+    private int refreshLocked() {
+        assert Thread.holdsLock(refreshLock);
+        final Index published = index;
+        final Map<String, Entry> entries = new HashMap<>(published.entries);
+        final Map<String, Boolean> checkedContents = new HashMap<>(published.checkedContents);
+        final File[] files = folder.listFiles();
+        final Set<String> present = new HashSet<>();
+        final List<File> changed = new ArrayList<>();
+
+        for (File puzzle : files == null ? new File[0] : files) {
+            if (!puzzle.isFile() || puzzle.getName().startsWith(".") || CompiledPuzzle.isCompiledFile(puzzle)) {
+                continue;
+            }
+            final String name = puzzle.getName();
+            present.add(name);
+
+            final Entry previous = entries.get(name);
+            if (previous == null || !previous.isCurrent(puzzle)) {
+                changed.add(puzzle);
+            }
+        }
+        entries.keySet().retainAll(present);
+        templates.keySet().retainAll(present);
+
+        boolean checkedNew = false;
+        for (int start = 0; start < changed.size(); start += LOAD_BATCH) {
+            final List<File> batch = changed.subList(start, Math.min(start + LOAD_BATCH, changed.size()));
+            final Map<String, Boolean> checked = index.checkedContents;
+            final List<Entry> loaded = batch.parallelStream().map(puzzle -> load(puzzle, checked))
+                    .collect(Collectors.toList());
+            for (int i = 0; i < batch.size(); i++) {
+                final String name = batch.get(i).getName();
+                // a file whose contents didn't change isn't parsed again, so it keeps the template parsed before
+                final Entry entry = loaded.get(i).keepingTemplateOf(entries.get(name));
+                entries.put(name, entry);
+                if (entry.hash != null && checkedContents.put(entry.hash, entry.valid) == null) {
+                    checkedNew = true;
+                }
+            }
+            index = new Index(entries, checkedContents);
+        }
+        if (changed.isEmpty()) {
+            index = new Index(entries, checkedContents); // files may have been removed
+        }
+        if (checkedNew && manifest != null) {
+            saveManifest(entries);
+        }
+        return changed.size();
+    }
+
+    /**
+     * Save the verdicts for the contents of the files in the folder to the manifest. The verdicts for contents that are
+     * no longer in the folder are not saved, so the manifest doesn't grow forever.
+     * @param entries the entries of the files in the folder
+     */
+    private void saveManifest(Map<String, Entry> entries) {
+        final Map<String, Boolean> current = new HashMap<>();
+        for (Entry entry : entries.values()) {
+            if (entry.hash != null) {
+                current.put(entry.hash, entry.valid);
+            }
+        }
+        try {
+            PuzzleManifest.write(current, manifest);
+        } catch (IOException e) {
+            System.err.println("cannot save puzzle manifest: " + e);
+        }
+    }
+
+    /**
+     * Load one puzzle file into the index. Safe to call from any thread, since it doesn't touch the rep.
+     * A file with a compiled puzzle newer than itself is valid without being read, since only valid puzzles are
+     * compiled; any other file is read and hashed, and only parsed and checked if its hash is not in checked.
+     * @param puzzle the puzzle file to load
+     * @param checked map from the hash of every contents checked so far to true iff it is a valid puzzle
+     * @return entry for the current version of the file, holding the template it was parsed into, if it was parsed
+     *         and is valid
+     */
+    private static Entry load(File puzzle, Map<String, Boolean> checked) {
+        // read the modification time and size before loading, so a change made while loading is seen by the next refresh
+        final long lastModified = puzzle.lastModified();
+        final long size = puzzle.length();
+        final long compiledModified = CompiledPuzzle.compiledFileOf(puzzle).lastModified();
+        if (compiledModified > lastModified) {
+            return new Entry(lastModified, size, compiledModified, null, true, null);
+        }
+
+        try {
+            final byte[] contents = Files.readAllBytes(puzzle.toPath());
+            final String hash = PuzzleManifest.hash(contents);
+            final Boolean known = checked.get(hash);
+            if (known != null) {
+                return new Entry(lastModified, size, compiledModified, hash, known, null);
+            }
+            final PuzzleTemplate template = compileValidPuzzle(puzzle.getName(), contents);
+            return new Entry(lastModified, size, compiledModified, hash, template != null, template);
+        } catch (IOException e) {
+            System.err.println(puzzle.getName() + ": cannot read puzzle: " + e);
+            return new Entry(lastModified, size, compiledModified, null, false, null);
+        }
+    }
+
+    /**
+     * Compile the contents of a file if they hold a valid puzzle, according to the project handout
+     * @param puzzleName the name of the file, to report problems with
+     * @param contents the bytes of the file, which must be UTF-8
+     * @return the compiled puzzle if the contents can be parsed and the puzzle in them is consistent, otherwise null
+     */
+    private static PuzzleTemplate compileValidPuzzle(String puzzleName, byte[] contents) {
+        try {
+            final String text = UTF_8.newDecoder().decode(ByteBuffer.wrap(contents)).toString();
+            final PuzzleTemplate template = PuzzleParser.parse(new StringReader(text));
+            final List<String> conflicts = PuzzleValidator.findConflicts(template);
+            for (String conflict : conflicts) {
+                System.err.println(puzzleName + ": " + conflict);
+            }
+            return conflicts.isEmpty() ? template : null;
+        } catch (UnableToParseException | IOException | RuntimeException e) {
+            System.err.println(puzzleName + ": cannot load puzzle: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Start watching the folder in a new background thread, refreshing the catalog every time a file in the folder
+     * is created, modified, or deleted. Does nothing if the folder is already being watched.
+     * @throws IOException if the folder cannot be watched
+     */
+    public synchronized void startWatching() throws IOException {
+        if (watchService != null) {
+            return;
+        }
+        final WatchService watcher = FileSystems.getDefault().newWatchService();
+        folder.toPath().register(watcher, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        watchService = watcher;
+
+        final Thread watchThread = new Thread(() -> {
+            try {
+                while (true) {
+                    final WatchKey key = watcher.take();
+                    key.pollEvents(); // which files changed doesn't matter, refresh() finds them from their size and time
+                    refresh();
+                    if (!key.reset()) {
+                        return; // the folder is no longer accessible
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return; // stopWatching() was called
+            }
+        }, "puzzle-catalog-" + folder.getName());
+        watchThread.setDaemon(true);
+        watchThread.start();
+
+        checkRep();
+    }
+
+    /**
+     * Stop watching the folder. The catalog keeps the puzzles it knows about, but no longer changes on its own.
+     */
+    public synchronized void stopWatching() {
+        if (watchService == null) {
+            return;
+        }
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        watchService = null;
+
+        checkRep();
+    }
+}
@@ -0,0 +1,117 @@
+package crossword;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Persistent record of the puzzle contents that have already been checked, so a puzzle file whose contents haven't
+ * changed is never parsed and checked again, even after a restart. Contents are identified by their SHA-256 hash.
+ *
+ * A manifest is a UTF-8 text file made of the line HEADER, then one line per checked contents:
+ *
+ *      HASH VERDICT
+ *
+ * where HASH is the hash of the contents in lowercase hexadecimal, and VERDICT is "valid" if the contents are a valid
+ * puzzle and "invalid" otherwise. The format version in HEADER changes whenever the rules for a valid puzzle change, so
+ * verdicts made by older rules are never trusted.
+ */
+public class PuzzleManifest {
+
+    /** suggested name for a manifest file; hidden, so a manifest kept in a puzzle folder is never taken for a puzzle */
+    public static final String FILE_NAME = ".puzzles.manifest";
+
+    private static final String HEADER = "puzzle-manifest 1";
+    private static final String VALID = "valid";
+    private static final String INVALID = "invalid";
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private PuzzleManifest() {
+        throw new AssertionError("not instantiable");
+    }
+
+    /**
+     * @param contents the bytes of a puzzle file
+     * @return the SHA-256 hash of contents, in lowercase hexadecimal
+     */
+    public static String hash(byte[] contents) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("every Java platform supports " + HASH_ALGORITHM, e);
+        }
+
+        final StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest(contents)) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Read a manifest
+     * @param manifest the manifest file
+     * @return map from the hash of every checked contents in the manifest to true iff those contents are a valid
+     *         puzzle; empty if the file doesn't exist
+     * @throws IOException if the file cannot be read, or is not a manifest in this format
+     */
+    public static Map<String, Boolean> read(File manifest) throws IOException {
+        final List<String> lines;
+        try {
+            lines = Files.readAllLines(manifest.toPath(), UTF_8);
+        } catch (NoSuchFileException e) {
+            return new HashMap<>();
+        }
+        if (lines.isEmpty() || !lines.get(0).equals(HEADER)) {
+            throw new IOException("not a puzzle manifest in this format: " + manifest);
+        }
+
+        final Map<String, Boolean> checked = new HashMap<>();
+        for (String line : lines.subList(1, lines.size())) {
+            final String[] fields = line.split(" ");
+            if (fields.length != 2 || !(fields[1].equals(VALID) || fields[1].equals(INVALID))) {
+                throw new IOException("corrupt puzzle manifest: " + manifest);
+            }
+            checked.put(fields[0], fields[1].equals(VALID));
+        }
+        return checked;
+    }
+
+    /**
+     * Write a manifest. The file is replaced as a whole, so a reader never sees it half written.
+     * @param checked map from the hash of checked contents, as returned by hash(), to true iff those contents are a
+     *                valid puzzle
+     * @param manifest file to write the manifest to
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Map<String, Boolean> checked, File manifest) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        for (Map.Entry<String, Boolean> entry : new TreeMap<>(checked).entrySet()) {
+            lines.add(entry.getKey() + " " + (entry.getValue() ? VALID : INVALID));
+        }
+
+        final Path target = manifest.toPath();
+        // the temporary file is hidden too, so a catalog watching the folder never takes it for a puzzle
+        final Path temporary = Files.createTempFile(target.toAbsolutePath().getParent(), "." + manifest.getName(), ".tmp");
+        try {
+            Files.write(temporary, lines, UTF_8);
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package crossword;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.mit.eecs.parserlib.UnableToParseException;
+
+/**
+ * Single-pass parser for puzzle files, in the language of PuzzleGrammar.g:
+ *
+ *      FILE ::= ">>" NAME DESCRIPTION ENTRY*
+ *      ENTRY ::= "(" WORDNAME "," CLUE "," DIRECTION "," ROW "," COL ")"
+ *
+ * where whitespace (space, tab, \r, \n) and comments ("//" to the end of the line) can appear between any two tokens
+ * and between the letters of a WORDNAME, NAME is a quoted string without tabs or backslashes, DESCRIPTION and CLUE are
+ * quoted strings that can hold the escapes \\ \n \r \t, WORDNAME is made of lowercase letters and hyphens, DIRECTION is
+ * ACROSS or DOWN, and ROW and COL are non-negative integers. No string can hold a newline.
+ *
+ * Reads one character at a time from its reader and never builds a parse tree: the name and description are read when
+ * the parser is created, then each entry is read by nextEntry(). Names, descriptions, and clues are returned with their
+ * quotes, and escapes are kept as written; whitespace and comments are never part of a returned value.
+ * Not threadsafe: each parser must be confined to one thread.
+ */
+public class PuzzleParser {
+
+    // Abstraction function:
+    //    AF(in, next, line, name, description, finished) = a parser that has read the header of a puzzle, called name and
+    //      described by description, from in, and all of its entries up to the character next (or the end of in, if
+    //      next is END), which is on line line of the file. finished is true iff every entry has been read.
+    //
+    // Rep invariant:
+    //    line >= 1
+    //    name and description start and end with '"'
+    //
+    // Safety from rep exposure:
+    //    all fields are private; name and description are immutable Strings
+    //    in is given to us by the client to be read, so keeping a reference to it is not rep exposure
+    //
+    // Thread safety argument:
+    //    not threadsafe, see the class spec
+
+    private static final int END = -1;
+    private static final String DIRECTION_ACROSS = "ACROSS";
+    private static final String DIRECTION_DOWN = "DOWN";
+
+    private final Reader in;
+    private int next;
+    private int line = 1;
+    private final String name;
+    private final String description;
+    private boolean finished;
+
+    /**
+     * Start parsing a puzzle, reading its name and description
+     * @param in the puzzle to parse; read one character at a time, so it should be buffered
+     * @throws UnableToParseException if the puzzle doesn't start with a valid header
+     * @throws IOException if in cannot be read
+     */
+    public PuzzleParser(Reader in) throws UnableToParseException, IOException {
+        this.in = in;
+        this.next = in.read();
+
+        skip();
+        expect('>');
+        expect('>');
+        skip();
+        this.name = readString(false);
+        skip();
+        this.description = readString(true);
+        skip();
+        checkRep();
+    }
+
+    /**
+     * Check the rep invariant
+     */
+    private void checkRep() {
+        assert line >= 1;
+        assert name.length() >= 2 && name.charAt(0) == '"' && name.charAt(name.length() - 1) == '"';
+        assert description.length() >= 2 && description.charAt(0) == '"'
+                && description.charAt(description.length() - 1) == '"';
+    }
+
+    /**
+     * Parse a whole puzzle file
+     * @param puzzle the file to parse, in UTF-8
+     * @return the compiled puzzle
+     * @throws UnableToParseException if the file is not a valid puzzle file
+     * @throws IOException if the file cannot be read
+     */
+    public static PuzzleTemplate parse(File puzzle) throws UnableToParseException, IOException {
+        try (BufferedReader reader = Files.newBufferedReader(puzzle.toPath(), UTF_8)) {
+            return parse(reader);
+        }
+    }
+
+    /**
+     * Parse a whole puzzle
+     * @param in the puzzle to parse; read one character at a time, so it should be buffered
+     * @return the compiled puzzle
+     * @throws UnableToParseException if in doesn't hold a valid puzzle
+     * @throws IOException if in cannot be read
+     */
+    public static PuzzleTemplate parse(Reader in) throws UnableToParseException, IOException {
+        final PuzzleParser parser = new PuzzleParser(in);
+        final List<WordTuple> words = new ArrayList<>();
+        for (WordTuple word = parser.nextEntry(); word != null; word = parser.nextEntry()) {
+            words.add(word);
+        }
+        return new PuzzleTemplate(parser.getName(), parser.getDescription(), words);
+    }
+
+    /**
+     * @return the name of the puzzle, with its quotes
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the description of the puzzle, with its quotes, and escapes as written
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Read the next entry of the puzzle
+     * @return the next entry, with its clue in quotes and escapes as written, or null if every entry has been read and
+     *         the rest of the puzzle is only whitespace and comments
+     * @throws UnableToParseException if the next entry is not valid, or something other than an entry follows
+     * @throws IOException if the puzzle cannot be read
+     */
+    public WordTuple nextEntry() throws UnableToParseException, IOException {
+        if (finished || next == END) {
+            finished = true;
+            return null;
+        }
+
+        expect('(');
+        skip();
+        final String word = readWordName();
+        expect(',');
+        skip();
+        final String clue = readString(true);
+        skip();
+        expect(',');
+        skip();
+        final String direction = readDirection();
+        skip();
+        expect(',');
+        skip();
+        final int row = readInt();
+        skip();
+        expect(',');
+        skip();
+        final int col = readInt();
+        skip();
+        expect(')');
+        skip();
+
+        return new WordTuple(row, col, clue, word, direction);
+    }
+
+    /**
+     * Move on to the next character
+     * @throws IOException if in cannot be read
+     */
+    private void advance() throws IOException {
+        if (next == '\n') {
+            line++;
+        }
+        next = in.read();
+    }
+
+    /**
+     * Skip any whitespace and comments
+     * @throws UnableToParseException if a '/' doesn't start a comment
+     * @throws IOException if in cannot be read
+     */
+    private void skip() throws UnableToParseException, IOException {
+        while (true) {
+            if (next == ' ' || next == '\t' || next == '\r' || next == '\n') {
+                advance();
+            } else if (next == '/') {
+                advance();
+                expect('/');
+                while (next != '\r' && next != '\n' && next != END) {
+                    advance();
+                }
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Read one character, which must be c
+     * @param c the expected character
+     * @throws UnableToParseException if the next character is not c
+     * @throws IOException if in cannot be read
+     */
+    private void expect(char c) throws UnableToParseException, IOException {
+        if (next != c) {
+            throw error("expected '" + c + "'");
+        }
+        advance();
+    }
+
+    /**
+     * Read a quoted string
+     * @param escapes true to read a DESCRIPTION or CLUE, which can hold tabs and escapes; false to read a NAME, which can
+     *                hold neither
+     * @return the string, with its quotes, and escapes as written
+     * @throws UnableToParseException if the next token is not such a string
+     * @throws IOException if in cannot be read
+     */
+    private String readString(boolean escapes) throws UnableToParseException, IOException {
+        final StringBuilder string = new StringBuilder();
+        expect('"');
+        string.append('"');
+
+        while (next != '"') {
+            if (next == END || next == '\r' || next == '\n' || (!escapes && next == '\t')) {
+                throw error("unterminated string");
+            }
+            if (next == '\\') {
+                if (!escapes) {
+                    throw error("backslash in name");
+                }
+                string.append('\\');
+                advance();
+                if (next != '\\' && next != 'n' && next != 'r' && next != 't') {
+                    throw error("invalid escape");
+                }
+            }
+            string.append((char) next);
+            advance();
+        }
+
+        advance();
+        return string.append('"').toString();
+    }
+
+    /**
+     * Read a WORDNAME, skipping any whitespace and comments between its letters and after it
+     * @return the letters and hyphens of the word, without whitespace or comments
+     * @throws UnableToParseException if the next token is not a WORDNAME
+     * @throws IOException if in cannot be read
+     */
+    private String readWordName() throws UnableToParseException, IOException {
+        final StringBuilder word = new StringBuilder();
+        while ((next >= 'a' && next <= 'z') || next == '-') {
+            word.append((char) next);
+            advance();
+            skip();
+        }
+        if (word.length() == 0) {
+            throw error("expected a word");
+        }
+        return word.toString();
+    }
+
+    /**
+     * Read a DIRECTION
+     * @return "ACROSS" or "DOWN"
+     * @throws UnableToParseException if the next token is not a direction
+     * @throws IOException if in cannot be read
+     */
+    private String readDirection() throws UnableToParseException, IOException {
+        final String direction = next == 'A' ? DIRECTION_ACROSS : DIRECTION_DOWN;
+        for (int i = 0; i < direction.length(); i++) {
+            if (next != direction.charAt(i)) {
+                throw error("expected " + DIRECTION_ACROSS + " or " + DIRECTION_DOWN);
+            }
+            advance();
+        }
+        return direction;
+    }
+
+    /**
+     * Read a ROW or COL
+     * @return the value of the integer
+     * @throws UnableToParseException if the next token is not an integer, or is too large for an int
+     * @throws IOException if in cannot be read
+     */
+    private int readInt() throws UnableToParseException, IOException {
+        long value = 0;
+        int digits = 0;
+        while (next >= '0' && next <= '9') {
+            value = value * 10 + (next - '0');
+            if (value > Integer.MAX_VALUE) {
+                throw error("integer too large");
+            }
+            digits++;
+            advance();
+        }
+        if (digits == 0) {
+            throw error("expected an integer");
+        }
+        return (int) value;
+    }
+
+    /**
+     * @param problem what is wrong with the input
+     * @return exception describing the problem, the line it is on, and the character found there
+     */
+    private UnableToParseException error(String problem) {
+        final String found = next == END ? "end of file" : "'" + (char) next + "'";
+        return new UnableToParseException(problem + " on line " + line + ", found " + found);
+    }
+}
@@ -0,0 +1,349 @@
+package crossword;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import crossword.Word.Direction;
+
+/**
+ * Immutable compiled puzzle: the static data of a crossword puzzle (its name, description, hints, answers, and
+ * geometry) that is shared by every Match played on that puzzle.
+ * Threadsafe.
+ */
+public class PuzzleTemplate {
+
+    // Abstraction function:
+    //    AF(name, description, startRows, startCols, directions, hints, answers, rows, columns, present, moveWords,
+    //       moveLocks, moveCells, allWords, presentCells) =
+    //      The rows x columns crossword puzzle called name, described by description, with answers.length words. The word
+    //      with ID i+1 has the correct value answers[i] (in lowercase) and the hint hints[i], and starts at the cell
+    //      [startRows[i], startCols[i]] going in the direction directions[i]. The cell [r, c] is part of some word on the
+    //      puzzle iff bit r * columns + c of present is set.
+    //      For the word with index k, moveWords[k] holds the indices of word k and of every word that shares a cell with
+    //      it, moveCells[k] the indices (r * columns + c) of every cell of those words, and moveLocks[k] the words in
+    //      moveWords[k] and every word that shares a cell with one of them: the words a try on word k can change, the
+    //      cells it can change, and the words it must lock (see Match). allWords holds 0 to answers.length-1, and
+    //      presentCells the index of every cell that is part of the puzzle.
+    //
+    // Rep invariant:
+    //    startRows, startCols, directions, hints, and answers all have the same length
+    //    startRows[i] >= 0 and startCols[i] >= 0
+    //    rows and columns are exactly large enough to hold every word
+    //    present has no bit set at or past rows * columns, and bit r * columns + c is set iff some word covers the cell [r, c]
+    //    moveWords, moveLocks and moveCells have one array per word, and every array of indices is in ascending order
+    //
+    // Safety from rep exposure:
+    //    all fields are private and final
+    //    the arrays and present are created in the constructor, or handed over by a caller that keeps no reference to them,
+    //      and never returned; observers only return single elements, which are immutable values, except for the arrays
+    //      of word and cell indices, which are only returned to Match, in this package, which never mutates them
+    //
+    // Thread safety argument:
+    //    This type is immutable: its fields are final, and the arrays and present are filled in by the constructor and never
+    //    mutated afterward, so it can be shared by any number of threads. The tables of word and cell indices are computed
+    //    once here, so every match of the puzzle shares them.
+
+    private final String name;
+    private final String description;
+    private final int[] startRows;
+    private final int[] startCols;
+    private final Direction[] directions;
+    private final String[] hints;
+    private final String[] answers;
+    private final int rows;
+    private final int columns;
+    private final BitSet present;
+    private final int[][] moveWords;
+    private final int[][] moveLocks;
+    private final int[][] moveCells;
+    private final int[] allWords;
+    private final int[] presentCells;
+
+    /**
+     * Compile a puzzle template
+     * @param name the name of the puzzle
+     * @param description the description of the puzzle
+     * @param wordTuples the words of the puzzle, where the i-th tuple becomes the word with ID i+1
+     */
+    public PuzzleTemplate(String name, String description, List<WordTuple> wordTuples) {
+        this(name, description,
+                wordTuples.stream().mapToInt(WordTuple::getRow).toArray(),
+                wordTuples.stream().mapToInt(WordTuple::getCol).toArray(),
+                wordTuples.stream().map(wordTuple -> wordTuple.getDirection().equals("ACROSS") ? Direction.ACROSS : Direction.DOWN)
+                        .toArray(Direction[]::new),
+                wordTuples.stream().map(WordTuple::getHint).toArray(String[]::new),
+                wordTuples.stream().map(wordTuple -> wordTuple.getWord().toLowerCase()).toArray(String[]::new));
+    }
+
+    /**
+     * Make a puzzle template from the arrays of its words, taking ownership of them. Used to load compiled puzzles.
+     * @param name the name of the puzzle
+     * @param description the description of the puzzle
+     * @param startRows startRows[i] is the starting row of the word with ID i+1, >= 0
+     * @param startCols starting columns of the words, >= 0, same length as startRows
+     * @param directions directions of the words, same length as startRows
+     * @param hints hints of the words, same length as startRows
+     * @param answers correct values of the words, in lowercase, same length as startRows
+     */
+    PuzzleTemplate(String name, String description, int[] startRows, int[] startCols, Direction[] directions,
+            String[] hints, String[] answers) {
+        this.name = name;
+        this.description = description;
+        this.startRows = startRows;
+        this.startCols = startCols;
+        this.directions = directions;
+        this.hints = hints;
+        this.answers = answers;
+        final int numWords = answers.length;
+
+        int maxRow = 0;
+        int maxColumn = 0;
+
+        for (int i = 0; i < numWords; i++) {
+            maxRow = Math.max(maxRow, getRowUpperBound(i) + 1);
+            maxColumn = Math.max(maxColumn, getColumnUpperBound(i) + 1);
+        }
+
+        this.rows = maxRow;
+        this.columns = maxColumn;
+        this.present = new BitSet(rows * columns);
+
+        for (int i = 0; i < numWords; i++) {
+            for (int row = startRows[i]; row <= getRowUpperBound(i); row++) {
+                for (int col = startCols[i]; col <= getColumnUpperBound(i); col++) {
+                    present.set(row * columns + col);
+                }
+            }
+        }
+
+        // the cells of each word, and the words of each cell, by index
+        final int[][] wordCells = new int[numWords][];
+        final int[] wordsPerCell = new int[rows * columns];
+        for (int i = 0; i < numWords; i++) {
+            wordCells[i] = new int[answers[i].length()];
+            final int step = directions[i] == Direction.ACROSS ? 1 : columns;
+            for (int letter = 0; letter < wordCells[i].length; letter++) {
+                wordCells[i][letter] = startRows[i] * columns + startCols[i] + letter * step;
+                wordsPerCell[wordCells[i][letter]]++;
+            }
+        }
+        final int[][] cellWords = new int[rows * columns][];
+        for (int cell = 0; cell < cellWords.length; cell++) {
+            cellWords[cell] = new int[wordsPerCell[cell]];
+            wordsPerCell[cell] = 0;
+        }
+        for (int i = 0; i < numWords; i++) {
+            for (int cell : wordCells[i]) {
+                cellWords[cell][wordsPerCell[cell]++] = i;
+            }
+        }
+
+        this.moveWords = new int[numWords][];
+        this.moveLocks = new int[numWords][];
+        this.moveCells = new int[numWords][];
+        this.allWords = new int[numWords];
+        for (int k = 0; k < numWords; k++) {
+            moveWords[k] = crossingWords(new int[] {k}, wordCells, cellWords);
+            moveLocks[k] = crossingWords(moveWords[k], wordCells, cellWords);
+            moveCells[k] = Arrays.stream(moveWords[k]).flatMap(word -> Arrays.stream(wordCells[word]))
+                    .distinct().sorted().toArray();
+            allWords[k] = k;
+        }
+        this.presentCells = present.stream().toArray();
+
+        checkRep();
+    }
+
+    /**
+     * Check the rep invariant
+     */
+    private void checkRep() {
+        assert startCols.length == startRows.length;
+        assert directions.length == startRows.length;
+        assert hints.length == startRows.length;
+        assert answers.length == startRows.length;
+        assert present.length() <= rows * columns;
+
+        for (int i = 0; i < startRows.length; i++) {
+            assert startRows[i] >= 0 && startCols[i] >= 0;
+            assert getRowUpperBound(i) < rows && getColumnUpperBound(i) < columns;
+        }
+
+        assert moveWords.length == answers.length && moveLocks.length == answers.length
+                && moveCells.length == answers.length && allWords.length == answers.length;
+        for (int k = 0; k < answers.length; k++) {
+            assert isAscending(moveWords[k]) && isAscending(moveLocks[k]) && isAscending(moveCells[k]);
+        }
+        assert presentCells.length == present.cardinality();
+    }
+
+    /**
+     * @param indices array of indices
+     * @return true iff indices is in strictly ascending order
+     */
+    private static boolean isAscending(int[] indices) {
+        for (int i = 1; i < indices.length; i++) {
+            if (indices[i - 1] >= indices[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param wordIndices indices of some words of the puzzle
+     * @param wordCells the indices of the cells of each word of the puzzle
+     * @param cellWords the indices of the words of each cell of the puzzle
+     * @return the indices of the words in wordIndices and of every word that shares a cell with one of them, in
+     *         ascending order
+     */
+    private static int[] crossingWords(int[] wordIndices, int[][] wordCells, int[][] cellWords) {
+        final IntStream crossing = Arrays.stream(wordIndices).flatMap(word -> Arrays.stream(wordCells[word]))
+                .flatMap(cell -> Arrays.stream(cellWords[cell]));
+        return IntStream.concat(Arrays.stream(wordIndices), crossing).distinct().sorted().toArray();
+    }
+
+    /**
+     * @return the name of the puzzle
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the description of the puzzle
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @return the number of words on the puzzle
+     */
+    public int getNumberWords() {
+        return answers.length;
+    }
+
+    /**
+     * @return the number of rows of the puzzle
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of columns of the puzzle
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @param row the row of the cell, 0 <= row < getRows()
+     * @param col the column of the cell, 0 <= col < getColumns()
+     * @return true iff the cell [row, col] is part of some word on the puzzle
+     */
+    public boolean isPresent(int row, int col) {
+        return present.get(row * columns + col);
+    }
+
+    /**
+     * @param index the index of the word, which has the ID index+1, 0 <= index < getNumberWords()
+     * @return the row of the starting point of the word
+     */
+    public int getStartRow(int index) {
+        return startRows[index];
+    }
+
+    /**
+     * @param index the index of the word, which has the ID index+1, 0 <= index < getNumberWords()
+     * @return the column of the starting point of the word
+     */
+    public int getStartCol(int index) {
+        return startCols[index];
+    }
+
+    /**
+     * @param index the index of the word, which has the ID index+1, 0 <= index < getNumberWords()
+     * @return the direction of the word
+     */
+    public Direction getDirection(int index) {
+        return directions[index];
+    }
+
+    /**
+     * @param index the index of the word, which has the ID index+1, 0 <= index < getNumberWords()
+     * @return the hint of the word
+     */
+    public String getHint(int index) {
+        return hints[index];
+    }
+
+    /**
+     * @param index the index of the word, which has the ID index+1, 0 <= index < getNumberWords()
+     * @return the correct value of the word, in lowercase
+     */
+    public String getAnswer(int index) {
+        return answers[index];
+    }
+
+    /**
+     * @param index the index of the word, which has the ID index+1, 0 <= index < getNumberWords()
+     * @return the indices of the word and of every word that shares a cell with it, in ascending order: the words a
+     *         try on the word can change. Shared by every match of this puzzle, so it must not be mutated.
+     */
+    int[] getMoveWords(int index) {
+        return moveWords[index];
+    }
+
+    /**
+     * @param index the index of the word, which has the ID index+1, 0 <= index < getNumberWords()
+     * @return the indices of the words in getMoveWords(index) and of every word that shares a cell with one of them,
+     *         in ascending order: the words a try on the word must lock. Must not be mutated.
+     */
+    int[] getMoveLocks(int index) {
+        return moveLocks[index];
+    }
+
+    /**
+     * @param index the index of the word, which has the ID index+1, 0 <= index < getNumberWords()
+     * @return the indices (row * getColumns() + column) of every cell of the words in getMoveWords(index), in
+     *         ascending order: the cells a try on the word can change. Must not be mutated.
+     */
+    int[] getMoveCells(int index) {
+        return moveCells[index];
+    }
+
+    /**
+     * @return the indices of every word of the puzzle, 0 to getNumberWords()-1, in ascending order. Must not be mutated.
+     */
+    int[] getAllWords() {
+        return allWords;
+    }
+
+    /**
+     * @return the indices (row * getColumns() + column) of every cell that is part of the puzzle, in ascending order.
+     *         Must not be mutated.
+     */
+    int[] getPresentCells() {
+        return presentCells;
+    }
+
+    /**
+     * @param index the index of the word, which has the ID index+1, 0 <= index < getNumberWords()
+     * @return the largest row index that the word covers
+     */
+    private int getRowUpperBound(int index) {
+        return directions[index] == Direction.DOWN ? startRows[index] + answers[index].length() - 1 : startRows[index];
+    }
+
+    /**
+     * @param index the index of the word, which has the ID index+1, 0 <= index < getNumberWords()
+     * @return the largest column index that the word covers
+     */
+    private int getColumnUpperBound(int index) {
+        return directions[index] == Direction.ACROSS ? startCols[index] + answers[index].length() - 1 : startCols[index];
+    }
+}
@@ -0,0 +1,94 @@
+package crossword;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import crossword.Word.Direction;
+
+/**
+ * Checks whether a puzzle is consistent according to the project handout, and finds the entries that make it
+ * inconsistent. A puzzle is consistent iff every answer is unique, no two entries in the same direction share a cell,
+ * and entries in different directions that share a cell agree on its letter.
+ *
+ * Every letter of every entry is placed once on a grid keyed by its cell, so checking a puzzle takes time linear in its
+ * total number of letters, instead of comparing every pair of entries.
+ */
+public class PuzzleValidator {
+
+    private PuzzleValidator() {
+        throw new AssertionError("not instantiable");
+    }
+
+    /**
+     * Check whether a puzzle is consistent
+     * @param template the puzzle to check
+     * @return true iff findConflicts(template) is empty
+     */
+    public static boolean isConsistent(PuzzleTemplate template) {
+        return findConflicts(template).isEmpty();
+    }
+
+    /**
+     * Find the entries that make a puzzle inconsistent. Entries are named by their word IDs, which follow the order
+     * of the puzzle file, starting at 1.
+     * @param template the puzzle to check
+     * @return unmodifiable list of conflicts, empty iff the puzzle is consistent, one per line in the following formats:
+     *      "entries i and j have the same answer ANSWER"
+     *      "entries i and j overlap in the same direction at ROW COL"
+     *      "entries i and j cross at ROW COL with different letters X and Y"
+     *      where i < j. Each pair of entries is reported at most once per kind of conflict. If several entries share a
+     *      cell in the same direction, each of them is reported with the first one placed on that cell.
+     */
+    public static List<String> findConflicts(PuzzleTemplate template) {
+        final List<String> conflicts = new ArrayList<>();
+        final Map<String, Integer> answers = new HashMap<>();
+        final Map<Long, Integer> across = new HashMap<>();
+        final Map<Long, Integer> down = new HashMap<>();
+
+        for (int index = 0; index < template.getNumberWords(); index++) {
+            final String answer = template.getAnswer(index);
+            final Integer sameAnswer = answers.putIfAbsent(answer, index);
+            if (sameAnswer != null) {
+                conflicts.add("entries " + (sameAnswer + 1) + " and " + (index + 1) + " have the same answer " + answer);
+            }
+
+            final boolean isAcross = template.getDirection(index) == Direction.ACROSS;
+            final Map<Long, Integer> sameDirection = isAcross ? across : down;
+            final Map<Long, Integer> otherDirection = isAcross ? down : across;
+            Set<Integer> overlapping = Collections.emptySet(); // report each overlapping entry once, not once per shared cell
+
+            for (int i = 0; i < answer.length(); i++) {
+                final int row = template.getStartRow(index) + (isAcross ? 0 : i);
+                final int col = template.getStartCol(index) + (isAcross ? i : 0);
+                final long cell = ((long) row << Integer.SIZE) | col;
+
+                final Integer overlap = sameDirection.putIfAbsent(cell, index);
+                if (overlap != null && !overlapping.contains(overlap)) {
+                    conflicts.add("entries " + (overlap + 1) + " and " + (index + 1) + " overlap in the same direction at "
+                            + row + " " + col);
+                    if (overlapping.isEmpty()) {
+                        overlapping = new HashSet<>();
+                    }
+                    overlapping.add(overlap);
+                }
+
+                final Integer crossing = otherDirection.get(cell);
+                if (crossing != null) {
+                    final int offset = isAcross ? row - template.getStartRow(crossing) : col - template.getStartCol(crossing);
+                    final char crossingLetter = template.getAnswer(crossing).charAt(offset);
+                    if (crossingLetter != answer.charAt(i)) {
+                        conflicts.add("entries " + (crossing + 1) + " and " + (index + 1) + " cross at " + row + " " + col
+                                + " with different letters " + crossingLetter + " and " + answer.charAt(i));
+                    }
+                }
+            }
+        }
+
+        return Collections.unmodifiableList(conflicts);
+    }
+}
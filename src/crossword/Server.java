@@ -8,16 +8,20 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
 import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 import com.sun.net.httpserver.Filter;
 import com.sun.net.httpserver.HttpContext;
@@ -27,10 +31,11 @@ import com.sun.net.httpserver.HttpServer;
 
 import crossword.Word.ChallengeResult;
 import crossword.Word.TryResult;
+import crossword.web.EventStream;
 import crossword.web.ExceptionsFilter;
 import crossword.web.HeadersFilter;
 import crossword.web.LogFilter;
-import edu.mit.eecs.parserlib.ParseTree;
+import crossword.web.WriteTimeout;
 import edu.mit.eecs.parserlib.Parser;
 import edu.mit.eecs.parserlib.UnableToParseException;
 
@@ -38,9 +43,12 @@ import edu.mit.eecs.parserlib.UnableToParseException;
 /*
  * Concurrency design:
  * 
- * Synchronize every non-static method on a lock of the Server rep. This way, only one thread can change/access our rep 
- * data at a time. if we didn't do this, then there could be a lot of interleaving and potential overwriting of changed
- * reps.
+ * The registries of the Server rep are concurrent maps/sets, so single lookups and updates never need a lock. Compound
+ * changes to the lobby (the matches waiting for a second player) are guarded by lobbyLock, and moves within a match are
+ * guarded only by that Match's own lock. This way, moves in different matches never wait on each other, and only
+ * creating/joining/leaving a waiting match is serialized server-wide.
+ * 
+ * Lock hierarchy: lobbyLock, then Match. A thread holding a Match lock never tries to acquire lobbyLock.
  * 
  */
 
@@ -51,24 +59,40 @@ public class Server {
     
     private final HttpServer server;
     private final String folderPath;
-    private Set<String> validPuzzleNames;
-    private final Set<Player> allPlayers;
+    private final ReentrantLock lobbyLock = new ReentrantLock();
+    private final PuzzleCatalog puzzleCatalog;
+    private final Map<String, Player> allPlayers;
     private final Map<String, String> mapIDToDescription;
     private final Map<String, Match> mapIDToMatch;
     private final Map<String, Match> twoPlayerMatches;
     private final Map<String, String> mapIDToWinners;
+    private final BoardWatchers boardWatchers;
+    private final ExecutorService executor;
+    private final Set<QueuedStream> lobbyStreams;
+    private final WriteTimeout writeTimeout;
+    private volatile long lobbyVersion;
+    private volatile LobbySnapshot lobbySnapshot;
+    private CompletableFuture<Void> nextLobbyChange;
     
     
     private static final int THIRD_INDEX = 3;
-    private static final int FOURTH_INDEX = 4;
+    private static final int WATCHER_THREADS = 2;
+    private static final int DEFAULT_POOL_THREADS = 64;
+    private static final int DEFAULT_POOL_QUEUE = 1024;
+    private static final long DEFAULT_WRITE_TIMEOUT_MILLIS = 10_000;
+    private static final String EXECUTOR_FLAG = "--executor=";
+    private static final String MANIFEST_FLAG = "--manifest=";
+    private static final String SINCE_PARAMETER = "since=";
     
     
     /*
      * Abstraction Function:
-     * AF(server, folderPath, validPuzzleNames, allPlayers, mapIDToDescription, mapIDToMatch, twoPlayerMatches, mapIDToWinners) =
+     * AF(server, folderPath, puzzleCatalog, allPlayers, mapIDToDescription, mapIDToMatch, twoPlayerMatches, mapIDToWinners,
+     *    boardWatchers, lobbyStreams, lobbyVersion, lobbySnapshot) =
      *  Server that is hosted on server, using path folderPath as the folder to read puzzles from. Puzzles that are valid
-     *  puzzles (according to project handout) have IDs in validPuzzleNames. All the players that are currently playing are
-     *  stored in allPlayers. The server contains a map mapIDToDescription mapping match ID's to the match description,
+     *  puzzles (according to project handout) have IDs in puzzleCatalog.getValidPuzzleNames(). All the players that are currently playing are
+     *  stored in allPlayers, which maps the ID of each of them to the one Player object that stands for that player.
+     *  The server contains a map mapIDToDescription mapping match ID's to the match description,
      *  where these matches only have one player and are waiting for another. In other words, mapIDToDescription.get(s) is the description
      *  of the match with ID s. The server also has a map mapIDToMatch that maps match IDs to actual matches 
      *  (these matches also have only one player). In other words, mapIDToMatch.get(s) is the Match object for match with ID s. 
@@ -76,19 +100,27 @@ public class Server {
      *  Any matches that has finished/terminated has its map ID in mapIDToWinner, where values are the players who are the most recent
      *      winners of that match, so mapIDToWinner.get(s) is the ID of the player that won the match with ID s. By most recent winner,
      *      this means the winner of the most recent time the matchID was used for a match (matchIDs can be recycled after termination).
+     *  Clients waiting for the board of a match to change are registered in boardWatchers (including the clients streaming a
+     *  board), and the event streams of clients streaming the list of matches are in lobbyStreams.
+     *  lobbyVersion counts the changes made to the matches that can be joined, and lobbySnapshot is the serialized lobby at
+     *  some version, which is reused for as long as lobbyVersion and the valid puzzles stay the same. nextLobbyChange
+     *  completes when the lobby next changes, and the clients watching the lobby wait for it.
      * 
      * Rep Invariant:
+     * allPlayers.get(id).getID() is id
      * Every player in allPlayers should exist in either a value of mapIDToMatch (as a player of that match), or
      *  a value of twoPlayerMatches (again as a player of that match), but not both.
      * Every player should not have multiple locations (there cannot be duplicate players)
      * Every key in mapIDToDescription should exist in mapIDToMatch, and vice versa.
      * There should be no shared keys between mapIDToMatch, twoPlayerMatches, or mapIDToWinners
+     * lobbySnapshot.getVersion() <= lobbyVersion
+     * nextLobbyChange is not completed
      * 
      * Safety from rep exposure:
-     *  All fields, except validPuzzleNames, are private and final.
+     *  All fields are private and final.
      *      server is mutated in start(), and stop(), but this is part of the expected behavior, so no unsafe rep exposure
-     *      validPuzzleNames is mutated only in our constructor, but this is okay because it is part of the expected behavior.
-     *          validPuzzleNames is never returned or taken in as an argument to any method, so we do not keep references of it
+     *      puzzleCatalog changes on its own when the puzzle folder changes, but this is part of the expected behavior.
+     *          puzzleCatalog is never returned or taken in as an argument to any method, so we do not keep references of it
      *      folderPath is also immutable, so we have no rep exposure here, even when it is taken in as a parameter to other methods,
      *      allPlayers is mutated in handleStart, but this is part of expected behavior. It is not mutated, taken in as a parameter,
      *          or returned in any other method.
@@ -99,26 +131,74 @@ public class Server {
      *      twoPlayerMatches is mutated in playMatch and exit, but this is expected client behavior, so it is not rep exposure.
      *          It is not mutated, taken in as a parameter, or returned in any other method.
      *      mapIDToWinners is mutated in numerous methods, but this is expected client behavior, so it is not rep exposure.
+     *      boardWatchers is mutated in watchBoard and after moves, but this is expected client behavior. It is never returned.
+     *      executor is only handed to server, and is never returned.
+     *      lobbyStreams is never returned or taken in as a parameter.
+     *      lobbySnapshot is immutable, and is only returned by private methods.
+     *      nextLobbyChange is only handed to the callbacks of watchMatches, which never complete it.
      *      
      *      Overall, none of these rep fields are returned or taken in as arguments to any of our methods, and we do
      *      not keep references of them. A client would never be able to have direct access to any of our reps.
-     *          We do return a mutable Match in parse(), but this is okay because this match is not part of our rep,
-     *          since we are simply creating a match by parsing a file.
+     *          parse() returns an immutable PuzzleTemplate, and every Match we create from a template gets its own
+     *          mutable state, so matches of the same puzzle never share anything mutable.
      *      
      * Thread safety argument:
-     *  Every method that is non-static is locked by the rep folderPath. Therefore, all accesses to our rep are guarded by
-     *  the lock on folderPath, which is an instance variable. This means that only one thread can access/change our rep
-     *  at a time. This is essentially the same as monitor pattern, except we do not want to give access to the lock that
-     *  we are using in server.
+     *  allPlayers, mapIDToDescription, mapIDToMatch, twoPlayerMatches, and mapIDToWinners are threadsafe concurrent
+     *  collections, so any single read or write of them is atomic. puzzleCatalog is threadsafe, and publishes its set of valid
+     *  puzzles as a whole, so every thread sees a complete set of puzzles. It is only read while holding lobbyLock, and
+     *  reads never wait for puzzles to load; start() and stop() start and stop watching the folder before taking lobbyLock.
+     *  
+     *  Changes that touch more than one lobby registry at once (chooseNewMatch, playMatch, and exit from a waiting match) are
+     *  guarded by lobbyLock, so mapIDToDescription and mapIDToMatch always change together, and a match moves from
+     *  mapIDToMatch to twoPlayerMatches atomically. Clients waiting for a second player (waitForJoin) don't hold a thread
+     *  or any lock: each waiting match owns a future (Match.whenStarted()), completed when playMatch adds the second
+     *  player, or cancelled when the creator exits, and the response is then written by a thread of executor, outside
+     *  lobbyLock.
+     *  Clients waiting for the lobby to change (watchMatches) don't hold a thread either: they wait on nextLobbyChange,
+     *  which is only read and replaced while holding lobbyLock, and is completed by signalLobbyChanged; their update is
+     *  then written by a thread of executor, outside lobbyLock, so a bounded executor is never used up by clients that
+     *  are only waiting. lobbyLock is a ReentrantLock rather than a monitor, and no thread ever waits on a monitor, so a
+     *  virtual thread that blocks on it is unmounted from its carrier thread instead of pinning it.
+     *  
+     *  Moves in a match (tryPlay, challenge) are never guarded by lobbyLock, so moves in different matches run in
+     *  parallel, and they don't take the lock of their Match either: Match is threadsafe, and only locks the words a try
+     *  can touch, so tries on parts of the board that don't cross run in parallel too. Finishing a match (finishMatch, and
+     *  exit from a match being played) is guarded by the lock of that Match, which is never held during a move. Every
+     *  response about a match is built from a MatchSnapshot, which is immutable and published by the match after every
+     *  move, so rendering the board and the scores never holds up the other player of the match. A move that started
+     *  just before its match finished still gets a play response, and its watchers get the final scores.
+     *  Clients watching a board don't
+     *  hold a thread while they wait: they are kept in boardWatchers, which is threadsafe, and are completed by its
+     *  dispatcher threads after every move in their match, and after the match finishes. The dispatcher threads are
+     *  shared by every match, so they only build responses, and hand the writes to executor. A board event stream is a
+     *  watcher that queues its event on its QueuedStream, and registers a new watcher for the next change, every time it
+     *  is delivered, so it only ever has one pending watcher, and its events are queued, and sent, in order.
+     *  
+     *  lobbyVersion is only changed while holding lobbyLock, right after the lobby changed, and lobbySnapshot is only
+     *  replaced while holding lobbyLock, so a new snapshot is always built from a lobby that isn't changing. Both are
+     *  volatile, so a request that finds the snapshot current can send it without taking lobbyLock; a snapshot is
+     *  immutable, so it can be shared by any number of requests and watchers at once.
      *  
-     *  In some methods (exit, tryInsert, challenge, and watchBoard), we also lock on the match users are playing on
-     *  There is no case for deadlock, as the locks are always obtained in the order of server, then match itself.
-     *  Now, any change to the current match is atomic, so we will not have thread safe issues here.
+     *  lobbyStreams is a concurrent set. Lobby events are computed while holding lobbyLock, and queued on every lobby
+     *  stream in the order they were computed; each QueuedStream sends its own queue in order, from a thread of executor
+     *  (see QueuedStream), so a slow client only holds up its own events, never the other streams or the lobby. A new
+     *  stream is added to lobbyStreams while holding lobbyLock, together with queueing its first event, so no change of
+     *  the lobby can happen in between and be missed, and its first event is queued before any later change.
+     *  Finishing a match (removing it
+     *  from twoPlayerMatches and recording its winner in mapIDToWinners) is also done under the Match lock, after checking
+     *  that the match is still being played, so a match can only be finished once. The winner is recorded before the match
+     *  leaves twoPlayerMatches, so a new match reusing the same match ID always finds (and clears) the old winner.
+     *  
+     *  No lock of the server or of a match is ever held while writing to a client: every response is computed under the
+     *  locks it needs, and written after releasing them. Every write to a client runs under writeTimeout, which is
+     *  threadsafe, so a client that stops reading holds the thread writing to it (a handler, or a thread of executor)
+     *  for at most the write timeout, and then loses its connection.
+     *  
+     *  There is no case for deadlock, as the locks are always obtained in the order of lobbyLock, then the board and word
+     *  locks inside a match (taken and released by its moves), then match itself, and no lock of a match is ever held
+     *  while calling one of its moves or isFinished().
      *  All of our static methods are threadsafe because:
      *    The static methods only used local variables that are confined, so there is no behavior that is not threadsafe
-     *  Private methods, though not synchronized, do not present thread safety issues because they are always called within
-     *      public, synchronized methods. So, in order to call a private method, we need to first obtain the lock on 
-     *      the rep of server anyway.
      *      
      *  
      *  
@@ -133,36 +213,102 @@ public class Server {
 
     /**
      * Start a Crossword Extravaganza server.
-     * @param args The command line arguments should include only the folder where
-     *             the puzzles are located.
+     * @param args The command line arguments should include the folder where the puzzles are located, optionally
+     *             preceded by --executor=MODE, where MODE is cached, virtual, or bounded (see ExecutorMode). Without
+     *             the flag, the mode is taken from the system property crossword.executor, and defaults to cached.
+     *             With --manifest=FILE, the server keeps a manifest (see PuzzleManifest) in FILE, which must be in a
+     *             writable folder, so puzzles that haven't changed aren't checked again after a restart; without it,
+     *             every puzzle is checked. The server never writes into the puzzle folder unless FILE is in it.
+     *             The size of a bounded pool and its queue are taken from the system properties crossword.threads
+     *             and crossword.queue.
+     *             How often matches check their rep invariants is taken from the system properties crossword.verify
+     *             and crossword.verify.sample (see Verification). How long a client may take to read a response, in
+     *             milliseconds, is taken from the system property crossword.writeTimeout, and defaults to 10 seconds.
      * @throws IOException if an error occurs starting the server
      */
     public static void main(String[] args) throws IOException {
-        String folderPath = args[0];
+        ExecutorMode executorMode = ExecutorMode.fromSystemProperty();
+        String folderPath = null;
+        File manifest = null;
         
-        final Server server = new Server(folderPath, 4949);
+        for (String arg : args) {
+            if (arg.startsWith(EXECUTOR_FLAG)) {
+                executorMode = ExecutorMode.parse(arg.substring(EXECUTOR_FLAG.length()));
+            } else if (arg.startsWith(MANIFEST_FLAG)) {
+                manifest = new File(arg.substring(MANIFEST_FLAG.length()));
+            } else {
+                folderPath = arg;
+            }
+        }
+        if (folderPath == null) {
+            throw new IllegalArgumentException("usage: Server [" + EXECUTOR_FLAG + "cached|virtual|bounded] ["
+                    + MANIFEST_FLAG + "file] folder");
+        }
+        
+        // start serving right away, with the puzzles loaded so far, instead of waiting for the whole folder to load;
+        // like compiled puzzles, the manifest is only written where the operator asked for it, since puzzle folders
+        // may be read-only or under version control
+        final Server server = new Server(folderPath, 4949, executorMode, true, manifest);
         server.start();
         
     }
     
     /**
-     * Create a new server object that clients can connect to
+     * Create a new server object that clients can connect to, which runs exchanges in the executor mode selected by
+     * the system property crossword.executor (cached if it is not set)
      * @param folderPath path to folder that contains all of the possible puzzles to play
      * @param port server port number
      * @throws IOException if an error occurs starting the server
      */
     protected Server(String folderPath, int port) throws IOException {
+        this(folderPath, port, ExecutorMode.fromSystemProperty());
+    }
+    
+    /**
+     * Create a new server object that clients can connect to
+     * @param folderPath path to folder that contains all of the possible puzzles to play
+     * @param port server port number
+     * @param executorMode how to run the exchanges the server receives
+     * @throws IOException if an error occurs starting the server
+     * @throws UnsupportedOperationException if executorMode is VIRTUAL and the running Java does not have virtual threads
+     */
+    protected Server(String folderPath, int port, ExecutorMode executorMode) throws IOException {
+        this(folderPath, port, executorMode, false, null);
+    }
+    
+    /**
+     * Create a new server object that clients can connect to
+     * @param folderPath path to folder that contains all of the possible puzzles to play
+     * @param port server port number
+     * @param executorMode how to run the exchanges the server receives
+     * @param loadInBackground if false, every puzzle in the folder is loaded before returning; if true, the puzzles are
+     *                         loaded in the background, and the server offers the puzzles loaded so far until then
+     * @param manifest file that records which puzzle contents were already checked, see PuzzleManifest; null to check
+     *                 every puzzle in the folder
+     * @throws IOException if an error occurs starting the server
+     * @throws UnsupportedOperationException if executorMode is VIRTUAL and the running Java does not have virtual threads
+     */
+    protected Server(String folderPath, int port, ExecutorMode executorMode, boolean loadInBackground, File manifest)
+            throws IOException {
+        this.executor = executorMode.newExecutor(Integer.getInteger("crossword.threads", DEFAULT_POOL_THREADS),
+                Integer.getInteger("crossword.queue", DEFAULT_POOL_QUEUE)); // before binding the port, in case the mode is unsupported
         this.server = HttpServer.create(new InetSocketAddress(port), 0);
         this.folderPath = folderPath;
-        this.allPlayers = new HashSet<>();
-        this.validPuzzleNames = new HashSet<>();
-        this.mapIDToDescription = new HashMap<>();
-        this.mapIDToMatch = new HashMap<>();
-        this.twoPlayerMatches = new HashMap<>();
-        this.mapIDToWinners = new HashMap<>();
+        this.allPlayers = new ConcurrentHashMap<>();
+        this.puzzleCatalog = new PuzzleCatalog(folderPath, loadInBackground, manifest);
+        this.mapIDToDescription = new ConcurrentHashMap<>();
+        this.mapIDToMatch = new ConcurrentHashMap<>();
+        this.twoPlayerMatches = new ConcurrentHashMap<>();
+        this.mapIDToWinners = new ConcurrentHashMap<>();
+        this.boardWatchers = new BoardWatchers(WATCHER_THREADS);
+        this.lobbyStreams = ConcurrentHashMap.newKeySet();
+        this.writeTimeout = new WriteTimeout(Long.getLong("crossword.writeTimeout", DEFAULT_WRITE_TIMEOUT_MILLIS));
+        this.lobbyVersion = 0;
+        this.lobbySnapshot = new LobbySnapshot(lobbyVersion, puzzleCatalog.getValidPuzzleNames(), mapIDToDescription);
+        this.nextLobbyChange = new CompletableFuture<>();
 
         // handle concurrent requests with multiple threads
-        server.setExecutor(Executors.newCachedThreadPool());
+        server.setExecutor(executor);
 
         HeadersFilter headers = new HeadersFilter(Map.of(
                 // allow requests from web pages hosted anywhere
@@ -186,11 +332,7 @@ public class Server {
         HttpContext startRequest = server.createContext("/start/", new HttpHandler() {
 
             public void handle(HttpExchange exchange) throws IOException {
-                try {
-                    validPuzzleNames = findValidPuzzles(folderPath);
-                } catch (UnableToParseException e) {
-                    e.printStackTrace();
-                }
+
                 handleStart(exchange);
 
             }
@@ -204,8 +346,6 @@ public class Server {
 
                 try {
                     chooseNewMatch(exchange);
-                } catch (UnableToParseException e) {
-                    e.printStackTrace();
                 } catch (InterruptedException e) {
                     e.printStackTrace();
                 }
@@ -230,11 +370,7 @@ public class Server {
 
             public void handle(HttpExchange exchange) throws IOException {
 
-                try {
-                    waitForJoin(exchange);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }   
+                waitForJoin(exchange);
 
             }
         });
@@ -279,11 +415,7 @@ public class Server {
 
             public void handle(HttpExchange exchange) throws IOException {
 
-                try {
-                    watchBoard(exchange);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }   
+                watchBoard(exchange);
 
             }
         });
@@ -294,16 +426,34 @@ public class Server {
 
             public void handle(HttpExchange exchange) throws IOException {
 
-                try {
-                    watchMatches(exchange);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }   
+                watchMatches(exchange);
 
             }
         });
         watchMatchRequest.getFilters().addAll(filters);
         
+        // handle requests for paths that start with /streamboard/
+        HttpContext streamBoardRequest = server.createContext("/streamboard/", new HttpHandler() {
+
+            public void handle(HttpExchange exchange) throws IOException {
+
+                streamBoard(exchange);
+
+            }
+        });
+        streamBoardRequest.getFilters().addAll(filters);
+        
+        // handle requests for paths that start with /streammatches/
+        HttpContext streamMatchesRequest = server.createContext("/streammatches/", new HttpHandler() {
+
+            public void handle(HttpExchange exchange) throws IOException {
+
+                streamMatches(exchange);
+
+            }
+        });
+        streamMatchesRequest.getFilters().addAll(filters);
+        
         // handle requests for paths that start with /restart/
         HttpContext restartRequest = server.createContext("/restart/", new HttpHandler() {
 
@@ -323,13 +473,18 @@ public class Server {
      */
     private void checkRep() {
 
-        synchronized (folderPath) {
+        lobbyLock.lock();
+        try {
 
             assert server != null;
             assert folderPath != null;
-            assert validPuzzleNames != null;
+            assert puzzleCatalog != null;
 
-            for (Player player : allPlayers) { // assert each player has only one location (either mapIDToMatch or
+            for (Map.Entry<String, Player> entry : allPlayers.entrySet()) {
+                assert entry.getKey().equals(entry.getValue().getID());
+            }
+            
+            for (Player player : allPlayers.values()) { // assert each player has only one location (either mapIDToMatch or
                                                // twoPlayerMatches)
                 int playerCount = 0;
                 for (String matchID : mapIDToMatch.keySet()) {
@@ -348,12 +503,16 @@ public class Server {
             }
 
             assert mapIDToMatch.keySet().equals(mapIDToDescription.keySet());
+            assert lobbySnapshot.getVersion() <= lobbyVersion;
+            assert !nextLobbyChange.isDone();
 
             for (String matchID : twoPlayerMatches.keySet()) {
                 assert !mapIDToMatch.keySet().contains(matchID);
             }
 
             assert mapIDToWinners != null;
+        } finally {
+            lobbyLock.unlock();
         }
 
     }
@@ -363,11 +522,9 @@ public class Server {
     }
     
     
-    private static Parser<PuzzleGrammar> parser = makeParser();
-    
-    
     /**
-     * Compile the grammar into a parser.
+     * Compile the grammar into a parser. Puzzle files are parsed by PuzzleParser, which accepts the same language
+     * without reading the grammar; this parser is kept to check PuzzleParser against the grammar.
      * 
      * @return parser for the grammar
      * @throws RuntimeException if grammar file can't be read or has syntax errors
@@ -390,75 +547,26 @@ public class Server {
     
     
     /**
-     * Parse a string into an expression.
+     * Parse a puzzle file into a compiled puzzle, in a single pass and without building a parse tree.
      * 
      * @param puzzle file to parse
-     * @return Expression parsed from the file
+     * @return puzzle template parsed from the file
      * @throws UnableToParseException if unable to parse the puzzle correctly
      * @throws IOException if we cannot open the puzzle correctly
      */
-    private static Match parse(final File puzzle) throws UnableToParseException, IOException {
-        // parse the example into a parse tree
-        final ParseTree<PuzzleGrammar> parseTree = parser.parse(puzzle);
-
-        // display the parse tree in various ways, for debugging only
-//         System.out.println("parse tree " + parseTree);
-//         Visualizer.showInBrowser(parseTree);
-
-        // make an AST from the parse tree
-        final Match match = makeBoard(parseTree);
-        
-        return match;
-    }
-    
-    /**
-     * Using a parseTree, construct a Match object 
-     * @param parseTree parse tree to parse through in order to find information needed to construct a match object
-     * @return Match object that is a parsed match based on information from the parseTree
-     */
-    private static Match makeBoard(ParseTree<PuzzleGrammar> parseTree) {
-        final List<ParseTree<PuzzleGrammar>> children = parseTree.children();
-        ParseTree<PuzzleGrammar> nameTree = children.get(0);
-        String name = nameTree.children().get(0).text();
-        
-        ParseTree<PuzzleGrammar> descriptionTree = children.get(1);
-        String description = descriptionTree.children().get(0).text();
-        
-
-        List<WordTuple> allWords = new ArrayList<>();
-        
-        //initiate Board constructor here - putting in name of puzzle, and description of puzzle
-        
-        for (int i = THIRD_INDEX; i < children.size(); i++) {
-            
-            //for every entry, use all of the printed information below to create a Word object
-            //put this Word object into the set of words that the board holds on to
-            
-            
-            ParseTree<PuzzleGrammar> entryTree = children.get(i);
-            
-            String wordname = entryTree.children().get(0).text();
-            String hint = entryTree.children().get(1).text();
-            String direction = entryTree.children().get(2).text();
-            int row = Integer.valueOf(entryTree.children().get(THIRD_INDEX).text());
-            int col = Integer.valueOf(entryTree.children().get(FOURTH_INDEX).text());
-            
-            WordTuple currentWord = new WordTuple(row, col, hint, wordname, direction);
-          
-            allWords.add(currentWord);
-        }
-
-        Match currentMatch = new Match(name, description, allWords);
-
-        return currentMatch;
+    static PuzzleTemplate parse(final File puzzle) throws UnableToParseException, IOException {
+        return PuzzleParser.parse(puzzle);
     }
 
     /**
      * @return the port on which this server is listening for connections
      */
     public int port() {
-        synchronized (folderPath) {
+        lobbyLock.lock();
+        try {
             return server.getAddress().getPort();
+        } finally {
+            lobbyLock.unlock();
         }
     }
     
@@ -466,9 +574,18 @@ public class Server {
      * Start this server in a new background thread.
      */
     public void start() {
-        synchronized (folderPath) {
+        // the catalog never waits for a load to start watching, and is threadsafe, so it is not called under lobbyLock
+        try {
+            puzzleCatalog.startWatching();
+        } catch (IOException e) {
+            e.printStackTrace(); // the server can still run, it just won't see new or changed puzzles
+        }
+        lobbyLock.lock();
+        try {
             System.err.println("Server will listen on " + server.getAddress());
             server.start();
+        } finally {
+            lobbyLock.unlock();
         }
     }
     
@@ -476,10 +593,21 @@ public class Server {
      * Stop this server. Once stopped, this server cannot be restarted.
      */
     public void stop() {
-        synchronized (folderPath) {
+        puzzleCatalog.stopWatching();
+        lobbyLock.lock();
+        try {
             System.err.println("Server will stop");
             server.stop(0);
+        } finally {
+            lobbyLock.unlock();
         }
+        // the rest is threadsafe on its own, and ending the streams must not hold up the lobby
+        boardWatchers.shutdown();
+        for (QueuedStream stream : lobbyStreams) {
+            stream.close();
+        }
+        executor.shutdownNow();
+        writeTimeout.shutdown();
     }
     
     
@@ -490,26 +618,17 @@ public class Server {
      * @param exchange exchange to communicate with client
      * @throws IOException if an error occurs starting the server
      */
-    private static void init(HttpExchange exchange) throws IOException {
+    private void init(HttpExchange exchange) throws IOException {
         
-        final String response;
-        exchange.sendResponseHeaders(VALID, 0);
-
-        response = "start\nnew game";
+        final String response = "start\nnew game";
         
-        // write the response to the output stream using UTF-8 character encoding
-        OutputStream body = exchange.getResponseBody();
-        PrintWriter out = new PrintWriter(new OutputStreamWriter(body, UTF_8), true);
-        out.print(response);
-        out.flush();
-
-        exchange.close();
+        sendResponse(exchange, response);
         
     }
     
     /**
      * RECEIVE: a start request from the players with one parameter: "start playerID"
-     *  PRECONDITION: The ID must be unique (non-existing)
+     *  PRECONDITION: The ID must be unique (non-existing), and only contain letters and digits
      * STATE:
      *  IF precondition: choose
      *      SEND: STATE, "new", allMatches (matches with one player to join, and puzzles with no players to start a new match)
@@ -519,40 +638,29 @@ public class Server {
      * @throws IOException if headers cannot be sent
      */
     private void handleStart(HttpExchange exchange) throws IOException {
-        
-        synchronized (folderPath) {
-
-            // if you want to know the requested path:
-            final String path = exchange.getRequestURI().getPath();
-
-            // it will always start with the base path from server.createContext():
-            final String base = exchange.getHttpContext().getPath();
-            assert path.startsWith(base);
-            final String playerStr = path.substring(base.length());
 
-            final String response;
-            exchange.sendResponseHeaders(VALID, 0);
+        // if you want to know the requested path:
+        final String path = exchange.getRequestURI().getPath();
 
-            Player potentialPlayer = new Player(playerStr);
-            if (isUniquePlayer(potentialPlayer)) {
+        // it will always start with the base path from server.createContext():
+        final String base = exchange.getHttpContext().getPath();
+        assert path.startsWith(base);
+        final String playerStr = path.substring(base.length());
 
-                allPlayers.add(potentialPlayer);
-                response = getChooseResponse("new");
-            } else {
-                response = "start\n" + "try again";
+        final String response;
 
-            }
+        // the ID is validated once here, and the Player made for it is the one every later request of the player uses
+        if (Player.isValidID(playerStr) && allPlayers.putIfAbsent(playerStr, new Player(playerStr)) == null) {
+            // putIfAbsent() is atomic, so two players can never both claim the same ID
 
+            response = getChooseResponse("new");
+        } else {
+            response = "start\n" + "try again";
 
-            // write the response to the output stream using UTF-8 character encoding
-            OutputStream body = exchange.getResponseBody();
-            PrintWriter out = new PrintWriter(new OutputStreamWriter(body, UTF_8), true);
-            out.print(response);
-            out.flush();
+        }
 
-            exchange.close();
+        sendResponse(exchange, response);
 
-        }
     }
     
     
@@ -564,23 +672,10 @@ public class Server {
      * @throws IOException if headers cannot be sent
      */
     private void restart(HttpExchange exchange) throws IOException {
-        
-        synchronized (folderPath) {
-
-            final String response;
-            exchange.sendResponseHeaders(VALID, 0);
-
-            response = getChooseResponse("update");
-
-            // write the response to the output stream using UTF-8 character encoding
-            OutputStream body = exchange.getResponseBody();
-            PrintWriter out = new PrintWriter(new OutputStreamWriter(body, UTF_8), true);
-            out.print(response);
-            out.flush();
 
-            exchange.close();
+        final LobbySnapshot lobby = getLobbySnapshot();
+        sendLobbyUpdate(exchange, lobby, true);
 
-        }
     }
     
     
@@ -598,69 +693,66 @@ public class Server {
      *          SEND: STATE, "try again", allMatches
      * @param exchange exchange to communicate with client
      * @throws IOException if headers cannot be sent
-     * @throws UnableToParseException if we cannot parse the board
      * @throws InterruptedException if we improperly exit while waiting
      */
-    private void chooseNewMatch(HttpExchange exchange) throws IOException, UnableToParseException, InterruptedException {
+    private void chooseNewMatch(HttpExchange exchange) throws IOException, InterruptedException {
+
+        // if you want to know the requested path:
+        final String path = exchange.getRequestURI().getPath();
         
-        synchronized(folderPath) {
+        // it will always start with the base path from server.createContext():
+        final String base = exchange.getHttpContext().getPath();
+        assert path.startsWith(base);
+        final String idsAndDescription = path.substring(base.length());
         
-            // if you want to know the requested path:
-            final String path = exchange.getRequestURI().getPath();
-            
-            // it will always start with the base path from server.createContext():
-            final String base = exchange.getHttpContext().getPath();
-            assert path.startsWith(base);
-            final String idsAndDescription = path.substring(base.length());
-            
-            
-            exchange.sendResponseHeaders(VALID, 0);
-            OutputStream body = exchange.getResponseBody();
-            PrintWriter out = new PrintWriter(new OutputStreamWriter(body, UTF_8), true);
-            
-            String[] names = idsAndDescription.split("/");
-            String playerID = names[0];
-            String matchID = names[1];
-            String puzzleID = names[2];
-            String description = names[THIRD_INDEX];
+        String[] names = idsAndDescription.split("/");
+        String playerID = names[0];
+        String matchID = names[1];
+        String puzzleID = names[2];
+        String description = names[THIRD_INDEX];
+        
+        // the puzzle is parsed here, the first time a match is created from it, before taking the lobby lock
+        final PuzzleTemplate template = puzzleCatalog.getTemplate(puzzleID);
+        final Match puzzle = template == null ? null : newMatch(template);
+        if (puzzle != null) {
+            puzzle.addChangeListener(() -> boardWatchers.matchChanged(puzzle));
+        }
+        final Player existingPlayer = getPlayer(playerID);
+        
+        final String response;
+        
+        lobbyLock.lock();
+        try {
             
-            if (isUniqueMatchID(matchID) && validPuzzleNames.contains(puzzleID)) { //start new match
+            if (existingPlayer != null && puzzle != null && isUniqueMatchID(matchID)) { //start new match
                 
                 if (mapIDToWinners.containsKey(matchID)) { //client started a new match with a matchID equal to the matchID of a match
                                                         //that used to exist, but is now being replaced                    
                     mapIDToWinners.remove(matchID);
                 }
                 
-                Player existingPlayer = getPlayer(playerID);
-                
-                File puzzleFile = new File(folderPath + "/" +  puzzleID);
-                Match puzzle = parse(puzzleFile);
                 puzzle.addPlayer(existingPlayer);
                 
                 mapIDToDescription.put(matchID, description);
                 mapIDToMatch.put(matchID, puzzle);
 
                 
-                final String waitResponse = "wait";
-                
-                out.print(waitResponse);
-                out.flush();
-                exchange.close();
+                response = "wait";
       
-                folderPath.notifyAll();
+                signalLobbyChanged();
                      
             }
             else {
                 
-                final String response;
                 response = getChooseResponse("try again");
-                
-                out.print(response);
-                out.flush();
-                exchange.close();
             }
 
+        } finally {
+            lobbyLock.unlock();
         }
+        
+        // only respond once the new match is in the lobby, so the client's next request always finds it
+        sendResponse(exchange, response);
     }
     
     /**
@@ -669,61 +761,72 @@ public class Server {
      *      - matchID must exist in twoPlayerMatches
      *  STATE:
      *      - If precondition:
-     *      THEN: folderPath.wait() until someone else connects to the board 
+     *      THEN: wait on the match until someone else connects to the board 
      *          STATE: play
      *          - SEND: STATE, new, playerID, playerPoints, playerChallengePts, otherPlayerID, otherPlayerPts, otherPlayerChallengePts, board
+     *      - If the match is no longer waiting or being played, or its creator exits before anyone joins:
+     *          - Close connection
+     * No thread waits for the second player: the response is written once the match starts, by a thread of the executor.
      * @param exchange exchange to communicate with client
      * @throws IOException if response headers cannot be sent
-     * @throws InterruptedException if we close incorrectly while waiting
      */
-    private void waitForJoin(HttpExchange exchange) throws IOException, InterruptedException {
+    private void waitForJoin(HttpExchange exchange) throws IOException {
+
+        // if you want to know the requested path:
+        final String path = exchange.getRequestURI().getPath();
         
-        synchronized (folderPath) {
+        // it will always start with the base path from server.createContext():
+        final String base = exchange.getHttpContext().getPath();
+        assert path.startsWith(base);
+        final String playerAndMatchID = path.substring(base.length());
         
-            // if you want to know the requested path:
-            final String path = exchange.getRequestURI().getPath();
-            
-            // it will always start with the base path from server.createContext():
-            final String base = exchange.getHttpContext().getPath();
-            assert path.startsWith(base);
-            final String playerAndMatchID = path.substring(base.length());
-            
-            String[] names = playerAndMatchID.split("/");
-            String playerID = names[0];
-            String matchID = names[1];
-            
-            
-            Match matchToPlay = mapIDToMatch.get(matchID);
-            Player player = getPlayer(playerID);
-
-            
-            while(matchToPlay.getNumberPlayers() < 2) {
-                folderPath.wait();
-            }
-            
-            Player otherPlayer = matchToPlay.getOtherPlayer(player);
-
-            exchange.sendResponseHeaders(VALID, 0);
-            OutputStream body = exchange.getResponseBody();
-            PrintWriter out = new PrintWriter(new OutputStreamWriter(body, UTF_8), true);
-            
-            final String playResponse;
-            String playResult = "play\nnew\n";
-
-            playResult += playerID + "\n" + matchToPlay.getScore(player) + "\n" + matchToPlay.getChallengePoints(player)
-                    + "\n" + otherPlayer.getID() + "\n" + matchToPlay.getScore(otherPlayer) + "\n"
-                    + matchToPlay.getChallengePoints(otherPlayer) + "\n" + matchToPlay.toString();
- 
-            playResponse = playResult;
-            out.print(playResponse);
-            out.flush();
-
-            exchange.close();
-
+        String[] names = playerAndMatchID.split("/");
+        String playerID = names[0];
+        String matchID = names[1];
+        
+        
+        Match waitingMatch = mapIDToMatch.get(matchID);
+        if (waitingMatch == null) { // the other player may have already joined before this request arrived
+            waitingMatch = twoPlayerMatches.get(matchID);
         }
+        final Match matchToPlay = waitingMatch;
+        final Player player = getPlayer(playerID);
+        
+        if (matchToPlay == null || player == null) { // the creator already exited, so no one will join
+            sendResponse(exchange, "");
+            return;
+        }
+
+        // completed by playMatch or cancelled by exit, while they hold lobbyLock, so the response is only handed to the
+        // executor from there, and written by one of its threads
+        matchToPlay.whenStarted().whenComplete((match, cancelled) -> writeLater(exchange,
+                () -> sendResponse(exchange, cancelled == null ? getJoinResponse(match, player, playerID) : "")));
 
     }
     
+    /**
+     * Make a new match of a puzzle, for a player who chose it. Tests override this to watch or hold up the moves made
+     * in the matches of this server.
+     * @param template the puzzle to play
+     * @return a new match of template, with no players
+     */
+    protected Match newMatch(PuzzleTemplate template) {
+        return new Match(template);
+    }
+    
+    /**
+     * Get the response to send to the creator of a match when a second player joins it
+     * @param match a match with two players
+     * @param player the creator of the match
+     * @param playerID the ID of player
+     * @return play, new, playerID, playerPoints, playerChallengePts, otherPlayerID, otherPlayerPts, otherPlayerChallengePts, board
+     */
+    private static String getJoinResponse(Match match, Player player, String playerID) {
+        
+        final MatchSnapshot snapshot = match.getSnapshot();
+        return getPlayResponse(snapshot, "new", playerID, player, snapshot.toString());
+    }
+    
     /**
      * RECEIVE: A play request in the form: "play playerID matchID"
      *  PRECONDITION: 
@@ -740,29 +843,26 @@ public class Server {
      */
     private void playMatch(HttpExchange exchange) throws IOException {
         
-        synchronized (folderPath) {
-            
-            // if you want to know the requested path:
-            final String path = exchange.getRequestURI().getPath();
-            
-            // it will always start with the base path from server.createContext():
-            final String base = exchange.getHttpContext().getPath();
-            assert path.startsWith(base);
-            final String playerAndMatch = path.substring(base.length());
-            
-            String[] playerAndMatchArray = playerAndMatch.split("/");
-            String playerID = playerAndMatchArray[0];
-            String matchID = playerAndMatchArray[1];
-           
-            
-            exchange.sendResponseHeaders(VALID, 0);
-            OutputStream body = exchange.getResponseBody();
-            PrintWriter out = new PrintWriter(new OutputStreamWriter(body, UTF_8), true);
+        // if you want to know the requested path:
+        final String path = exchange.getRequestURI().getPath();
+        
+        // it will always start with the base path from server.createContext():
+        final String base = exchange.getHttpContext().getPath();
+        assert path.startsWith(base);
+        final String playerAndMatch = path.substring(base.length());
+        
+        String[] playerAndMatchArray = playerAndMatch.split("/");
+        String playerID = playerAndMatchArray[0];
+        String matchID = playerAndMatchArray[1];
+        
+        final Player secondPlayer = getPlayer(playerID); //second player to join the match
+        final String response;
+        
+        lobbyLock.lock();
+        try {
             
-            if (mapIDToMatch.containsKey(matchID)) { // valid precondition, so play an existing match
+            if (secondPlayer != null && mapIDToMatch.containsKey(matchID)) { // valid precondition, so play an existing match
 
-                
-                Player secondPlayer = getPlayer(playerID); //second player to join the match
                 Match matchToPlay = mapIDToMatch.get(matchID);
                 
                 matchToPlay.addPlayer(secondPlayer);
@@ -772,32 +872,24 @@ public class Server {
                 
                 twoPlayerMatches.put(matchID, matchToPlay);
                 
-                Player otherPlayer = matchToPlay.getOtherPlayer(secondPlayer);
-
-                String validTemporary = "play\n" + "new\n";
-                validTemporary += playerID + "\n" + matchToPlay.getScore(secondPlayer) + "\n"
-                        + matchToPlay.getChallengePoints(secondPlayer) + "\n" + otherPlayer.getID() + "\n"
-                        + matchToPlay.getScore(otherPlayer) + "\n" + matchToPlay.getChallengePoints(otherPlayer) + "\n"
-                        + matchToPlay.toString();
-
-                final String validResponse = validTemporary;
-                out.print(validResponse);
-                out.flush();
+                final MatchSnapshot snapshot = matchToPlay.getSnapshot();
+                response = getPlayResponse(snapshot, "new", playerID, secondPlayer, snapshot.toString());
  
-                folderPath.notifyAll();
+                signalLobbyChanged();
     
             }
             else {
                 
-                final String invalidResponse = getChooseResponse("try again");
-                out.print(invalidResponse);
-                out.flush();
+                response = getChooseResponse("try again");
 
             }
-     
-            exchange.close();
         
+        } finally {
+            lobbyLock.unlock();
         }
+        
+        // only respond once the match is being played, so the client's next move always finds it
+        sendResponse(exchange, response);
  
     }
 
@@ -819,78 +911,76 @@ public class Server {
      */
     private void exit(HttpExchange exchange) throws IOException {
 
-        synchronized (folderPath) {
-
-            // if you want to know the requested path:
-            final String path = exchange.getRequestURI().getPath();
+        // if you want to know the requested path:
+        final String path = exchange.getRequestURI().getPath();
 
-            // it will always start with the base path from server.createContext():
-            final String base = exchange.getHttpContext().getPath();
-            assert path.startsWith(base);
-            final String stateAndID = path.substring(base.length());
+        // it will always start with the base path from server.createContext():
+        final String base = exchange.getHttpContext().getPath();
+        assert path.startsWith(base);
+        final String stateAndID = path.substring(base.length());
 
-            String[] states = stateAndID.split("/");
+        String[] states = stateAndID.split("/");
 
-            String gameState = states[0];
-            String playerID = states[1];
-
-            exchange.sendResponseHeaders(VALID, 0);
-            OutputStream body = exchange.getResponseBody();
-            PrintWriter out = new PrintWriter(new OutputStreamWriter(body, UTF_8), true);
+        String gameState = states[0];
+        String playerID = states[1];
+        
+        String response = ""; // leaving the choose or show_score state just closes the connection
 
-            if (gameState.equals("choose") || gameState.equals("show_score")) {
+        if (gameState.equals("choose") || gameState.equals("show_score")) {
 
-                Player playerToRemove = getPlayer(playerID);
-                allPlayers.remove(playerToRemove);
-                
-                exchange.close();
-                
-            } else if (gameState.equals("wait")) {
+            allPlayers.remove(playerID);
+            
+        } else if (gameState.equals("wait")) {
 
-                String matchID = states[2];
+            String matchID = states[2];
+            
+            lobbyLock.lock();
+            try {
                 
                 mapIDToDescription.remove(matchID);
-                mapIDToMatch.remove(matchID);
+                final Match abandoned = mapIDToMatch.remove(matchID);
+                if (abandoned != null) {
+                    abandoned.cancelStart(); // answers the creator's pending waitForJoin
+                }
 
-                final String response = getChooseResponse("update");
-                out.print(response);
-                out.flush();
-                exchange.close();
+                response = getChooseResponse("update");
 
-                folderPath.notifyAll();
+                signalLobbyChanged();
+            } finally {
+                lobbyLock.unlock();
+            }
 
-            } else if (gameState.equals("play")) {
+        } else if (gameState.equals("play")) {
 
-                
-                String matchID = states[2];
-                
-                Player quittingPlayer = getPlayer(playerID);
-                
-                Match currentMatch = twoPlayerMatches.get(matchID);
+            
+            String matchID = states[2];
+            
+            Player quittingPlayer = getPlayer(playerID);
+            
+            Match currentMatch = twoPlayerMatches.get(matchID);
+            
+            if (currentMatch != null) { // otherwise, the match already finished
                 
                 synchronized (currentMatch) {
-                
-                    Player winner = currentMatch.getOtherPlayer(quittingPlayer); //since you're quitting, the other player automatically wins!
-                    String winnerID = winner.getID();
                     
-                    twoPlayerMatches.remove(matchID);
-                    mapIDToWinners.put(matchID, winnerID);
+                    if (twoPlayerMatches.get(matchID) == currentMatch) { // could have been finished by a move while we waited for the lock
                     
-                    currentMatch.notifyAll();
-
-                    final String finished = "show_score\n" + winnerID + "\n" + playerID + "\n"
-                            + currentMatch.getScore(quittingPlayer) + "\n"
-                            + currentMatch.getChallengePoints(quittingPlayer) + "\n" + winnerID + "\n"
-                            + currentMatch.getScore(winner) + "\n" + currentMatch.getChallengePoints(winner);
-
-                    out.print(finished);
-                    out.flush();
-                    exchange.close();
-     
+                        Player winner = currentMatch.getOtherPlayer(quittingPlayer); //since you're quitting, the other player automatically wins!
+                        String winnerID = winner.getID();
+                        
+                        mapIDToWinners.put(matchID, winnerID);
+                        twoPlayerMatches.remove(matchID);
+                        
+                        boardWatchers.matchChanged(currentMatch); // quitting doesn't change the match itself, so tell its watchers
+    
+                        response = getScoreResponse(currentMatch.getSnapshot(), winnerID, playerID, quittingPlayer);
+                    }
                 }
-
             }
+
         }
+        
+        sendResponse(exchange, response);
     }
     
     /**
@@ -906,92 +996,60 @@ public class Server {
      *     - SEND: play, incorrect_length, playerID, playerPoints, playerChallengePts, otherPlayerID, otherPlayerPts, otherPlayerChallengePts, board
      *     - SEND: play, wrong_id, playerID, playerPoints, playerChallengePts, otherPlayerID, otherPlayerPts, otherPlayerChallengePts, board
      *     - SEND: play, inconsistent_current, playerID, playerPoints, playerChallengePts, otherPlayerID, otherPlayerPts, otherPlayerChallengePts, board
+     * VERSIONED BOARDS: if the request has the query since=VERSION, board is sent as Match.getUpdateSince(VERSION), which is
+     *     only the changes since VERSION (or a snapshot of the whole board if VERSION is too old), instead of the whole board
      * @param exchange exchange to communicate with client
      */
     private void tryPlay(HttpExchange exchange) throws IOException {
-        
-        synchronized (folderPath) {
 
-            // if you want to know the requested path:
-            final String path = exchange.getRequestURI().getPath();
+        // if you want to know the requested path:
+        final String path = exchange.getRequestURI().getPath();
 
-            // it will always start with the base path from server.createContext():
-            final String base = exchange.getHttpContext().getPath();
-            assert path.startsWith(base);
-            final String tryRequest = path.substring(base.length());
+        // it will always start with the base path from server.createContext():
+        final String base = exchange.getHttpContext().getPath();
+        assert path.startsWith(base);
+        final String tryRequest = path.substring(base.length());
 
-            exchange.sendResponseHeaders(VALID, 0);
-            OutputStream body = exchange.getResponseBody();
-            PrintWriter out = new PrintWriter(new OutputStreamWriter(body, UTF_8), true);
+        String[] ids = tryRequest.split("/");
+        String playerID = ids[0];
+        String matchID = ids[1];
+        String wordID = ids[2];
+        String word = ids[THIRD_INDEX];
+        final OptionalLong since = getSince(exchange);
 
-            String[] ids = tryRequest.split("/");
-            String playerID = ids[0];
-            String matchID = ids[1];
-            String wordID = ids[2];
-            String word = ids[THIRD_INDEX];
+        String response = ""; // a request for a match that isn't being played just closes the connection
+        
+        Match currentMatch = twoPlayerMatches.get(matchID);
+        if (currentMatch != null) {
+            
+            final Player currentPlayer = getPlayer(playerID);
+            MatchSnapshot snapshot = null; // the match right after the move, if the move was made
+            String validTryStr = null;
+            String winnerID = null; // set if the move finished the match
+            
+            // the match may have finished since we looked it up
+            if (twoPlayerMatches.get(matchID) == currentMatch && currentMatch.containsPlayer(currentPlayer)) {
 
-            if (twoPlayerMatches.containsKey(matchID)) {
-                Match currentMatch = twoPlayerMatches.get(matchID);
-                
-                synchronized (currentMatch) {
-                    
-                    Player currentPlayer = getPlayer(playerID);
-                    
-                    if (currentMatch.containsPlayer(currentPlayer)) {
-    
-                        TryResult typeOfTry = currentMatch.tryInsert(currentPlayer, Integer.valueOf(wordID), word);
-                        boolean matchFinished = currentMatch.isFinished();
-                       
-    
-                        if (typeOfTry == TryResult.SUCCESS && matchFinished) {
-                            
-                            Player otherPlayer = currentMatch.getOtherPlayer(currentPlayer);
-                            
-                            String winnerID = currentMatch.calculateWinner();
-                            
-                            twoPlayerMatches.remove(matchID);
-                            mapIDToWinners.put(matchID, winnerID);
-
-                            currentMatch.notifyAll();       
-                            
-                            final String finished = "show_score\n" + winnerID + "\n" + playerID + "\n" + currentMatch.getScore(currentPlayer)
-                                    + "\n" + currentMatch.getChallengePoints(currentPlayer) + "\n" + otherPlayer.getID()
-                                    + "\n" + currentMatch.getScore(otherPlayer) + "\n"
-                                    + currentMatch.getChallengePoints(otherPlayer);
-                            
-                            out.print(finished);
-                            out.flush();
-                            exchange.close();
-   
-                        } else {
-                            
-                            Player otherPlayer = currentMatch.getOtherPlayer(currentPlayer);
-                            
-                            
-                            String validTryStr = typeOfTry.name().toLowerCase();
-    
-                            final String ongoing = "play\n" + validTryStr + "\n" + playerID + "\n"
-                                    + currentMatch.getScore(currentPlayer) + "\n"
-                                    + currentMatch.getChallengePoints(currentPlayer) + "\n" + otherPlayer.getID() + "\n"
-                                    + currentMatch.getScore(otherPlayer) + "\n"
-                                    + currentMatch.getChallengePoints(otherPlayer) + "\n" + currentMatch.toString();
+                // the match only locks the words this try can touch, so tries on other parts of the board run in parallel
+                TryResult typeOfTry = currentMatch.tryInsert(currentPlayer, Integer.valueOf(wordID), word);
 
-    
-                            out.print(ongoing);
-                            out.flush();
-                            exchange.close();
-                            
-  
-                        }
-    
-                    }
+                if (typeOfTry == TryResult.SUCCESS && currentMatch.isFinished()) {
+                    winnerID = finishMatch(matchID, currentMatch);
                 }
+                
+                validTryStr = typeOfTry.name().toLowerCase();
+                snapshot = currentMatch.getSnapshot();
+
+            }
+            
+            // the snapshot doesn't change, so the response is built without holding any lock of the match
+            if (snapshot != null) {
+                response = winnerID != null ? getScoreResponse(snapshot, winnerID, playerID, currentPlayer)
+                        : getPlayResponse(snapshot, validTryStr, playerID, currentPlayer, getBoard(snapshot, since));
             }
-            exchange.close();
         }
         
-        
-        
+        sendResponse(exchange, response);
     }
     
     /**
@@ -1008,131 +1066,97 @@ public class Server {
      *     - SEND: show_score, winner, myPlayer, score, challengePoints, otherPlayer, score2, challengePoints2
      * IF FAILED_CHALLENGE (game logic):
      *     - SEND: play, invalidch, playerID, playerPoints, playerChallengePts, otherPlayerID, otherPlayerPts, otherPlayerChallengePts, board
+     * VERSIONED BOARDS: if the request has the query since=VERSION, board is sent as Match.getUpdateSince(VERSION), which is
+     *     only the changes since VERSION (or a snapshot of the whole board if VERSION is too old), instead of the whole board
      * @param exchange exchange to communicate with client
      * @throws IOException if headers cannot be properly sent
      */
     private void challenge(HttpExchange exchange) throws IOException {
-        
-        synchronized (folderPath) {
 
-            // if you want to know the requested path:
-            final String path = exchange.getRequestURI().getPath();
+        // if you want to know the requested path:
+        final String path = exchange.getRequestURI().getPath();
 
-            // it will always start with the base path from server.createContext():
-            final String base = exchange.getHttpContext().getPath();
-            assert path.startsWith(base);
-            final String tryRequest = path.substring(base.length());
+        // it will always start with the base path from server.createContext():
+        final String base = exchange.getHttpContext().getPath();
+        assert path.startsWith(base);
+        final String tryRequest = path.substring(base.length());
 
-            exchange.sendResponseHeaders(VALID, 0);
-            OutputStream body = exchange.getResponseBody();
-            PrintWriter out = new PrintWriter(new OutputStreamWriter(body, UTF_8), true);
+        String[] ids = tryRequest.split("/");
+        String playerID = ids[0];
+        String matchID = ids[1];
+        String wordID = ids[2];
+        String word = ids[THIRD_INDEX];
+        final OptionalLong since = getSince(exchange);
 
-            String[] ids = tryRequest.split("/");
-            String playerID = ids[0];
-            String matchID = ids[1];
-            String wordID = ids[2];
-            String word = ids[THIRD_INDEX];
+        String response = ""; // a request for a match that isn't being played just closes the connection
+        
+        Match currentMatch = twoPlayerMatches.get(matchID);
+        if (currentMatch != null) {
+            
+            final Player currentPlayer = getPlayer(playerID);
+            MatchSnapshot snapshot = null; // the match right after the challenge, if it was made
+            String typeOfChallenge = null;
+            String winnerID = null; // set if the challenge finished the match
+            
+            // the match may have finished since we looked it up
+            if (twoPlayerMatches.get(matchID) == currentMatch && currentMatch.containsPlayer(currentPlayer)) {
 
-            if (twoPlayerMatches.containsKey(matchID)) {
-                Match currentMatch = twoPlayerMatches.get(matchID);
-                
-                synchronized (currentMatch) {
-                
-                    Player currentPlayer = getPlayer(playerID);
-                    if (currentMatch.containsPlayer(currentPlayer)) {
-    
-                        ChallengeResult validChallenge = currentMatch.challenge(currentPlayer, Integer.valueOf(wordID), word);
-                        boolean matchFinished = currentMatch.isFinished();
-    
-                        if (validChallenge == ChallengeResult.CORRECT && matchFinished) {
-                            
-                            
-                            Player otherPlayer = currentMatch.getOtherPlayer(currentPlayer);
-                            
-                            String finishedResponse = "show_score\n";
-                            String winnerID = currentMatch.calculateWinner();
-                            
-                            twoPlayerMatches.remove(matchID);
-                            mapIDToWinners.put(matchID, winnerID);
-                            
-                            currentMatch.notifyAll();
-
-                            finishedResponse += winnerID + "\n" + playerID + "\n" + currentMatch.getScore(currentPlayer)
-                                    + "\n" + currentMatch.getChallengePoints(currentPlayer) + "\n" + otherPlayer.getID()
-                                    + "\n" + currentMatch.getScore(otherPlayer) + "\n"
-                                    + currentMatch.getChallengePoints(otherPlayer);
-                            final String finished = finishedResponse;
-
-                            out.print(finished);
-                            out.flush();
-                            exchange.close();
- 
-                        } else {
-                            
-                            Player otherPlayer = currentMatch.getOtherPlayer(currentPlayer);
-                            
-                            String typeOfChallenge;
-                            if (validChallenge == ChallengeResult.CORRECT) typeOfChallenge = "wonch";
-                            else if (validChallenge == ChallengeResult.INCORRECT) typeOfChallenge = "lostch";
-                            else typeOfChallenge = "invalidch";
-
-                            String ongoingResponse = "play\n" + typeOfChallenge + "\n" + playerID + "\n"
-                                    + currentMatch.getScore(currentPlayer) + "\n"
-                                    + currentMatch.getChallengePoints(currentPlayer) + "\n" + otherPlayer.getID() + "\n"
-                                    + currentMatch.getScore(otherPlayer) + "\n"
-                                    + currentMatch.getChallengePoints(otherPlayer) + "\n" + currentMatch.toString();
-
-                            final String ongoing = ongoingResponse;
-
-                            out.print(ongoing);
-                            out.flush();
-                            exchange.close();
+                ChallengeResult validChallenge = currentMatch.challenge(currentPlayer, Integer.valueOf(wordID), word);
 
-                        }
-    
-                    }
+                if (validChallenge == ChallengeResult.CORRECT && currentMatch.isFinished()) {
+                    winnerID = finishMatch(matchID, currentMatch);
                 }
+                
+                if (validChallenge == ChallengeResult.CORRECT) typeOfChallenge = "wonch";
+                else if (validChallenge == ChallengeResult.INCORRECT) typeOfChallenge = "lostch";
+                else typeOfChallenge = "invalidch";
+                snapshot = currentMatch.getSnapshot();
+
+            }
+            
+            // the snapshot doesn't change, so the response is built without holding any lock of the match
+            if (snapshot != null) {
+                response = winnerID != null ? getScoreResponse(snapshot, winnerID, playerID, currentPlayer)
+                        : getPlayResponse(snapshot, typeOfChallenge, playerID, currentPlayer, getBoard(snapshot, since));
             }
         }
         
+        sendResponse(exchange, response);
     }
     
-
     /**
      * RECEIVES: request to watch for other matches to be added or removed in the form of: watchMatches
      * SENDS: STATE, "update", allMatches
      * 
      * Wait and watch until other matches are added and removed from the list of playable matches (with one player already)
      * Communicate this information (live update) to the client
+     * No thread waits for the lobby to change: the update is written by a thread of the executor once it does.
      * @param exchange exchange to communicate with client
      * @throws IOException if headers cannot be sent
-     * @throws InterruptedException if we improperly exit while waiting
      */
-    private void watchMatches(HttpExchange exchange) throws IOException, InterruptedException {
+    private void watchMatches(HttpExchange exchange) throws IOException {
         
-        synchronized (folderPath) {
-
-            final String response;
-            exchange.sendResponseHeaders(VALID, 0);
-
-            String availableMatches = getChooseResponse("update");
-
-            while (availableMatches.equals(getChooseResponse("update"))) {
-                folderPath.wait();
-            }
-
-            response = getChooseResponse("update");
-
-            // write the response to the output stream using UTF-8 character encoding
-            OutputStream body = exchange.getResponseBody();
-            PrintWriter out = new PrintWriter(new OutputStreamWriter(body, UTF_8), true);
-            out.print(response);
+        // the lobby the client already has. Read before the headers are sent, so a change the client makes as soon as it
+        // has them is seen as a change.
+        final LobbySnapshot availableMatches = getLobbySnapshot();
+        
+        // the client waits for the headers before its next request, so send them before we start waiting
+        writeTimeout.run(() -> exchange.sendResponseHeaders(VALID, 0));
+        
+        final CompletableFuture<Void> lobbyChange;
+        lobbyLock.lock();
+        try {
 
-            out.flush();
-            exchange.close();
+            // a snapshot is only replaced when the lobby changed, so this costs a version check, not a new list
+            lobbyChange = getLobbySnapshot() != availableMatches ? CompletableFuture.completedFuture(null) : nextLobbyChange;
 
+        } finally {
+            lobbyLock.unlock();
         }
         
+        // run by signalLobbyChanged while it holds lobbyLock, so the update is only handed to the executor from there
+        lobbyChange.thenRun(() -> writeLater(exchange, () -> sendLobbyUpdate(exchange, getLobbySnapshot(), false)));
+        
     }
     
     
@@ -1142,155 +1166,553 @@ public class Server {
      *      - show_score, winner, myPlayer, score, challengePoints, otherPlayer, score2, challengePoints2
      *      else:
      *      - play, update, playerID, playerPoints, playerChallengePts, otherPlayerID, otherPlayerPts, otherPlayerChallengePts, board
+     * VERSIONED BOARDS: if the request has the query since=VERSION, board is sent as Match.getUpdateSince(VERSION), which is
+     *     only the changes since VERSION (or a snapshot of the whole board if VERSION is too old), instead of the whole board,
+     *     and the response is sent as soon as the board is newer than VERSION, so no change made between two requests is missed
      * 
      * Wait until the board changes, and when it does, show the newly changed board to the client
      * @param exchange exchange to communicate with client
      * @throws IOException if headers cannot be sent
-     * @throws InterruptedException if we improperly exit while waiting
      */
-    private void watchBoard(HttpExchange exchange) throws IOException, InterruptedException {
-        
-        synchronized (folderPath) {
-
-            // if you want to know the requested path:
-            final String path = exchange.getRequestURI().getPath();
-
-            // it will always start with the base path from server.createContext():
-            final String base = exchange.getHttpContext().getPath();
-            assert path.startsWith(base);
-            final String playerAndMatch = path.substring(base.length());
-            String[] ids = playerAndMatch.split("/");
-            final String playerID = ids[0];
-            final String matchID = ids[1];
-
-            Match matchToWatch = twoPlayerMatches.get(matchID);
-
-            new Thread(new Runnable() {
-
-                public void run() {
-                    try {
-                        synchronized (matchToWatch) {
-
-                            final String response;
-                            try {
-                                exchange.sendResponseHeaders(VALID, 0);
-                            } catch (IOException e) {
-                                e.printStackTrace();
-                            }
-
-                            String currentMatchState = matchToWatch.toString();
-
-                            while (currentMatchState.equals(matchToWatch.toString())
-                                    && !mapIDToWinners.containsKey(matchID)) {
-                                try {
-                                    matchToWatch.wait();
-                                } catch (InterruptedException e) {
-                                    e.printStackTrace();
-                                }
-                            }
-
-                            Player currentPlayer = getPlayer(playerID);
-                            Player otherPlayer = matchToWatch.getOtherPlayer(currentPlayer);
-
-                            if (mapIDToWinners.containsKey(matchID)) {
-
-                                String winnerID = mapIDToWinners.get(matchID);
-                                response = "show_score\n" + winnerID + "\n" + playerID + "\n"
-                                        + matchToWatch.getScore(currentPlayer) + "\n"
-                                        + matchToWatch.getChallengePoints(currentPlayer) + "\n" + otherPlayer.getID()
-                                        + "\n" + matchToWatch.getScore(otherPlayer) + "\n"
-                                        + matchToWatch.getChallengePoints(otherPlayer);
-
-                            }
-
-                            else {
-                                response = "play\nupdate\n" + playerID + "\n" + matchToWatch.getScore(currentPlayer)
-                                        + "\n" + matchToWatch.getChallengePoints(currentPlayer) + "\n"
-                                        + otherPlayer.getID() + "\n" + matchToWatch.getScore(otherPlayer) + "\n"
-                                        + matchToWatch.getChallengePoints(otherPlayer) + "\n" + matchToWatch.toString();
-                            }
-
-                            // write the response to the output stream using UTF-8 character encoding
-                            OutputStream body = exchange.getResponseBody();
-                            PrintWriter out = new PrintWriter(new OutputStreamWriter(body, UTF_8), true);
-                            out.print(response);
-                            out.flush();
-                            exchange.close();
+    private void watchBoard(HttpExchange exchange) throws IOException {
+        
+        // if you want to know the requested path:
+        final String path = exchange.getRequestURI().getPath();
+
+        // it will always start with the base path from server.createContext():
+        final String base = exchange.getHttpContext().getPath();
+        assert path.startsWith(base);
+        final String playerAndMatch = path.substring(base.length());
+        String[] ids = playerAndMatch.split("/");
+        final String playerID = ids[0];
+        final String matchID = ids[1];
+
+        final OptionalLong since = getSince(exchange);
+
+        final Match matchToWatch = twoPlayerMatches.get(matchID);
+        
+        if (matchToWatch == null) { // the match already finished, so there is nothing to watch
+            sendResponse(exchange, "");
+            return;
+        }
+        
+        // the version of the board the client already has; a version never goes back, so "changed" is "newer than this".
+        // Read before the headers are sent, so a move the client makes as soon as it has them is seen as a change.
+        final long currentVersion = matchToWatch.getVersion();
+        final long versionSeen = since.isPresent() && since.getAsLong() >= 0 ? Math.min(since.getAsLong(), currentVersion)
+                : currentVersion;
+        
+        // the client waits for the headers before it makes its next move, so send them before we start watching
+        writeTimeout.run(() -> exchange.sendResponseHeaders(VALID, 0));
+        
+        // no thread waits for the board to change: the watcher is completed by a dispatcher thread after a move
+        boardWatchers.watch(matchToWatch, new BoardWatchers.Watcher() {
+            
+            // set by check() and read by deliver(), which always happens after check() on the dispatcher thread it was handed to
+            private String winnerID;
+            
+            public boolean check(long version) {
+                
+                winnerID = mapIDToWinners.get(matchID);
+                return winnerID != null || version > versionSeen;
+            }
+            
+            public void deliver(MatchSnapshot snapshot) {
+                
+                // the response is built on the dispatcher, but written by the executor, so a client that stopped
+                // reading never holds up the boards of other matches
+                final byte[] response = getBoardUpdate(snapshot, winnerID, playerID, since).getBytes(UTF_8);
+                writeLater(exchange, () -> writeTimeout.run(() -> {
+                    OutputStream body = exchange.getResponseBody();
+                    body.write(response);
+                    body.flush();
+                    exchange.close();
+                }));
+            }
+        });
+
+    }
+
+    /**
+     * RECEIVES: request to stream the board in the form of: streamBoard playerID matchID
+     * SENDS: a text/event-stream response that stays open, with one "board" event for the current board, and one
+     *      more every time the board changes. The data of each event is the same as a watchBoard response:
+     *      - play, update, playerID, playerPoints, playerChallengePts, otherPlayerID, otherPlayerPts, otherPlayerChallengePts, board
+     *      or, as the last event before the stream ends, when the match finishes:
+     *      - show_score, winner, myPlayer, score, challengePoints, otherPlayer, score2, challengePoints2
+     *   If the match is not being played, the connection is closed without any event.
+     * VERSIONED BOARDS: if the request has the query since=VERSION, board is sent as Match.getUpdateSince(VERSION), which is
+     *     only the changes since VERSION (or a snapshot of the whole board if VERSION is too old), instead of the whole board
+     * @param exchange exchange to communicate with client
+     * @throws IOException if headers cannot be sent
+     */
+    private void streamBoard(HttpExchange exchange) throws IOException {
+        
+        // if you want to know the requested path:
+        final String path = exchange.getRequestURI().getPath();
+
+        // it will always start with the base path from server.createContext():
+        final String base = exchange.getHttpContext().getPath();
+        assert path.startsWith(base);
+        final String playerAndMatch = path.substring(base.length());
+        String[] ids = playerAndMatch.split("/");
+        final String playerID = ids[0];
+        final String matchID = ids[1];
+
+        final Match matchToWatch = twoPlayerMatches.get(matchID);
+        
+        if (matchToWatch == null) { // the match already finished, so there is nothing to stream
+            sendResponse(exchange, "");
+            return;
+        }
+        
+        final QueuedStream stream = new QueuedStream(new EventStream(exchange, writeTimeout), "board", closed -> { });
+        boardWatchers.watch(matchToWatch, new BoardStreamWatcher(stream, matchToWatch, matchID, playerID, -1,
+                getSince(exchange)));
+    }
+    
+    /**
+     * Watcher that queues every change of a board on an event stream, by registering a new watcher for the next change
+     * each time it is delivered.
+     */
+    private class BoardStreamWatcher implements BoardWatchers.Watcher {
+        
+        private final QueuedStream stream;
+        private final Match match;
+        private final String matchID;
+        private final String playerID;
+        private final long versionSent;
+        private final OptionalLong since;
+        
+        // set by check() and read by deliver(), which always happens after check() on the dispatcher thread it was handed to
+        private String winnerID;
+        
+        /**
+         * @param stream stream to send the changes to
+         * @param match match to watch
+         * @param matchID ID of match
+         * @param playerID ID of the player that is watching
+         * @param versionSent the version of the last board sent to stream, or -1 if none was sent yet
+         * @param since if the client asked for versioned boards, the version of the board the client has (negative if
+         *              it has none), otherwise empty
+         */
+        private BoardStreamWatcher(QueuedStream stream, Match match, String matchID, String playerID, long versionSent,
+                OptionalLong since) {
+            this.stream = stream;
+            this.match = match;
+            this.matchID = matchID;
+            this.playerID = playerID;
+            this.versionSent = versionSent;
+            this.since = since;
+        }
+        
+        public boolean check(long version) {
+            
+            winnerID = mapIDToWinners.get(matchID);
+            return winnerID != null || version > versionSent;
+        }
+        
+        public void deliver(MatchSnapshot snapshot) {
+            
+            // only queued here: the events are written by the executor, so a stalled client never holds the dispatcher
+            if (stream.isClosed()) {
+                return; // the client went away
+            }
+            stream.queue(getBoardUpdate(snapshot, winnerID, playerID, since));
+            if (winnerID != null) {
+                stream.queueEnd();
+            } else {
+                final long versionChecked = snapshot.getVersion();
+                final OptionalLong nextSince = since.isPresent() ? OptionalLong.of(versionChecked) : OptionalLong.empty();
+                boardWatchers.watch(match, new BoardStreamWatcher(stream, match, matchID, playerID, versionChecked, nextSince));
+            }
+        }
+    }
+    
+    /**
+     * RECEIVES: request to stream the list of matches in the form of: streamMatches
+     * SENDS: a text/event-stream response that stays open, with one "matches" event for the current list of matches,
+     *      and one more every time matches are added to or removed from the list of playable matches. The data of
+     *      each event is the same as a watchMatches response: STATE, "update", allMatches
+     * @param exchange exchange to communicate with client
+     * @throws IOException if headers cannot be sent
+     */
+    private void streamMatches(HttpExchange exchange) throws IOException {
+        
+        final QueuedStream stream = new QueuedStream(new EventStream(exchange, writeTimeout), "matches",
+                lobbyStreams::remove);
+        
+        lobbyLock.lock();
+        try {
+            // registered together with queueing its first event, so every later change of the lobby is sent to it,
+            // after the first event, so it never sees an older lobby after a newer one
+            lobbyStreams.add(stream);
+            stream.queue(getChooseResponse("update"));
+        } finally {
+            lobbyLock.unlock();
+        }
+    }
+    
+    /**
+     * Move the lobby to its next version, answer the clients waiting for the lobby to change, and send the new list of
+     * matches to every lobby event stream. Must be called while holding lobbyLock, right after the lobby changed.
+     */
+    private void signalLobbyChanged() {
+        assert lobbyLock.isHeldByCurrentThread();
+        
+        lobbyVersion++;
+        final CompletableFuture<Void> lobbyChange = nextLobbyChange;
+        nextLobbyChange = new CompletableFuture<>();
+        lobbyChange.complete(null); // hands every waiting watchMatches response to the executor
+        
+        if (!lobbyStreams.isEmpty()) {
+            final String update = getChooseResponse("update");
+            
+            // queued in the order the lobby changed; each stream sends its own events, without holding lobbyLock
+            for (QueuedStream stream : lobbyStreams) {
+                stream.queue(update);
+            }
+        }
+    }
+    
+    /**
+     * Event stream whose events are queued without blocking, and sent in order by a thread of the executor, so a
+     * client that reads slowly only holds up its own events. Lobby events are queued while holding lobbyLock, and board
+     * events on a dispatcher thread of boardWatchers, and neither may wait for a client.
+     */
+    private class QueuedStream {
+        
+        // Thread safety argument:
+        //    pending, sending and ending are guarded by this object's lock, which is never held while writing. At most
+        //    one task sends the events of a stream at a time (the one that set sending), so they are sent in the order
+        //    they were queued. stream is threadsafe, and onClose is only given this stream.
+        
+        private final EventStream stream;
+        private final String eventName;
+        private final Consumer<QueuedStream> onClose;
+        private final Queue<String> pending = new ArrayDeque<>();
+        private boolean sending;
+        private boolean ending;
+        
+        /**
+         * @param stream the event stream to send the events to
+         * @param eventName the type of every event of the stream
+         * @param onClose called with this stream once it is closed, and it stops sending
+         */
+        private QueuedStream(EventStream stream, String eventName, Consumer<QueuedStream> onClose) {
+            this.stream = stream;
+            this.eventName = eventName;
+            this.onClose = onClose;
+        }
+        
+        /**
+         * Queue an event to be sent after every event queued before it. Never blocks.
+         * @param data the data of the event
+         */
+        private void queue(String data) {
+            synchronized (this) {
+                pending.add(data);
+            }
+            startSending();
+        }
+        
+        /**
+         * End the stream once every event queued so far is sent. Never blocks.
+         */
+        private void queueEnd() {
+            synchronized (this) {
+                ending = true;
+            }
+            startSending();
+        }
+        
+        /**
+         * @return true iff the stream has ended, or its client went away
+         */
+        private boolean isClosed() {
+            return stream.isClosed();
+        }
+        
+        /**
+         * Hand the queued events to a thread of the executor, unless a task is already sending them
+         */
+        private void startSending() {
+            synchronized (this) {
+                if (sending) {
+                    return; // the task that is sending will send the new events too
+                }
+                sending = true;
+            }
+            try {
+                executor.execute(this::sendPending);
+            } catch (RejectedExecutionException e) {
+                close(); // the executor is full or stopping, so drop the client instead of falling behind
+            }
+        }
+        
+        /**
+         * Send every queued event, in order, until the queue is empty or the client goes away, and end the stream if
+         * it was asked to end
+         */
+        private void sendPending() {
+            while (true) {
+                final String data;
+                synchronized (this) {
+                    data = pending.poll();
+                    if (data == null) {
+                        sending = false;
+                        if (!ending) {
+                            return;
                         }
-                    } catch (NullPointerException e) {
-                        Thread.currentThread().interrupt(); // watch board no longer should go through, since match
-                                                            // finished already
-                        return;
                     }
-
                 }
-            }).start();
-
+                if (data == null) {
+                    close(); // every event before the end was sent
+                    return;
+                }
+                if (!stream.send(eventName, data)) {
+                    close(); // the client went away, or stopped reading
+                    return;
+                }
+            }
         }
+        
+        /**
+         * End the stream, and stop sending it events. Never waits for a send in progress.
+         */
+        private void close() {
+            stream.close();
+            synchronized (this) {
+                pending.clear();
+            }
+            onClose.accept(this);
+        }
+    }
+    
+    /**
+     * Find the version of the board a client already has, if it asked for versioned boards with the query since=VERSION
+     * @param exchange exchange to communicate with client
+     * @return the version given with since=, or -1 if it is not a number (so the client gets a snapshot), or empty if the
+     *         client didn't ask for versioned boards
+     */
+    private static OptionalLong getSince(HttpExchange exchange) {
+        final String query = exchange.getRequestURI().getQuery();
+        if (query == null) {
+            return OptionalLong.empty();
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith(SINCE_PARAMETER)) {
+                try {
+                    return OptionalLong.of(Long.parseLong(parameter.substring(SINCE_PARAMETER.length())));
+                } catch (NumberFormatException e) {
+                    return OptionalLong.of(-1);
+                }
+            }
+        }
+        return OptionalLong.empty();
     }
+    
+    /**
+     * Record that a match has finished, unless a move or a quitting player already did: remove it from the matches being
+     * played, record its winner, and tell its watchers. Must be called without holding any lock of the match, after
+     * match.isFinished() returned true.
+     * @param matchID the ID of the match
+     * @param match the finished match
+     * @return the ID of the winner of the match as recorded, or Match.calculateWinner() if the record is already gone
+     */
+    private String finishMatch(String matchID, Match match) {
+        
+        synchronized (match) {
+            
+            if (twoPlayerMatches.get(matchID) == match) {
+                
+                final String winnerID = match.calculateWinner();
+                
+                mapIDToWinners.put(matchID, winnerID);
+                twoPlayerMatches.remove(matchID);
+                
+                boardWatchers.matchChanged(match);
+                return winnerID;
+            }
+            
+            // finished by another move at the same time, or by a player quitting
+            final String recorded = mapIDToWinners.get(matchID);
+            return recorded != null ? recorded : match.calculateWinner();
+        }
+    }
+    
+    /**
+     * Get the board of a match the way a client asked for it
+     * @param snapshot snapshot of the match
+     * @param since if the client asked for versioned boards, the version of the board it has, otherwise empty
+     * @return snapshot.getUpdateSince(since) if since is present, otherwise snapshot.toString()
+     */
+    private static String getBoard(MatchSnapshot snapshot, OptionalLong since) {
+        return since.isPresent() ? snapshot.getUpdateSince(since.getAsLong()) : snapshot.toString();
+    }
+    
+    /**
+     * Get the update of a board that a watching player is sent
+     * @param snapshot snapshot of the match being watched
+     * @param winnerID the winner of the match, as recorded in mapIDToWinners, or null if the match isn't finished
+     * @param playerID the ID of the watching player
+     * @param since if the client asked for versioned boards, the version of the board it has, otherwise empty
+     * @return show_score, winner, myPlayer, score, challengePoints, otherPlayer, score2, challengePoints2
+     *      if the match is finished, otherwise
+     *      play, update, playerID, playerPoints, playerChallengePts, otherPlayerID, otherPlayerPts, otherPlayerChallengePts, board
+     */
+    private String getBoardUpdate(MatchSnapshot snapshot, String winnerID, String playerID, OptionalLong since) {
+        
+        Player currentPlayer = getPlayer(playerID);
 
+        if (winnerID != null) {
+            return getScoreResponse(snapshot, winnerID, playerID, currentPlayer);
+        }
+        else {
+            return getPlayResponse(snapshot, "update", playerID, currentPlayer, getBoard(snapshot, since));
+        }
+    }
+    
     /**
-     * Determines if the passed in player already is an existing player (unique or
-     * not)
-     * 
-     * @param player player to check uniqueness
-     * @return if the passed in player already is an existing player
+     * Get a response to a player of a match that is being played
+     * @param snapshot snapshot of a match with two players
+     * @param state the kind of response: new, update, or the result of the player's move
+     * @param playerID the ID of the player
+     * @param player the player, who is in the match
+     * @param board the board to send, as returned by getBoard()
+     * @return play, state, playerID, playerPoints, playerChallengePts, otherPlayerID, otherPlayerPts, otherPlayerChallengePts, board
+     */
+    private static String getPlayResponse(MatchSnapshot snapshot, String state, String playerID, Player player,
+            String board) {
+        
+        Player otherPlayer = snapshot.getOtherPlayer(player);
+        
+        return "play\n" + state + "\n" + playerID + "\n" + snapshot.getScore(player) + "\n"
+                + snapshot.getChallengePoints(player) + "\n" + otherPlayer.getID() + "\n"
+                + snapshot.getScore(otherPlayer) + "\n" + snapshot.getChallengePoints(otherPlayer) + "\n" + board;
+    }
+    
+    /**
+     * Get the final scores of a match that has finished, as sent to one of its players
+     * @param snapshot snapshot of the finished match
+     * @param winnerID the ID of the winner, or the text for a tie, as returned by Match.calculateWinner()
+     * @param playerID the ID of the player
+     * @param player the player, who is in the match
+     * @return show_score, winner, myPlayer, score, challengePoints, otherPlayer, score2, challengePoints2
      */
-    private boolean isUniquePlayer(Player player) {
+    private static String getScoreResponse(MatchSnapshot snapshot, String winnerID, String playerID, Player player) {
+        
+        Player otherPlayer = snapshot.getOtherPlayer(player);
         
-        synchronized (folderPath) {
+        return "show_score\n" + winnerID + "\n" + playerID + "\n" + snapshot.getScore(player) + "\n"
+                + snapshot.getChallengePoints(player) + "\n" + otherPlayer.getID() + "\n"
+                + snapshot.getScore(otherPlayer) + "\n" + snapshot.getChallengePoints(otherPlayer);
+    }
 
-            for (Player existingPlayer : allPlayers) {
-                if (player.getID().equals(existingPlayer.getID())) {
-                    return false;
+    /**
+     * Send a successful response to the client and close the exchange. Must be called without holding any lock: the
+     * response is encoded first, and only the writes to the client wait for it, for at most the write timeout.
+     * @param exchange exchange to communicate with client
+     * @param response the response to write, using UTF-8 character encoding
+     * @throws IOException if the response cannot be sent, or the client doesn't read it in time
+     */
+    private void sendResponse(HttpExchange exchange, String response) throws IOException {
+        final byte[] bytes = response.getBytes(UTF_8);
+        
+        writeTimeout.run(() -> {
+            exchange.sendResponseHeaders(VALID, 0);
+            
+            OutputStream body = exchange.getResponseBody();
+            body.write(bytes);
+            body.flush();
+            
+            exchange.close();
+        });
+    }
+    
+    /**
+     * Write a response from a thread of the executor, rather than from the thread that found out what to answer, which
+     * may be holding a lock or serving other clients. If the executor refuses the write, because its queue is full or
+     * the server is stopping, the connection is closed instead.
+     * @param exchange exchange to communicate with client
+     * @param write the write of the response, which sends its headers if needed and closes exchange
+     */
+    private void writeLater(HttpExchange exchange, WriteTimeout.Write write) {
+        try {
+            executor.execute(() -> {
+                try {
+                    write.run();
+                } catch (IOException e) {
+                    exchange.close(); // the client went away, or stopped reading
                 }
-            }
-            return true;
+            });
+        } catch (RejectedExecutionException e) {
+            exchange.close();
         }
     }
     
+    /**
+     * Send a lobby update to the client and close the exchange. Must be called without holding any lock.
+     * @param exchange exchange to communicate with client
+     * @param lobby the lobby to send, as a choose response with the state "update"
+     * @param sendHeaders true iff the headers of the response haven't been sent yet
+     * @throws IOException if the response cannot be sent, or the client doesn't read it in time
+     */
+    private void sendLobbyUpdate(HttpExchange exchange, LobbySnapshot lobby, boolean sendHeaders) throws IOException {
+        writeTimeout.run(() -> {
+            if (sendHeaders) {
+                exchange.sendResponseHeaders(VALID, 0);
+            }
+            
+            // the response is already encoded in UTF-8 by the snapshot
+            OutputStream body = exchange.getResponseBody();
+            lobby.writeUpdateTo(body);
+            body.flush();
+            
+            exchange.close();
+        });
+    }
+    
     /**
      * Parses choose responses, which includes allMatches (all the matches that can be either played or began)
      * @param state state that client should switch to
      * @return parsed choose response
      */
     private String getChooseResponse(String state) {
-
-        synchronized (folderPath) {
-
-            String visualOfPuzzles = "";
-            for (String onePuzzle : validPuzzleNames) {
-                visualOfPuzzles += onePuzzle + "\n";
-            }
-
-            String visualOfMatches = "";
-            for (String matchID : mapIDToDescription.keySet()) {
-                visualOfMatches += matchID + "\n";
-                visualOfMatches += mapIDToDescription.get(matchID) + "\n";
+        return getLobbySnapshot().getResponse(state);
+    }
+    
+    /**
+     * Get the serialized lobby: the puzzles that can be started, and the matches that can be joined. The snapshot is
+     * only rebuilt when the lobby version or the valid puzzles changed since it was last built.
+     * @return a snapshot of the current lobby
+     */
+    private LobbySnapshot getLobbySnapshot() {
+        
+        final LobbySnapshot current = lobbySnapshot;
+        if (current.isCurrent(lobbyVersion, puzzleCatalog.getValidPuzzleNames())) {
+            return current;
+        }
+        
+        lobbyLock.lock();
+        try {
+            final Set<String> validPuzzleNames = puzzleCatalog.getValidPuzzleNames();
+            if (!lobbySnapshot.isCurrent(lobbyVersion, validPuzzleNames)) { // another thread may have rebuilt it meanwhile
+                lobbySnapshot = new LobbySnapshot(lobbyVersion, validPuzzleNames, mapIDToDescription);
             }
-
-            String response = "choose\n" + state + "\n" + validPuzzleNames.size() + "\n" + visualOfPuzzles
-                    + mapIDToDescription.size() + "\n" + visualOfMatches;
-
-            return response;
+            return lobbySnapshot;
+        } finally {
+            lobbyLock.unlock();
         }
     }
     
     /**
      * Get the player that is currently playing using this server, that corresponds to a given player identifier
      * @param playerStr player identifier to match player to
-     * @return player that matches playerStr
+     * @return player that matches playerStr, or null if no player with that ID is logged in
      */
     private Player getPlayer(String playerStr) {
-
-        synchronized (folderPath) {
-            for (Player player : allPlayers) {
-                if (player.getID().equals(playerStr)) {
-                    return player;
-                }
-            }
-            return new Player("");
-        }
+        return allPlayers.get(playerStr);
     }
     
 
@@ -1304,27 +1726,4 @@ public class Server {
     }
     
     
-    /**
-     * Find all the puzzles that are valid puzzles in a folder of possible puzzles
-     * @param folderPath path to folder that holds the puzzles to check
-     * @return all the puzzles that are valid puzzles
-     * @throws IOException if we cannot properly load the match
-     * @throws UnableToParseException if we for some reason cannot parse the file puzzle
-     */
-    private static Set<String> findValidPuzzles(String folderPath) throws IOException, UnableToParseException {
-      File folder = new File(folderPath);
-      Set<String> puzzles = new HashSet<>();
-      for (File puzzle : folder.listFiles()) {
-          Match match = parse(puzzle);
-          //need to check if this match is valid
-          if (match.checkConsistency()) {
-              puzzles.add(puzzle.getName());
-          }
-          
-      }
-      return puzzles;
-      
-    }
-    
-    
 }
@@ -0,0 +1,92 @@
+package crossword;
+
+/**
+ * How thoroughly a Match checks the rep invariants of itself, its words, and its cells. The check runs once after every
+ * command that can mutate a match, never inside getters, and doesn't depend on Java assertions being enabled.
+ */
+public enum Verification {
+
+    /** never check */
+    OFF,
+
+    /** check after one in every N commands of each match, where N is the sample rate */
+    SAMPLED,
+
+    /** check after every command */
+    FULL;
+
+    /** name of the system property that selects the verification level of new matches */
+    public static final String PROPERTY = "crossword.verify";
+
+    /** name of the system property that gives N, the sample rate of SAMPLED */
+    public static final String SAMPLE_RATE_PROPERTY = "crossword.verify.sample";
+
+    /** sample rate of SAMPLED if the property is not set */
+    public static final int DEFAULT_SAMPLE_RATE = 100;
+
+    /**
+     * Find the verification level with a given name
+     * @param name name of the level, in any case
+     * @return the level called name
+     * @throws IllegalArgumentException if there is no level called name
+     */
+    public static Verification parse(String name) {
+        return Verification.valueOf(name.trim().toUpperCase());
+    }
+
+    /**
+     * Find the verification level selected by the system property crossword.verify
+     * @return the selected level; if the property is not set, FULL if Java assertions are enabled, otherwise OFF
+     * @throws IllegalArgumentException if the property does not name a level
+     */
+    public static Verification fromSystemProperty() {
+        final String name = System.getProperty(PROPERTY);
+        if (name != null) {
+            return parse(name);
+        }
+
+        boolean assertionsEnabled = false;
+        assert assertionsEnabled = true; // only runs if assertions are enabled
+        return assertionsEnabled ? FULL : OFF;
+    }
+
+    /**
+     * Find the sample rate selected by the system property crossword.verify.sample
+     * @return the selected rate, or DEFAULT_SAMPLE_RATE if the property is not set or is not a positive number
+     */
+    public static int sampleRateFromSystemProperty() {
+        final Integer rate = Integer.getInteger(SAMPLE_RATE_PROPERTY);
+        return rate == null || rate <= 0 ? DEFAULT_SAMPLE_RATE : rate;
+    }
+
+    /**
+     * Decide whether to check the rep invariant after a command
+     * @param command number of the command that just ran, counting from 1
+     * @param sampleRate N, the sample rate of SAMPLED, > 0
+     * @return true iff the rep invariant should be checked after that command at this level
+     */
+    public boolean shouldVerify(long command, int sampleRate) {
+        switch (this) {
+        case OFF:
+            return false;
+        case SAMPLED:
+            return command % sampleRate == 0;
+        case FULL:
+            return true;
+        default:
+            throw new AssertionError(this);
+        }
+    }
+
+    /**
+     * Check one condition of a rep invariant. Unlike an assert statement, runs whether or not Java assertions are enabled.
+     * @param condition the condition that must hold
+     * @param message description of the condition, for the error
+     * @throws AssertionError if condition is false
+     */
+    public static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError("rep invariant violated: " + message);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package crossword;
+
+import java.util.Arrays;
+
+/**
+ * A client's copy of the board of a match, in the format of Match.toString(), kept up to date with the versioned
+ * updates returned by Match.getUpdateSince().
+ * Not threadsafe: each copy must be confined to one thread (or guarded by its owner's lock).
+ */
+public class VersionedBoard {
+
+    // Abstraction function:
+    //    AF(version, lines) = the board of a match at version version, whose text in the format of Match.toString() is
+    //      the lines of lines, each followed by a newline; or no board yet if version is negative
+    //
+    // Rep invariant:
+    //    version < 0 iff lines is empty
+    //    if version >= 0: lines[0] is "RxC", followed by R lines of C characters, a line with the number of words n,
+    //      and 2*n lines for the words
+    //
+    // Safety from rep exposure:
+    //    all fields are private
+    //    lines is never returned; getBoard() returns a new string
+    //
+    // Thread safety argument:
+    //    not threadsafe, see the class spec
+
+    private static final String SNAPSHOT = "snapshot";
+    private static final String DELTA = "delta";
+
+    private long version;
+    private String[] lines;
+
+    /**
+     * Create a copy that has no board yet
+     */
+    public VersionedBoard() {
+        this.version = -1;
+        this.lines = new String[0];
+        checkRep();
+    }
+
+    /**
+     * Check the rep invariant
+     */
+    private void checkRep() {
+        assert (version < 0) == (lines.length == 0);
+    }
+
+    /**
+     * @return the version of the board this copy has, or a negative number if it has none yet; this is the version to
+     *         ask the server for updates since
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the board in the format of Match.toString()
+     */
+    public String getBoard() {
+        final StringBuilder board = new StringBuilder();
+        for (String line : lines) {
+            board.append(line).append('\n');
+        }
+        return board.toString();
+    }
+
+    /**
+     * Bring this copy up to date with an update from the server
+     * @param update an update in the format of Match.getUpdateSince(): either a snapshot, or a delta that starts from
+     *               the version of this copy
+     * @return the updated board, in the format of Match.toString()
+     * @throws IllegalArgumentException if update is a delta that doesn't start from the version of this copy, or is
+     *         not a valid update
+     */
+    public String apply(String update) {
+        final String[] updateLines = update.split("\n", -1);
+        final int end = update.endsWith("\n") ? updateLines.length - 1 : updateLines.length; // drop the empty string after the last newline
+        final String[] header = updateLines[0].split(" ");
+
+        if (header[0].equals(SNAPSHOT)) {
+            version = Long.parseLong(header[1]);
+            lines = Arrays.copyOfRange(updateLines, 1, end);
+        } else if (header[0].equals(DELTA) && version >= 0 && Long.parseLong(header[1]) == version) {
+            final int numberLines = Integer.parseInt(updateLines[1]);
+            for (int i = 0; i < numberLines; i++) {
+                applyChange(updateLines[2 + i]);
+            }
+            version = Long.parseLong(header[2]);
+        } else {
+            throw new IllegalArgumentException("cannot apply update to version " + version + ": " + updateLines[0]);
+        }
+
+        checkRep();
+        return getBoard();
+    }
+
+    /**
+     * Apply one line of changes of a delta
+     * @param change a "cell" or "word" line of a delta
+     */
+    private void applyChange(String change) {
+        final String[] fields = change.split(" ", -1);
+        final int rows = Integer.parseInt(lines[0].split("x")[0]);
+
+        if (fields[0].equals("cell")) {
+            final int row = Integer.parseInt(fields[1]);
+            final int col = Integer.parseInt(fields[2]);
+            final StringBuilder rowLine = new StringBuilder(lines[1 + row]);
+            rowLine.replace(col, col + 1, fields[3]);
+            lines[1 + row] = rowLine.toString();
+        } else if (fields[0].equals("word")) {
+            // the line of the word with ID id: start row, start column, and direction stay, the rest is replaced
+            final int id = Integer.parseInt(fields[1]);
+            final int wordLine = 1 + rows + 1 + 2 * (id - 1);
+            final String[] wordFields = lines[wordLine].split(" ", 4);
+            lines[wordLine] = wordFields[0] + " " + wordFields[1] + " " + wordFields[2] + " "
+                    + change.substring("word ".length());
+        } else {
+            throw new IllegalArgumentException("unknown change: " + change);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package crossword;
 
+import static crossword.Verification.check;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -17,6 +19,10 @@ public class Word {
     //      confirmed and owner refer to if this word has been confirmed by either a challenge or a completed game with
     //      owner referencing the player who is "guessing" this word. The particular cells on the match board that this word is part of
     //      is stored within involvedCells, so [involvedCells.get(0), involvedCells.get(1), ...] forms the word on the board
+    //      sharingCells are the cells that have this word as one of their words, and keep track of its owner and whether it
+    //      is confirmed (in a match, these are the cells in involvedCells)
+    //      correctLetters is the number of cells of the word that hold the correct letter, and match is the Match to tell
+    //      when the word becomes correct or stops being correct (or null if the word is not part of a match)
     //      
     // Representation invariant:
     //    startRow >= 0 && startCol >= 0
@@ -26,22 +32,29 @@ public class Word {
     //          in other words, we must have that (involvedCells.get(i).getRow() == involvedCells.get(i+1).getRow() AND involvedCells.get(i).getCol() < involvedCells.get(i+1).getCol())
     //          OR (involvedCells.get(i).getRow() < involvedCells.get(i+1).getRow() AND involvedCells.get(i).getCol() == involvedCells.get(i+1).getCol())
     //    involvedCells.size() == correctValue.length()
+    //    correctLetters is the number of i such that involvedCells.get(i).getCurrentValue() == correctValue.charAt(i)
     //    if a cell is confirmed, it must have an owner, and the getValue must be the correctValue
     //
     // Safety from rep exposure:
     //    startRow, startCol, id, hint, correctValue, and direction are all private and final
     //    confirmed and owner are private and are only changed using methods of the class
+    //    sharingCells is private and final, and never returned; the cells in it are shared with the Match on purpose, so
+    //      that they can be told when the owner or confirmed flag of this word changes
     //    All methods take in and return immutable types, so it's safe to directly alias them and does not threaten SRE
     //   
     // Thread safety argument:
-    //   This class is not threadsafe, but it's OK because only Match accesses Word methods, and Match is threadsafe. This ensures that at most 
-    //   one thread is looking at a Word at a time.
+    //   This class is not threadsafe, but it's OK because only Match accesses Word methods, and Match is threadsafe. Match
+    //   keeps a lock for every word, and only touches a word while holding its lock (or the lock of the whole board), which
+    //   ensures that at most one thread is looking at a Word at a time.
     
     public enum Direction {ACROSS, DOWN}
     public enum ChallengeResult {INVALID, INCORRECT, CORRECT}
     public enum TryResult {WRONG_ID, INCORRECT_LENGTH, INCONSISTENT_CURRENT, SUCCESS}
 
     private final List<Cell> involvedCells;
+    private final List<Cell> sharingCells;
+    private int correctLetters;
+    private Match match;
     private final int startRow;
     private final int startCol;
     private final int id;
@@ -69,6 +82,7 @@ public class Word {
         assert pDirection.equals("ACROSS") || pDirection.equals("DOWN");
         this.direction = pDirection.equals("ACROSS") ? Direction.ACROSS : Direction.DOWN;
         this.involvedCells = new ArrayList<>();
+        this.sharingCells = new ArrayList<>();
         
         this.confirmed = false;
         this.owner = Optional.empty();
@@ -78,29 +92,39 @@ public class Word {
     
     
     /**
-     * Check the rep invariant for Word
+     * Check the rep invariant for Word. Only called by the Match this word belongs to, once it has added every involved
+     * cell, at the end of a command; runs whether or not Java assertions are enabled.
+     * @throws AssertionError if the rep invariant is violated
      */
-    private void checkRep() {
-        assert this.startRow >= 0 && this.startCol >= 0;
-        assert this.id >= 1;
-        assert this.direction != null;
+    void checkRep() {
+        check(this.startRow >= 0 && this.startCol >= 0, "word starts inside the board");
+        check(this.id >= 1, "id >= 1");
+        check(this.direction != null, "word has a direction");
+        
+        check(involvedCells.size() == correctValue.length(), "one cell per letter");
         
-        assert involvedCells.size() == correctValue.length();
+        int correct = 0;
+        for(int i = 0; i < involvedCells.size(); i++) {
+            correct += involvedCells.get(i).getCurrentValue() == correctValue.charAt(i) ? 1 : 0;
+        }
+        check(correct == correctLetters, "correctLetters counts the correct letters");
         if(this.confirmed) {
-            assert this.owner.isPresent();
+            check(this.owner.isPresent(), "a confirmed word has an owner");
         }
         
         for(int i = 0; i < involvedCells.size()-1; i++) {
             if(this.direction == Direction.ACROSS) {
-                assert (involvedCells.get(i).getRow() == involvedCells.get(i+1).getRow() && involvedCells.get(i).getCol() + 1 == involvedCells.get(i+1).getCol());
+                check(involvedCells.get(i).getRow() == involvedCells.get(i+1).getRow() && involvedCells.get(i).getCol() + 1 == involvedCells.get(i+1).getCol(),
+                        "cells of an ACROSS word are consecutive in a row");
             }
             else {
-                assert (involvedCells.get(i).getRow() + 1 == involvedCells.get(i+1).getRow() && involvedCells.get(i).getCol() == involvedCells.get(i+1).getCol());
+                check(involvedCells.get(i).getRow() + 1 == involvedCells.get(i+1).getRow() && involvedCells.get(i).getCol() == involvedCells.get(i+1).getCol(),
+                        "cells of a DOWN word are consecutive in a column");
             }
         }
         
         if(this.confirmed) {
-            assert correctValue.equals(this.getCurrentValue());
+            check(correctValue.equals(this.getCurrentValue()), "a confirmed word holds its correct value");
         }
                 
     }
@@ -110,8 +134,6 @@ public class Word {
      * @return the ID of the word
      */
     public int getID() {
-        checkRep();
-        
         return id;
     }
     
@@ -120,8 +142,6 @@ public class Word {
      * @return the correct value
      */
     public String getCorrectValue() {
-        checkRep();
-
         return correctValue;
     }
     
@@ -131,8 +151,6 @@ public class Word {
      * @return the correct character
      */
     public char getCorrectCharAt(int i) {
-        checkRep();
-
         return correctValue.charAt(i);
     }
     
@@ -168,8 +186,6 @@ public class Word {
      * @return the hint
      */
     public String getHint() {
-        checkRep();
-
         return hint;
     }
     
@@ -228,7 +244,6 @@ public class Word {
      * @return whether or not the word has been confirmed
      */
     public boolean isConfirmed() {
-        checkRep();
         return confirmed;
     }
     
@@ -238,7 +253,7 @@ public class Word {
      */
     public void setOwner(Player newOwner) {
         owner = Optional.of(newOwner);
-        checkRep();
+        updateSharingCells();
     }
     
     /**
@@ -246,7 +261,6 @@ public class Word {
      * @return true iff the word has an owner
      */
     public boolean hasOwner() {
-        checkRep();
         return owner.isPresent();
     }
     
@@ -255,7 +269,7 @@ public class Word {
      */
     public void clearOwner() {
         owner = Optional.empty();
-        checkRep();
+        updateSharingCells();
     }
     
     /**
@@ -264,7 +278,6 @@ public class Word {
      * @return the owner of the word
      */
     public Player getOwner() {
-        checkRep();
         if(!hasOwner()) {
             throw new RuntimeException("Tried calling get owner on a word that isn't owned!");
         }
@@ -276,7 +289,25 @@ public class Word {
      */
     public void setConfirmed() {
         confirmed = true;
-        checkRep();
+        updateSharingCells();
+    }
+    
+    /**
+     * Add a cell that has this word as one of its words, to be told every time the owner of this word changes or it is
+     * confirmed. Called by Cell.addWord().
+     * @param cell the cell to tell
+     */
+    void addSharingCell(Cell cell) {
+        sharingCells.add(cell);
+    }
+    
+    /**
+     * Tell every cell that has this word as one of its words about the current owner and confirmed flag of this word
+     */
+    private void updateSharingCells() {
+        for(Cell cell : sharingCells) {
+            cell.wordChanged(this);
+        }
     }
     
 //    public void addInvolvedCells(Match currentMatch) {
@@ -302,6 +333,11 @@ public class Word {
      */
     public void addInvolvedCell(Cell cell) {
         involvedCells.add(cell);
+        
+        final int index = involvedCells.size() - 1;
+        if(index < correctValue.length() && cell.getCurrentValue() == correctValue.charAt(index)) {
+            correctLetters++;
+        }
 //        checkRep();
     }
     
@@ -310,13 +346,55 @@ public class Word {
      * @return the value of the string stored within the cells
      */
     public String getCurrentValue() {
-        String wordValue = "";
+        final StringBuilder wordValue = new StringBuilder(involvedCells.size());
         
         for(Cell cell : involvedCells) {
-            wordValue += cell.getCurrentValue();
+            wordValue.append(cell.getCurrentValue());
         }
         
-        return wordValue;
+        return wordValue.toString();
+    }
+    
+    /**
+     * Check whether the cells of this word hold its correct value, even if nobody owns it. Takes constant time.
+     * @return true iff getCurrentValue() equals getCorrectValue()
+     */
+    public boolean isCorrect() {
+        return correctLetters == correctValue.length();
+    }
+    
+    /**
+     * Set the match to tell every time this word becomes correct or stops being correct (see isCorrect())
+     * @param currentMatch the match this word is part of
+     */
+    void setMatch(Match currentMatch) {
+        this.match = currentMatch;
+    }
+    
+    /**
+     * Update the count of correct letters after the value of a cell changed. Called by the cell.
+     * @param cell a cell that has this word as one of its words
+     * @param oldValue the value the cell had
+     * @param newValue the value the cell has now, different from oldValue
+     */
+    void letterChanged(Cell cell, char oldValue, char newValue) {
+        final int index = isHorizontal() ? cell.getCol() - startCol : cell.getRow() - startRow;
+        if(index < 0 || index >= involvedCells.size() || involvedCells.get(index) != cell) {
+            return; // not one of the letters of this word
+        }
+        
+        final boolean wasCorrect = isCorrect();
+        final char correctLetter = correctValue.charAt(index);
+        if(oldValue == correctLetter) {
+            correctLetters--;
+        }
+        if(newValue == correctLetter) {
+            correctLetters++;
+        }
+        
+        if(match != null && wasCorrect != isCorrect()) {
+            match.wordCorrectnessChanged(this);
+        }
     }
     
     /**
@@ -327,8 +405,6 @@ public class Word {
      * what was on the board (already confirmed, or owned by other player), SUCCESS if it is consistent
      */
     public TryResult checkConsistentInsert(Player player, String tryWord) {
-        checkRep();
-        
         if(this.isConfirmed() || (this.hasOwner() && !player.equals(this.getOwner()))) { // check if it's already confirmed or has a different owner
             return TryResult.INCONSISTENT_CURRENT;
         }
@@ -356,8 +432,6 @@ public class Word {
      * cleared if it has an owner. Then, it will set the word to have no owner.
      */
     public void clearThisInsertedWord() {
-        checkRep();
-        
         if(!hasOwner()) {
             return;
         }
@@ -389,7 +463,6 @@ public class Word {
         }
         
         setOwner(player);
-        checkRep();
     }
     
     /**
@@ -400,8 +473,6 @@ public class Word {
      * what was on the board (already confirmed, or owned by other player), SUCCESS if it is consistent (and it was inserted onto the board)
      */
     public TryResult tryInsertNewWord(Player player, String tryWord) {
-        checkRep();
-        
         final TryResult consistencyCheck = checkConsistentInsert(player, tryWord);
         
         if(consistencyCheck != TryResult.SUCCESS) {
@@ -409,7 +480,6 @@ public class Word {
         }
         
         byPassInsert(player, tryWord);
-        checkRep();
         return consistencyCheck;
     }
     
@@ -420,8 +490,6 @@ public class Word {
      * @return true iff it is a consistent challenge
      */
     public boolean checkConsistentChallenge(Player player, String challengeWord) {
-        checkRep();
-        
         if(!this.hasOwner() || player.equals(this.getOwner())) {
             return false;
         }
@@ -447,8 +515,6 @@ public class Word {
      * incorrect, and CORRECT if the challenge is correct)
      */
     public ChallengeResult tryChallenge(Player player, String challengeWord, Match currentMatch) {
-        checkRep();
-        
         if(!checkConsistentChallenge(player, challengeWord)) { // the challenge was inconsistent, so it was invalid
             return ChallengeResult.INVALID;
         }
@@ -479,7 +545,6 @@ public class Word {
     
     @Override
     public String toString() {
-        checkRep();
         return this.id + ". " + this.correctValue + " at (" + this.startRow + "," + this.startCol + "), in the " + this.direction.name()
                 + " direction, with the hint: " + this.hint;
     }
@@ -0,0 +1,141 @@
+package crossword.web;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Server-Sent Events stream: an HTTP response that stays open, and carries one text/event-stream event per send().
+ * Threadsafe.
+ */
+public class EventStream {
+
+    // Abstraction function:
+    //    AF(exchange, out, writeTimeout, sendLock, closed, exchangeClosed) = the event stream sent to the client of
+    //      exchange, through out, with every write bounded by writeTimeout, which has ended iff closed; the response
+    //      to the client has been finished iff exchangeClosed
+    //
+    // Rep invariant:
+    //    exchangeClosed implies closed
+    //
+    // Safety from rep exposure:
+    //    all fields are private; exchange, out, writeTimeout and sendLock are final and never returned
+    //    exchange is taken in by the constructor, but the stream takes over answering it
+    //
+    // Thread safety argument:
+    //    sends are serialized by sendLock, so events are written whole and one at a time. sendLock is a ReentrantLock
+    //    rather than this object's monitor, so a virtual thread blocked writing to a client doesn't pin its carrier.
+    //    closed is volatile, and close() and isClosed() never take sendLock, so they never wait for a write in
+    //    progress: close() only marks the stream closed, and the exchange is closed by whichever thread next holds
+    //    sendLock while the stream is idle (see closeIfIdle()), so it is never closed under a write, and exactly once,
+    //    since exchangeClosed is guarded by sendLock. A write to a client that stopped reading gives up when
+    //    writeTimeout says so, so a stalled client holds sendLock (and the thread sending to it) for a bounded time.
+
+    private static final int OK = 200;
+
+    private final HttpExchange exchange;
+    private final Writer out;
+    private final WriteTimeout writeTimeout;
+    private final ReentrantLock sendLock = new ReentrantLock();
+    private volatile boolean closed;
+    private boolean exchangeClosed;
+
+    /**
+     * Start an event stream as the response to an exchange, by sending its headers. The exchange must not have been
+     * answered yet.
+     * @param exchange the exchange to answer with a stream of events
+     * @param writeTimeout deadline for every write to the client
+     * @throws IOException if the headers cannot be sent
+     */
+    public EventStream(HttpExchange exchange, WriteTimeout writeTimeout) throws IOException {
+        this.exchange = exchange;
+        this.writeTimeout = writeTimeout;
+
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        writeTimeout.run(() -> exchange.sendResponseHeaders(OK, 0));
+
+        this.out = new OutputStreamWriter(exchange.getResponseBody(), UTF_8);
+    }
+
+    /**
+     * Send one event to the client. Every line of data becomes one data line of the event, so the client gets data
+     * back exactly, newlines included. If the event cannot be written in time, the client is gone or has stopped
+     * reading, and the stream is closed.
+     * @param name the type of the event, must not contain newlines
+     * @param data the payload of the event
+     * @return true iff the event was written; false if the stream was already closed, or closed because of this write
+     */
+    public boolean send(String name, String data) {
+        if (closed) {
+            return false;
+        }
+
+        final StringBuilder event = new StringBuilder();
+        event.append("event: ").append(name).append('\n');
+        for (String line : data.split("\n", -1)) {
+            event.append("data: ").append(line).append('\n');
+        }
+        event.append('\n');
+
+        final String text = event.toString();
+        boolean sent = false;
+        sendLock.lock();
+        try {
+            if (!closed) {
+                writeTimeout.run(() -> {
+                    out.write(text);
+                    out.flush();
+                });
+                sent = true;
+            }
+        } catch (IOException e) {
+            closed = true;
+        } finally {
+            sendLock.unlock();
+        }
+        closeIfIdle();
+        return sent;
+    }
+
+    /**
+     * End the stream. Does nothing if it has already ended. Never waits for a send in progress: if another thread is
+     * writing an event, the stream ends as soon as that write does.
+     */
+    public void close() {
+        closed = true;
+        closeIfIdle();
+    }
+
+    /**
+     * @return true iff the stream has ended, or is ending once a send in progress is done
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Close the exchange if the stream is closed and no other thread is sending. A thread that is sending calls this
+     * again once it is done, so a closed stream always ends up with its exchange closed.
+     */
+    private void closeIfIdle() {
+        if (!closed || !sendLock.tryLock()) {
+            return;
+        }
+        try {
+            if (!exchangeClosed) {
+                exchangeClosed = true;
+                writeTimeout.run(exchange::close); // ending the response writes its last chunk
+            }
+        } catch (IOException e) {
+            // the client went away, or stopped reading, and the connection is dropped instead
+        } finally {
+            sendLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package crossword.web;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deadline for writing responses, so a client that stops reading cannot hold the thread writing to it forever.
+ * A write that hasn't finished when its deadline passes is interrupted. The server writes to the socket channel of an
+ * exchange, and interrupting a thread blocked writing to a channel closes the channel, so the write fails with an
+ * IOException and the connection is dropped. Threadsafe.
+ */
+public class WriteTimeout {
+
+    // Abstraction function:
+    //    AF(timeoutMillis, watchdog, timeouts) = deadlines of timeoutMillis milliseconds for writes, enforced by the
+    //      thread of watchdog; timeouts writes have missed their deadline so far
+    //
+    // Rep invariant:
+    //    timeoutMillis > 0
+    //    timeouts >= 0
+    //
+    // Safety from rep exposure:
+    //    all fields are private final, and never returned; timeoutMillis is immutable
+    //
+    // Thread safety argument:
+    //    timeoutMillis is final and immutable, watchdog is a threadsafe executor, configured before it is shared, and timeouts is an atomic counter.
+    //    The state of each write is a Deadline, shared only by the writing thread and the watchdog; see Deadline.
+
+    /**
+     * A write to a client, which may block while the client isn't reading.
+     */
+    @FunctionalInterface
+    public interface Write {
+
+        /**
+         * Write to the client
+         * @throws IOException if the write fails
+         */
+        void run() throws IOException;
+    }
+
+    private final long timeoutMillis;
+    private final ScheduledThreadPoolExecutor watchdog;
+    private final AtomicLong timeouts = new AtomicLong();
+
+    /**
+     * Make deadlines for writes
+     * @param timeoutMillis how long a write may take, in milliseconds, > 0
+     */
+    public WriteTimeout(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+        this.watchdog = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread thread = new Thread(runnable, "write-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // almost every write finishes in time, and a cancelled alarm would otherwise stay queued, holding its writer
+        // thread, until its deadline passes
+        this.watchdog.setRemoveOnCancelPolicy(true);
+        checkRep();
+    }
+
+    /**
+     * Check the rep invariant
+     */
+    private void checkRep() {
+        assert timeoutMillis > 0;
+        assert timeouts.get() >= 0;
+    }
+
+    /**
+     * Run a write on the calling thread, interrupting it if it hasn't finished within the timeout. Once this returns,
+     * the calling thread is never interrupted by the deadline of this write, so a pooled thread can run another task.
+     * @param write the write to run; must only block on channel I/O, which an interrupt ends
+     * @throws SocketTimeoutException if the write was interrupted because it missed its deadline
+     * @throws IOException if the write fails for any other reason
+     */
+    public void run(Write write) throws IOException {
+        final Deadline deadline = new Deadline(Thread.currentThread());
+        final ScheduledFuture<?> alarm = watchdog.schedule(deadline::expire, timeoutMillis, TimeUnit.MILLISECONDS);
+
+        boolean expired = false;
+        try {
+            write.run();
+        } catch (IOException e) {
+            expired = deadline.finish();
+            if (expired) {
+                final SocketTimeoutException timeout = new SocketTimeoutException(
+                        "write took longer than " + timeoutMillis + " ms");
+                timeout.initCause(e);
+                throw timeout;
+            }
+            throw e;
+        } finally {
+            alarm.cancel(false);
+            expired |= deadline.finish();
+            if (expired) {
+                timeouts.incrementAndGet();
+                Thread.interrupted(); // the interrupt was meant for the write, not for whatever the thread does next
+            }
+        }
+    }
+
+    /**
+     * @return the number of writes that have missed their deadline so far
+     */
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    /**
+     * @return the number of deadlines of writes currently pending; a write that has finished no longer has one
+     */
+    public int getPendingDeadlines() {
+        return watchdog.getQueue().size();
+    }
+
+    /**
+     * Stop enforcing deadlines. Writes that are still running are never interrupted.
+     */
+    public void shutdown() {
+        watchdog.shutdownNow();
+    }
+
+    /**
+     * State of the deadline of one write. expire() and finish() are synchronized, so the writing thread is only
+     * interrupted while the write is running, and the writer always finds out whether it was.
+     */
+    private static class Deadline {
+        private final Thread writer;
+        private boolean finished;
+        private boolean expired;
+
+        /**
+         * @param writer the thread running the write
+         */
+        private Deadline(Thread writer) {
+            this.writer = writer;
+        }
+
+        /**
+         * Interrupt the write, unless it has already finished
+         */
+        private synchronized void expire() {
+            if (!finished) {
+                expired = true;
+                writer.interrupt();
+            }
+        }
+
+        /**
+         * Mark the write finished, so it is never interrupted from now on
+         * @return true iff the write was interrupted because it missed its deadline
+         */
+        private synchronized boolean finish() {
+            finished = true;
+            return expired;
+        }
+    }
+}
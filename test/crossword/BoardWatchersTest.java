@@ -0,0 +1,203 @@
+package crossword;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import crossword.Word.TryResult;
+
+/**
+ * Tests for the registry of clients watching boards
+ */
+public class BoardWatchersTest {
+
+    /*
+     * Testing strategy for BoardWatchers:
+     *
+     * Test watch()
+     *  change already happened, change hasn't happened yet
+     *  number of watchers of the match: 1, >1 (10k)
+     *
+     * Test matchChanged()
+     *  board changed, board didn't change (failed move)
+     *  match has watchers, match has no watchers
+     *
+     * Test getWakeups()
+     *  moves that change nothing: 0 wakeups; move that changes the board: 1 wakeup per waiting watcher
+     *
+     * Test thread usage
+     *  10k watchers waiting at once: number of dispatcher threads stays bounded by the pool, and only dispatcher
+     *      threads deliver
+     */
+
+    private static final long TIMEOUT_SECONDS = 30;
+    private static final int DISPATCHER_THREADS = 2;
+    private static final String DISPATCHER_THREAD_PREFIX = "board-watchers-";
+
+    //covers watch()
+    //      change hasn't happened yet, 1 watcher
+    //covers matchChanged()
+    //      board didn't change, then board changed
+    //covers getWakeups()
+    //      moves that change nothing, then a move that changes the board
+    @Test
+    public void testDeliveredOnlyAfterBoardChanges() throws InterruptedException {
+        final BoardWatchers watchers = new BoardWatchers(DISPATCHER_THREADS);
+        final Match match = makeMatch(watchers);
+        final Player player = new Player("player");
+        match.addPlayer(player);
+
+        final ConcurrentLinkedQueue<String> delivered = new ConcurrentLinkedQueue<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        watchers.watch(match, new BoardChangeWatcher(match, match.getVersion(), delivered, done));
+        assertEquals(1, watchers.getNumberWatchers(match));
+
+        assertEquals(TryResult.INCORRECT_LENGTH, match.tryInsert(player, 1, "stars"));
+        assertEquals(TryResult.WRONG_ID, match.tryInsert(player, 0, "star"));
+        match.getScore(player);
+        assertEquals(0, watchers.getWakeups(), "moves that change nothing shouldn't wake the watcher");
+        assertEquals(TryResult.SUCCESS, match.tryInsert(player, 1, "star"));
+
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(List.of(match.toString()), new ArrayList<>(delivered));
+        assertEquals(0, watchers.getNumberWatchers(match));
+        assertEquals(1, watchers.getWakeups());
+        watchers.shutdown();
+    }
+
+    //covers watch()
+    //      change already happened
+    //covers matchChanged()
+    //      match has no watchers
+    @Test
+    public void testChangeAlreadyHappened() throws InterruptedException {
+        final BoardWatchers watchers = new BoardWatchers(DISPATCHER_THREADS);
+        final Match match = makeMatch(watchers);
+        final Player player = new Player("player");
+        match.addPlayer(player);
+
+        final long before = match.getVersion();
+        assertEquals(TryResult.SUCCESS, match.tryInsert(player, 1, "star"));
+
+        final ConcurrentLinkedQueue<String> delivered = new ConcurrentLinkedQueue<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        watchers.watch(match, new BoardChangeWatcher(match, before, delivered, done));
+
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(List.of(match.toString()), new ArrayList<>(delivered));
+        assertEquals(0, watchers.getNumberWatchers(match));
+        watchers.shutdown();
+    }
+
+    //covers watch(), matchChanged(), thread usage
+    //      10k watchers, board changed
+    @Test
+    public void testTenThousandWatchersBoundedThreads() throws InterruptedException {
+        final int numWatchers = 10_000;
+        final BoardWatchers watchers = new BoardWatchers(DISPATCHER_THREADS);
+        final Match match = makeMatch(watchers);
+        final Player player = new Player("player");
+        match.addPlayer(player);
+
+        // only the threads of registries are counted, since other tests may leave servers whose threads come and go
+        final long threadsBefore = countDispatcherThreads();
+        final long version = match.getVersion();
+        final ConcurrentLinkedQueue<String> delivered = new ConcurrentLinkedQueue<>();
+        final Set<Thread> delivering = ConcurrentHashMap.newKeySet();
+        final CountDownLatch done = new CountDownLatch(numWatchers);
+
+        for (int i = 0; i < numWatchers; i++) {
+            watchers.watch(match, new BoardChangeWatcher(match, version, delivered, done) {
+                @Override
+                public void deliver(MatchSnapshot snapshot) {
+                    delivering.add(Thread.currentThread());
+                    super.deliver(snapshot);
+                }
+            });
+        }
+        assertEquals(numWatchers, watchers.getNumberWatchers(match));
+        assertTrue(countDispatcherThreads() <= threadsBefore + DISPATCHER_THREADS,
+                "waiting watchers should not hold threads");
+
+        assertEquals(TryResult.SUCCESS, match.tryInsert(player, 1, "star"));
+
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(numWatchers, delivered.size());
+        assertTrue(delivering.size() <= DISPATCHER_THREADS, "delivering watchers should only use the dispatcher threads");
+        for (Thread thread : delivering) {
+            assertTrue(thread.getName().startsWith(DISPATCHER_THREAD_PREFIX), thread.getName());
+        }
+        assertTrue(countDispatcherThreads() <= threadsBefore + DISPATCHER_THREADS,
+                "delivering watchers should only use the dispatcher threads");
+        assertEquals(0, watchers.getNumberWatchers(match));
+        watchers.shutdown();
+    }
+
+    @Test
+    public void testAssertionsEnabled() {
+        assertThrows(AssertionError.class, () -> { assert false; },
+                "make sure assertions are enabled with VM argument '-ea'");
+    }
+
+    /**
+     * Helper method to make a one-word match whose moves are signaled to a registry of watchers
+     * @param watchers the registry to signal
+     * @return a new match with the single word "star" across
+     */
+    private static Match makeMatch(BoardWatchers watchers) {
+        final List<WordTuple> words = new ArrayList<>();
+        words.add(new WordTuple(0, 0, "twinkle", "star", "ACROSS"));
+        final Match match = new Match("Match name", "Match description", words);
+        match.addChangeListener(() -> watchers.matchChanged(match));
+        return match;
+    }
+
+    /**
+     * Helper method to count threads
+     * @return the number of live dispatcher threads of every registry
+     */
+    private static long countDispatcherThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith(DISPATCHER_THREAD_PREFIX)).count();
+    }
+
+    /**
+     * Watcher that waits for the board to be newer than the version it was created with, and records the board it
+     * delivered.
+     */
+    private static class BoardChangeWatcher implements BoardWatchers.Watcher {
+        private final Match match;
+        private final long versionSeen;
+        private final ConcurrentLinkedQueue<String> delivered;
+        private final CountDownLatch done;
+
+        private BoardChangeWatcher(Match match, long versionSeen, ConcurrentLinkedQueue<String> delivered,
+                CountDownLatch done) {
+            this.match = match;
+            this.versionSeen = versionSeen;
+            this.delivered = delivered;
+            this.done = done;
+        }
+
+        @Override
+        public boolean check(long version) {
+            return version > versionSeen;
+        }
+
+        @Override
+        public void deliver(MatchSnapshot snapshot) {
+            delivered.add(snapshot.toString());
+            done.countDown();
+        }
+    }
+}
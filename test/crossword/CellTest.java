@@ -1,6 +1,8 @@
 package crossword;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
@@ -52,9 +54,15 @@ public class CellTest {
      *  is blank, is not blank
      * 
      * Test addWord() - covered by a few overlapping test cases like testChangeValueNoChange()
+     *  cell already in two words
+     * 
+     * Test isOverfull()
+     *  cell in two words, cell in three words
      * 
      * Test canChangeValue()
      *  can change, cannot change
+     *  words of the cell: owned by different players, owner cleared, confirmed
+     *  word owned before or after it was added to the cell
      *  
      * Test toString()
      *  contains absent cell
@@ -140,6 +148,27 @@ public class CellTest {
         assertTrue(tester.changeValue('h', player));
     }
     
+    //covers addWord(), isOverfull()
+    //  cell already in two words
+    @Test
+    public void testAddWordThirdWord() {
+        Cell tester = new Cell(0,0,Exist.PRESENT);
+        Word first = new Word(0, 0, "hint", 1, "cat", "ACROSS");
+        Word third = new Word(0, 0, "hint", 3, "cub", "DOWN");
+        tester.addWord(first);
+        tester.addWord(new Word(0, 0, "hint", 2, "cow", "DOWN"));
+        assertFalse(tester.isOverfull());
+        
+        tester.addWord(third);
+        assertTrue(tester.isOverfull());
+        
+        Player player = new Player("player");
+        third.tryInsertNewWord(player, "cub");
+        assertTrue(tester.isOwned(), "the third word still owns the cell");
+        assertFalse(tester.canChangeValue(new Player("other")));
+        tester.checkRep();
+    }
+    
     //covers changeValue(), value changes
     //  canChangeValue is true, this has already been changed
     //  covers addWord()
@@ -309,6 +338,39 @@ public class CellTest {
         
     }
     
+    //covers canChangeValue(), isOwned()
+    //  owned by different players, owner cleared, confirmed, owned before and after it was added to the cell
+    @Test
+    public void testCanChangeValueTwoOwners() {
+        
+        Cell tester = new Cell(1,2,Exist.PRESENT);
+        Word firstWord = new Word(1, 2, "hint", 1, "aw", "ACROSS");
+        Word secondWord = new Word(0, 2, "hint", 2, "ca", "DOWN");
+        Player first = new Player("first");
+        Player second = new Player("second");
+        
+        firstWord.setOwner(first);
+        tester.addWord(firstWord);
+        tester.addWord(secondWord);
+        secondWord.setOwner(second);
+        
+        assertTrue(tester.isOwned());
+        assertTrue(!tester.canChangeValue(first));
+        assertTrue(!tester.canChangeValue(second));
+        
+        secondWord.clearOwner();
+        assertTrue(tester.isOwned());
+        assertTrue(tester.canChangeValue(first));
+        assertTrue(!tester.canChangeValue(second));
+        
+        firstWord.setConfirmed();
+        assertTrue(!tester.canChangeValue(first));
+        
+        firstWord.clearOwner();
+        assertTrue(!tester.isOwned());
+        assertTrue(!tester.canChangeValue(second));
+    }
+    
     //covers getCurrentValue()
     //  is a ?
     @Test
@@ -7,6 +7,8 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
@@ -23,6 +25,15 @@ public class ClientManagerTest {
      *  - 0 lines
      *  - 1 line
      *  - > 1 line
+     * 
+     * receiveEvents:
+     *  - number of events: 0, 1, > 1
+     *  - lines of data per event: 1, > 1
+     *  - fields other than data: none, event name, comment
+     *  - consumer: reads every event, stops early
+     * 
+     * withWholeBoard:
+     *  - response: not a play response, play response with a snapshot, play response with a delta
      */
     
     @Test
@@ -74,4 +85,80 @@ public class ClientManagerTest {
         
         assertEquals(expected, result);
     }
+    
+    /*
+     * Paritions covered: 0 events
+     */
+    @Test
+    public void testReceiveEvents0() throws IOException {
+        final BufferedReader bfReader = new BufferedReader(new StringReader(""));
+        final List<String> events = new ArrayList<>();
+        
+        ClientManager.receiveEvents(bfReader, events::add);
+        
+        assertEquals(List.of(), events);
+    }
+    
+    /*
+     * Paritions covered: 1 event, > 1 lines of data (including an empty last line)
+     */
+    @Test
+    public void testReceiveEventsEmptyLastLine() throws IOException {
+        final String readerText = "data: choose\ndata: update\ndata: \n\n";
+        final BufferedReader bfReader = new BufferedReader(new StringReader(readerText));
+        final List<String> events = new ArrayList<>();
+        
+        ClientManager.receiveEvents(bfReader, events::add);
+        
+        assertEquals(List.of("choose\nupdate\n"), events);
+    }
+    
+    /*
+     * Paritions covered: 1 event, > 1 lines of data, event name, reads every event
+     */
+    @Test
+    public void testReceiveEvents1() throws IOException {
+        final String readerText = "event: board\ndata: play\ndata: update\ndata: 2x3\n\n";
+        final BufferedReader bfReader = new BufferedReader(new StringReader(readerText));
+        final List<String> events = new ArrayList<>();
+        
+        ClientManager.receiveEvents(bfReader, events::add);
+        
+        assertEquals(List.of("play\nupdate\n2x3"), events);
+    }
+    
+    /*
+     * Paritions covered: > 1 events, 1 line of data, comment, stops early
+     */
+    @Test
+    public void testReceiveEventsStopsEarly() throws IOException {
+        final String readerText = ": comment\ndata: first\n\ndata:second\n\ndata: third\n\n";
+        final BufferedReader bfReader = new BufferedReader(new StringReader(readerText));
+        final List<String> events = new ArrayList<>();
+        
+        ClientManager.receiveEvents(bfReader, event -> {
+            events.add(event);
+            return events.size() < 2;
+        });
+        
+        assertEquals(List.of("first", "second"), events);
+    }
+    
+    /*
+     * Paritions covered: not a play response, play response with a snapshot, play response with a delta
+     */
+    @Test
+    public void testWithWholeBoard() {
+        final VersionedBoard board = new VersionedBoard();
+        final String header = "play\nupdate\nme\n0\n0\nyou\n0\n0\n";
+        
+        assertEquals("choose\nupdate\n", ClientManager.withWholeBoard(board, "choose\nupdate\n"));
+        
+        final String snapshot = header + "snapshot 0\n1x2\n??\n1\n0 0 ACROSS 1 false false \nhint\n";
+        assertEquals(header + "1x2\n??\n1\n0 0 ACROSS 1 false false \nhint\n", ClientManager.withWholeBoard(board, snapshot));
+        
+        final String delta = header + "delta 0 1\n3\ncell 0 0 h\ncell 0 1 i\nword 1 true false me\n";
+        assertEquals(header + "1x2\nhi\n1\n0 0 ACROSS 1 true false me\nhint\n", ClientManager.withWholeBoard(board, delta));
+        assertEquals(1, board.getVersion());
+    }
 }
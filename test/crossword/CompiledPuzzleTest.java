@@ -0,0 +1,183 @@
+package crossword;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for compiled puzzle files
+ */
+public class CompiledPuzzleTest {
+
+    /*
+     * Testing strategy for CompiledPuzzle:
+     *
+     * Test write(), read()
+     *  number of words: 0, >1
+     *  strings: ASCII only, non-ASCII characters, repeated hints
+     *  file: written by write(), not a compiled puzzle, truncated
+     *
+     * Test compiledFileOf(), isCompiledFile()
+     *  puzzle file, compiled file
+     */
+
+    //covers write(), read()
+    //      >1 words, non-ASCII characters, repeated hints
+    @Test
+    public void testRoundTrip() throws IOException {
+        final List<WordTuple> words = new ArrayList<>();
+        words.add(new WordTuple(1, 0, "\"twinkle\"", "star", "ACROSS"));
+        words.add(new WordTuple(0, 2, "\"twinkle\"", "market", "DOWN"));
+        words.add(new WordTuple(3, 1, "\"caf\u00e9 \\n\"", "tea", "ACROSS"));
+        final PuzzleTemplate template = new PuzzleTemplate("\"Na\u00efve\"", "\"A description\"", words);
+
+        final File compiled = temporaryFile();
+        CompiledPuzzle.write(template, compiled);
+        final PuzzleTemplate loaded = CompiledPuzzle.read(compiled);
+
+        assertEquals(template.getName(), loaded.getName());
+        assertEquals(template.getDescription(), loaded.getDescription());
+        assertEquals(template.getNumberWords(), loaded.getNumberWords());
+        assertEquals(template.getRows(), loaded.getRows());
+        assertEquals(template.getColumns(), loaded.getColumns());
+        for (int i = 0; i < template.getNumberWords(); i++) {
+            assertEquals(template.getStartRow(i), loaded.getStartRow(i));
+            assertEquals(template.getStartCol(i), loaded.getStartCol(i));
+            assertEquals(template.getDirection(i), loaded.getDirection(i));
+            assertEquals(template.getHint(i), loaded.getHint(i));
+            assertEquals(template.getAnswer(i), loaded.getAnswer(i));
+        }
+        assertEquals(new Match(template).toString(), new Match(loaded).toString());
+    }
+
+    //covers write(), read()
+    //      0 words, ASCII only
+    @Test
+    public void testEmptyPuzzle() throws IOException {
+        final PuzzleTemplate template = new PuzzleTemplate("\"Empty\"", "\"\"", new ArrayList<>());
+        final File compiled = temporaryFile();
+        CompiledPuzzle.write(template, compiled);
+
+        final PuzzleTemplate loaded = CompiledPuzzle.read(compiled);
+        assertEquals("\"Empty\"", loaded.getName());
+        assertEquals("\"\"", loaded.getDescription());
+        assertEquals(0, loaded.getNumberWords());
+    }
+
+    //covers read()
+    //      not a compiled puzzle, truncated
+    @Test
+    public void testInvalidFiles() throws IOException {
+        final File notCompiled = temporaryFile();
+        Files.copy(new File("puzzles/simple.puzzle").toPath(), notCompiled.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        assertThrows(IOException.class, () -> CompiledPuzzle.read(notCompiled));
+
+        final List<WordTuple> words = new ArrayList<>();
+        words.add(new WordTuple(1, 0, "\"twinkle\"", "star", "ACROSS"));
+        final File truncated = temporaryFile();
+        CompiledPuzzle.write(new PuzzleTemplate("\"Name\"", "\"Description\"", words), truncated);
+        final byte[] bytes = Files.readAllBytes(truncated.toPath());
+        Files.write(truncated.toPath(), Arrays.copyOf(bytes, bytes.length - 4));
+        assertThrows(IOException.class, () -> CompiledPuzzle.read(truncated));
+    }
+
+    //covers read()
+    //      header with more words or strings than fit in the file, string with a negative length,
+    //      word with an unknown direction
+    @Test
+    public void testCorruptFiles() throws IOException {
+        final List<WordTuple> words = new ArrayList<>();
+        words.add(new WordTuple(1, 0, "\"twinkle\"", "star", "ACROSS"));
+        final File original = temporaryFile();
+        CompiledPuzzle.write(new PuzzleTemplate("\"Name\"", "\"Description\"", words), original);
+        final byte[] bytes = Files.readAllBytes(original.toPath());
+
+        // header: magic, format version, number of words, number of strings
+        assertCorrupt(bytes, 2 * Integer.BYTES, Integer.MAX_VALUE);
+        assertCorrupt(bytes, 3 * Integer.BYTES, Integer.MAX_VALUE / 2);
+        // the length of string 0, after the header and one word record of 5 ints
+        assertCorrupt(bytes, (4 + 5 + 1) * Integer.BYTES, -1);
+        assertCorrupt(bytes, (4 + 5 + 1) * Integer.BYTES, Integer.MAX_VALUE);
+        // the direction of word 0
+        assertCorrupt(bytes, (4 + 2) * Integer.BYTES, 7);
+    }
+
+    //covers main()
+    //      a valid puzzle, an invalid puzzle, a hidden file
+    @Test
+    public void testMain() throws IOException {
+        final File folder = Files.createTempDirectory("puzzles").toFile();
+        folder.deleteOnExit();
+        final File valid = new File(folder, "simple.puzzle");
+        Files.copy(new File("puzzles/simple.puzzle").toPath(), valid.toPath());
+        final File invalid = new File(folder, "broken.puzzle");
+        Files.write(invalid.toPath(), "not a puzzle".getBytes());
+        final File hidden = new File(folder, PuzzleManifest.FILE_NAME);
+        Files.write(hidden.toPath(), "puzzle-manifest 1\n".getBytes());
+
+        CompiledPuzzle.main(new String[] { folder.getPath() });
+
+        final List<String> names = new ArrayList<>(Arrays.asList(folder.list()));
+        names.sort(null);
+        assertEquals(Arrays.asList(PuzzleManifest.FILE_NAME, "broken.puzzle", "simple.puzzle",
+                "simple.puzzle" + CompiledPuzzle.EXTENSION), names, "no temporary files are left, nor hidden files compiled");
+        assertTrue(CompiledPuzzle.read(CompiledPuzzle.compiledFileOf(valid)).getNumberWords() > 0);
+        for (File file : folder.listFiles()) {
+            file.deleteOnExit();
+        }
+    }
+
+    //covers compiledFileOf(), isCompiledFile()
+    @Test
+    public void testCompiledFileOf() {
+        final File puzzle = new File("puzzles", "simple.puzzle");
+        final File compiled = CompiledPuzzle.compiledFileOf(puzzle);
+        assertEquals(new File("puzzles", "simple.puzzle.puzzlec"), compiled);
+        assertTrue(CompiledPuzzle.isCompiledFile(compiled));
+        assertFalse(CompiledPuzzle.isCompiledFile(puzzle));
+    }
+
+    @Test
+    public void testAssertionsEnabled() {
+        assertThrows(AssertionError.class, () -> { assert false; },
+                "make sure assertions are enabled with VM argument '-ea'");
+    }
+
+    /**
+     * Helper method to assert that a compiled puzzle with one int changed cannot be read
+     * @param bytes a compiled puzzle; not mutated
+     * @param offset the offset of the int to change
+     * @param value the new value of the int
+     * @throws IOException if the changed puzzle cannot be written
+     */
+    private static void assertCorrupt(byte[] bytes, int offset, int value) throws IOException {
+        final byte[] corrupt = bytes.clone();
+        ByteBuffer.wrap(corrupt).putInt(offset, value);
+        final File file = temporaryFile();
+        Files.write(file.toPath(), corrupt);
+        assertThrows(IOException.class, () -> CompiledPuzzle.read(file), "value " + value + " at offset " + offset);
+    }
+
+    /**
+     * Helper method to make a temporary file that is deleted when the tests end
+     * @return a new empty file
+     * @throws IOException if the file cannot be created
+     */
+    private static File temporaryFile() throws IOException {
+        final File file = Files.createTempFile("puzzle", CompiledPuzzle.EXTENSION).toFile();
+        file.deleteOnExit();
+        return file;
+    }
+}
@@ -0,0 +1,147 @@
+package crossword;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import crossword.web.EventStream;
+import crossword.web.WriteTimeout;
+
+/**
+ * Tests for server-sent event streams
+ */
+public class EventStreamTest {
+
+    /*
+     * Testing strategy for EventStream:
+     *
+     * Test send()
+     *  client reading: event arrives whole, data with several lines
+     *  stream closed: returns false
+     *
+     * Test close(), isClosed()
+     *  no send in progress: the response ends
+     *  send in progress to a client that never reads: close() and isClosed() return without waiting for it
+     */
+
+    private static final long TIMEOUT_SECONDS = 10;
+    private static final int EVENT_BYTES = 1024 * 1024;
+
+    //covers send(), close(), isClosed()
+    //      client reading, data with several lines, no send in progress, stream closed
+    @Test
+    public void testSendThenClose() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        final WriteTimeout writeTimeout = new WriteTimeout(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        final CompletableFuture<EventStream> streams = new CompletableFuture<>();
+        final HttpServer server = startServer(streams, writeTimeout);
+        try {
+            final URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/events/");
+            final BufferedReader events = new BufferedReader(new InputStreamReader(url.openStream(), UTF_8));
+            final EventStream stream = streams.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+            assertTrue(stream.send("board", "first\nsecond"));
+            assertEquals(List.of("event: board", "data: first", "data: second", ""),
+                    List.of(events.readLine(), events.readLine(), events.readLine(), events.readLine()));
+
+            assertFalse(stream.isClosed());
+            stream.close();
+            assertTrue(stream.isClosed());
+            assertFalse(stream.send("board", "after"));
+            assertNull(events.readLine(), "closing the stream ends the response");
+            events.close();
+        } finally {
+            server.stop(0);
+            writeTimeout.shutdown();
+        }
+    }
+
+    //covers close(), isClosed()
+    //      send in progress to a client that never reads
+    @Test
+    public void testCloseDuringStalledSend() throws IOException, InterruptedException, ExecutionException,
+            TimeoutException {
+        // long enough that waiting for the stalled write would outlast the test's timeout
+        final WriteTimeout writeTimeout = new WriteTimeout(TimeUnit.SECONDS.toMillis(6 * TIMEOUT_SECONDS));
+        final CompletableFuture<EventStream> streams = new CompletableFuture<>();
+        final HttpServer server = startServer(streams, writeTimeout);
+        try (Socket stalled = new Socket()) {
+            stalled.setReceiveBufferSize(1024);
+            stalled.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getAddress().getPort()));
+            final OutputStream request = stalled.getOutputStream();
+            request.write("GET /events/ HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(UTF_8));
+            request.flush();
+            final EventStream stream = streams.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+            // the client never reads, so the sender blocks as soon as the socket buffers are full
+            final String event = "x".repeat(EVENT_BYTES);
+            final AtomicBoolean sending = new AtomicBoolean(true);
+            final Thread sender = new Thread(() -> {
+                while (stream.send("big", event)) {
+                    // keep sending until a write blocks, and then fails once the connection is dropped
+                }
+                sending.set(false);
+            });
+            sender.start();
+            Thread.sleep(TimeUnit.SECONDS.toMillis(1));
+            assertTrue(sending.get(), "the sender should be blocked on the stalled client");
+
+            assertTimeoutPreemptively(Duration.ofSeconds(TIMEOUT_SECONDS), () -> {
+                assertFalse(stream.isClosed());
+                stream.close();
+                assertTrue(stream.isClosed());
+            }, "close() waited for a write to a stalled client");
+
+            server.stop(0); // drops the connection, so the stalled write fails
+            sender.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+            assertFalse(sending.get());
+        } finally {
+            server.stop(0);
+            writeTimeout.shutdown();
+        }
+    }
+
+    @Test
+    public void testAssertionsEnabled() {
+        assertThrows(AssertionError.class, () -> { assert false; },
+                "make sure assertions are enabled with VM argument '-ea'");
+    }
+
+    /**
+     * Helper method to start a server that answers /events/ with an event stream
+     * @param streams completed with the event stream of the first request
+     * @param writeTimeout deadline for the writes of the stream
+     * @return the started server, listening on a free port of the loopback address
+     * @throws IOException if the server cannot be started
+     */
+    private static HttpServer startServer(CompletableFuture<EventStream> streams, WriteTimeout writeTimeout)
+            throws IOException {
+        final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/events/", exchange -> streams.complete(new EventStream(exchange, writeTimeout)));
+        server.start();
+        return server;
+    }
+}
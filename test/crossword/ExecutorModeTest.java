@@ -0,0 +1,119 @@
+package crossword;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the executor modes of the server
+ */
+public class ExecutorModeTest {
+
+    /*
+     * Testing strategy for ExecutorMode:
+     *
+     * Test parse()
+     *  name: lowercase, uppercase, surrounding whitespace, not a mode
+     *
+     * Test fromSystemProperty()
+     *  property not set, property set
+     *
+     * Test newExecutor()
+     *  mode: CACHED, VIRTUAL (Java >= 21, Java < 21), BOUNDED
+     *  BOUNDED: threads free, threads busy and queue has room, threads busy and queue full
+     */
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    //covers parse()
+    //      lowercase, uppercase, surrounding whitespace, not a mode
+    @Test
+    public void testParse() {
+        assertEquals(ExecutorMode.VIRTUAL, ExecutorMode.parse("virtual"));
+        assertEquals(ExecutorMode.BOUNDED, ExecutorMode.parse("BOUNDED"));
+        assertEquals(ExecutorMode.CACHED, ExecutorMode.parse(" Cached "));
+        assertThrows(IllegalArgumentException.class, () -> ExecutorMode.parse("forkjoin"));
+    }
+
+    //covers fromSystemProperty()
+    //      property not set, property set
+    @Test
+    public void testFromSystemProperty() {
+        final String previous = System.getProperty(ExecutorMode.PROPERTY);
+        try {
+            System.clearProperty(ExecutorMode.PROPERTY);
+            assertEquals(ExecutorMode.CACHED, ExecutorMode.fromSystemProperty());
+
+            System.setProperty(ExecutorMode.PROPERTY, "bounded");
+            assertEquals(ExecutorMode.BOUNDED, ExecutorMode.fromSystemProperty());
+        } finally {
+            if (previous == null) {
+                System.clearProperty(ExecutorMode.PROPERTY);
+            } else {
+                System.setProperty(ExecutorMode.PROPERTY, previous);
+            }
+        }
+    }
+
+    //covers newExecutor()
+    //      CACHED
+    @Test
+    public void testCachedRunsTasks() throws Exception {
+        final ExecutorService executor = ExecutorMode.CACHED.newExecutor(1, 1);
+        assertEquals("done", executor.submit(() -> "done").get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        executor.shutdownNow();
+    }
+
+    //covers newExecutor()
+    //      VIRTUAL, Java >= 21 or Java < 21
+    @Test
+    public void testVirtualRunsTasksOnVirtualThreads() throws Exception {
+        if (Runtime.version().feature() < 21) {
+            assertThrows(UnsupportedOperationException.class, () -> ExecutorMode.VIRTUAL.newExecutor(1, 1));
+            return;
+        }
+
+        final ExecutorService executor = ExecutorMode.VIRTUAL.newExecutor(1, 1);
+        final Future<Object> isVirtual = executor.submit(() -> Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()));
+        assertEquals(true, isVirtual.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        executor.shutdownNow();
+    }
+
+    //covers newExecutor()
+    //      BOUNDED: threads free, threads busy and queue has room, threads busy and queue full
+    @Test
+    public void testBoundedQueuesThenRejects() throws Exception {
+        final ExecutorService executor = ExecutorMode.BOUNDED.newExecutor(1, 1);
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final Future<?> first = executor.submit(() -> {
+            running.countDown();
+            release.await();
+            return null;
+        });
+        assertTrue(running.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        final Future<String> queued = executor.submit(() -> "queued");
+        assertThrows(RejectedExecutionException.class, () -> executor.submit(() -> "rejected"));
+
+        release.countDown();
+        first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals("queued", queued.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testAssertionsEnabled() {
+        assertThrows(AssertionError.class, () -> { assert false; },
+                "make sure assertions are enabled with VM argument '-ea'");
+    }
+}
@@ -0,0 +1,93 @@
+package crossword;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the serialized lobby of a server
+ */
+public class LobbySnapshotTest {
+
+    /*
+     * Testing strategy for LobbySnapshot:
+     *
+     * Test getResponse()
+     *  number of puzzles: 0, >0
+     *  number of matches: 0, >0
+     *  state: new, update
+     *
+     * Test writeUpdateTo()
+     *  text: ASCII only, non-ASCII characters
+     *
+     * Test isCurrent()
+     *  version: same, different
+     *  puzzles: same set, equal set, different set
+     */
+
+    //covers getResponse()
+    //      0 puzzles, 0 matches, state new
+    @Test
+    public void testEmptyLobby() {
+        final LobbySnapshot lobby = new LobbySnapshot(0, Set.of(), Map.of());
+        assertEquals("choose\nnew\n0\n0\n", lobby.getResponse("new"));
+    }
+
+    //covers getResponse()
+    //      >0 puzzles, >0 matches, state update
+    //covers writeUpdateTo()
+    //      non-ASCII characters
+    @Test
+    public void testPuzzlesAndMatches() throws IOException {
+        final LobbySnapshot lobby = new LobbySnapshot(3, Set.of("simple.puzzle"), Map.of("thisMatch", "\"caf\u00e9\""));
+        final String expected = "choose\nupdate\n1\nsimple.puzzle\n1\nthisMatch\n\"caf\u00e9\"\n";
+        assertEquals(expected, lobby.getResponse("update"));
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        lobby.writeUpdateTo(out);
+        assertEquals(expected, new String(out.toByteArray(), UTF_8));
+    }
+
+    //covers writeUpdateTo()
+    //      ASCII only
+    //covers getResponse()
+    //      state new, same snapshot as update
+    @Test
+    public void testUpdateMatchesResponse() throws IOException {
+        final LobbySnapshot lobby = new LobbySnapshot(1, Set.of("a.puzzle"), Map.of());
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        lobby.writeUpdateTo(out);
+        assertEquals(lobby.getResponse("update"), new String(out.toByteArray(), UTF_8));
+        assertEquals("choose\nnew\n1\na.puzzle\n0\n", lobby.getResponse("new"));
+    }
+
+    //covers isCurrent()
+    //      same version and same set, equal set, different version, different set
+    @Test
+    public void testIsCurrent() {
+        final Set<String> puzzles = Set.of("a.puzzle", "b.puzzle");
+        final LobbySnapshot lobby = new LobbySnapshot(2, puzzles, Map.of());
+
+        assertEquals(2, lobby.getVersion());
+        assertTrue(lobby.isCurrent(2, puzzles));
+        assertTrue(lobby.isCurrent(2, Set.of("b.puzzle", "a.puzzle")));
+        assertFalse(lobby.isCurrent(3, puzzles));
+        assertFalse(lobby.isCurrent(2, Set.of("a.puzzle")));
+    }
+
+    @Test
+    public void testAssertionsEnabled() {
+        assertThrows(AssertionError.class, () -> { assert false; },
+                "make sure assertions are enabled with VM argument '-ea'");
+    }
+}
@@ -1,14 +1,23 @@
 package crossword;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Test;
 
+import com.sun.management.ThreadMXBean;
+
 import crossword.Word.ChallengeResult;
 import crossword.Word.TryResult;
 
@@ -19,6 +28,11 @@ import crossword.Word.TryResult;
  */
 public class MatchTest {
 
+    private static final int ALLOCATION_BOARD_SIZE = 100;
+    private static final int ALLOCATION_ROUNDS = 5;
+    // a cell kept in arrays of its own for its two words took about 200 bytes of a match
+    private static final long MAX_BYTES_PER_CELL = 160;
+
 
     /* Testing strategy for checkConsistency():
      *   Partition the input as follows:
@@ -33,6 +47,7 @@ public class MatchTest {
      *              Yes overlap with same letter, different letter
      *              Down word compared with across, across word compared with down
      *              Number of overlaps: 0, 1, >1
+     *          a cell in three words
      *          
      *
      * Testing strategy for toString():
@@ -43,12 +58,26 @@ public class MatchTest {
      *  More partitions:
      *      Word has been inserted, word has been challenged, word has been taken off board
      *  These extra partitions are covered within tests for tryInsert() and challenge()
+     *      Called again: without a move in between, after a failed move, after a successful move
      *      
      *          
      *
      * Test addPlayer()
      *      this has had no players added yet, has had one player added so far
      * 
+     * Test addChangeListener()
+     *  move changes the board, move changes nothing (failed try, invalid challenge), reads
+     * 
+     * Test whenStarted(), cancelStart()
+     *  future asked for: before the match starts, after it starts
+     *  cancelStart(): before the match starts, after it starts
+     * 
+     * Test getSnapshot()
+     *  taken after a player joins (board unchanged), before a move, after a move
+     *  snapshot taken earlier: unchanged by later moves
+     *  board text: rendered before a player joins, shared by the next snapshot
+     *  score asked for: player of the match, player not in the match
+     * 
      * Test getNumberPlayers()
      *  0 players, 1 player, 2 players
      * 
@@ -79,7 +108,7 @@ public class MatchTest {
      *          overlaps with other word
      *      wrong word size
      *      word already confirmed
-     *      ID insert doesn't exist
+     *      ID insert doesn't exist: above the largest ID, 0, negative
      * 
      * Test challenge()
      *  valid challenge, invalid challenge
@@ -110,6 +139,7 @@ public class MatchTest {
      *  not finished
      *      no moves made yet (this is untouched)
      *      this not untouched
+     *      a word was correct, then changed to a wrong value
      *  if finished:
      *      doesn't confirm any unconfirmed words
      *      confirms unconfirmed words (all words are unconfirmed)
@@ -124,13 +154,24 @@ public class MatchTest {
      *  check first index player
      * 
      * 
-     * Test oneDimensionOverlap()
-     *  Does overlap, does not overlap
+     * 
+     * Test getVersion()
+     *  no moves, successful move, failed move (board unchanged)
+     * 
+     * Test getUpdateSince()
+     *  since: negative, current version, behind but still in the change log, behind by more than the change log keeps,
+     *      ahead of the current version
+     *  changes: cells only, cells and words (challenge confirms a word)
+     * 
+ * Test Match(PuzzleTemplate)
+     *  allocation: board where every cell is part of two words
      * 
      * 
      * Concurrency tests:
      *      tryInsert: threads entering same word at same time, threads entering different word at same time
      *      challenge: threads challenging different words at same time
+     *      stress: many threads trying words that don't cross (no lost updates), many threads trying, challenging and
+     *          finishing words that cross (no deadlock, rep invariant holds)
      * 
      */
 
@@ -328,6 +369,20 @@ public class MatchTest {
         assertTrue(!currentMatch.checkConsistency());
     }
     
+    //covers size of words: >2
+    //      both across and down, yes overlap, a cell in three words
+    @Test
+    public void testCheckConsistencyCellInThreeWords() {
+        List<WordTuple> words = new ArrayList<>();
+        words.add(new WordTuple(0, 0, "hint", "cat", "ACROSS"));
+        words.add(new WordTuple(0, 0, "hint", "cab", "ACROSS"));
+        words.add(new WordTuple(0, 0, "hint", "cow", "DOWN"));
+        
+        Match currentMatch = new Match("Match name", "Match description", words);
+        assertFalse(currentMatch.checkConsistency());
+        currentMatch.checkRep();
+    }
+    
     //covers size of words: >2
     //      one down then one across, yes overlap, same letter
     @Test
@@ -488,6 +543,67 @@ public class MatchTest {
         
     }
     
+    //covers addChangeListener()
+    //      move changes the board, failed try, invalid challenge, reads
+    @Test
+    public void testChangeListenerOnlyOnChanges() {
+        
+        List<WordTuple> words = new ArrayList<>();
+        words.add(new WordTuple(1, 0, "twinkle twinkle", "star", "ACROSS"));
+        Match currentMatch = new Match("Match name", "Match description", words);
+        Player first = new Player("first");
+        Player second = new Player("second");
+        currentMatch.addPlayer(first);
+        currentMatch.addPlayer(second);
+        
+        List<Long> changes = new ArrayList<>();
+        currentMatch.addChangeListener(() -> changes.add(currentMatch.getVersion()));
+        
+        assertEquals(TryResult.INCORRECT_LENGTH, currentMatch.tryInsert(first, 1, "stars"));
+        assertEquals(ChallengeResult.INVALID, currentMatch.challenge(second, 1, "star"));
+        currentMatch.getScore(first);
+        currentMatch.getOtherPlayer(first);
+        currentMatch.toString();
+        assertEquals(List.of(), changes);
+        
+        assertEquals(TryResult.SUCCESS, currentMatch.tryInsert(first, 1, "stab"));
+        assertEquals(TryResult.SUCCESS, currentMatch.tryInsert(first, 1, "stab"));
+        assertEquals(List.of(1L), changes);
+        
+    }
+    
+    //covers whenStarted(), cancelStart()
+    //      future asked for before and after the match starts, cancelStart() after it starts
+    @Test
+    public void testWhenStarted() {
+        
+        Match currentMatch = new Match("Match name", "Match description", new ArrayList<>());
+        CompletableFuture<Match> beforeStart = currentMatch.whenStarted();
+        currentMatch.addPlayer(new Player("before"));
+        assertFalse(beforeStart.isDone());
+        
+        currentMatch.addPlayer(new Player("hi"));
+        assertSame(currentMatch, beforeStart.join());
+        assertSame(currentMatch, currentMatch.whenStarted().join());
+        assertFalse(currentMatch.cancelStart());
+        
+    }
+    
+    //covers whenStarted(), cancelStart()
+    //      cancelStart() before the match starts
+    @Test
+    public void testCancelStart() {
+        
+        Match currentMatch = new Match("Match name", "Match description", new ArrayList<>());
+        currentMatch.addPlayer(new Player("before"));
+        CompletableFuture<Match> waiting = currentMatch.whenStarted();
+        
+        assertTrue(currentMatch.cancelStart());
+        assertTrue(waiting.isCompletedExceptionally());
+        assertTrue(currentMatch.whenStarted().isCompletedExceptionally());
+        
+    }
+    
     //covers getNumberPlayers
     //  0 players
     @Test
@@ -826,6 +942,9 @@ public class MatchTest {
         currentMatch.addPlayer(yo);
         
         assertEquals(TryResult.WRONG_ID, currentMatch.tryInsert(yo, 3, "a"));
+        assertEquals(TryResult.WRONG_ID, currentMatch.tryInsert(yo, 0, "a"));
+        assertEquals(TryResult.WRONG_ID, currentMatch.tryInsert(yo, -1, "a"));
+        assertEquals(ChallengeResult.INVALID, currentMatch.challenge(yo, 0, "a"));
         
         String expected = "3x11\n" + 
                 "##########?\n" + 
@@ -1275,6 +1394,27 @@ public class MatchTest {
     
     
     
+    //covers isFinished()
+    //  is not finished, a word was correct, then changed to a wrong value
+    @Test
+    public void testIsFinishedWordChangedBack() {
+
+        Match currentMatch = makeTwoWordMatch();
+        Player yo = new Player("yo");
+        currentMatch.addPlayer(yo);
+        Player dude = new Player("dude");
+        currentMatch.addPlayer(dude);
+        
+        assertEquals(TryResult.SUCCESS, currentMatch.tryInsert(yo, 1, "cat"));
+        assertEquals(TryResult.SUCCESS, currentMatch.tryInsert(yo, 1, "cut"));
+        assertTrue(!currentMatch.isFinished());
+        
+        assertEquals(TryResult.SUCCESS, currentMatch.tryInsert(yo, 1, "cat"));
+        assertEquals(TryResult.SUCCESS, currentMatch.tryInsert(yo, 2, "mab"));
+        assertTrue(currentMatch.isFinished());
+        
+    }
+    
     //covers isFinished()
     //  doesn't confirm any unconfirmed words
     @Test
@@ -1547,6 +1687,283 @@ public class MatchTest {
     
     
     
+    //covers concurrency for try method - stress, words that don't cross
+    @Test
+    public void testTryInsertStressSeparateWords() throws InterruptedException {
+        final int numberWords = 16;
+        final int threadsPerPlayer = 2;
+        final int rounds = 200;
+        final List<WordTuple> words = new ArrayList<>();
+        for(int i = 0; i < numberWords; i++) {
+            words.add(new WordTuple(2 * i, 0, "hint", "abcde", "ACROSS"));
+        }
+        final Match currentMatch = new Match("Match name", "Match description", words);
+        final Player[] players = { new Player("yo"), new Player("dude") };
+        currentMatch.addPlayer(players[0]);
+        currentMatch.addPlayer(players[1]);
+        
+        // each thread has its own words, and writes aaaaa and bbbbb over them in turns
+        final int numberThreads = 2 * threadsPerPlayer;
+        final List<Thread> threads = new ArrayList<>();
+        final List<String> failures = new ArrayList<>();
+        for(int t = 0; t < numberThreads; t++) {
+            final int thread = t;
+            threads.add(new Thread(() -> {
+                for(int round = 0; round < rounds; round++) {
+                    for(int wordID = thread + 1; wordID <= numberWords; wordID += numberThreads) {
+                        final TryResult result = currentMatch.tryInsert(players[thread % 2], wordID, round % 2 == 0 ? "aaaaa" : "bbbbb");
+                        if(result != TryResult.SUCCESS) {
+                            synchronized(failures) {
+                                failures.add("word " + wordID + ": " + result);
+                            }
+                        }
+                    }
+                }
+            }));
+        }
+        runAll(threads);
+        
+        assertEquals(List.of(), failures);
+        // every try changed all the letters of its word, so every one of them is its own version
+        assertEquals(numberWords * rounds, currentMatch.getVersion());
+        final String[] lines = currentMatch.toString().split("\n");
+        final int rows = 2 * numberWords - 1;
+        for(int i = 0; i < numberWords; i++) {
+            assertEquals(rounds % 2 == 0 ? "bbbbb" : "aaaaa", lines[1 + 2 * i]);
+            final String wordLine = lines[2 + rows + 2 * i];
+            assertTrue(wordLine.endsWith(" true false " + players[i % numberThreads % 2].getID()), wordLine);
+        }
+        currentMatch.checkRep();
+    }
+    
+    //covers concurrency for try and challenge methods - stress, words that cross
+    @Test
+    public void testMovesStressCrossingWords() throws InterruptedException {
+        // a lattice of ACROSS words on the even rows and DOWN words on the even columns, crossing on every even cell
+        final int size = 9;
+        final String answer = "aaaaaaaaa";
+        final List<WordTuple> words = new ArrayList<>();
+        for(int i = 0; i < size; i += 2) {
+            words.add(new WordTuple(i, 0, "hint", answer, "ACROSS"));
+            words.add(new WordTuple(0, i, "hint", answer, "DOWN"));
+        }
+        final Match currentMatch = new Match("Match name", "Match description", words);
+        final Player[] players = { new Player("yo"), new Player("dude") };
+        currentMatch.addPlayer(players[0]);
+        currentMatch.addPlayer(players[1]);
+        
+        final int numberThreads = 8;
+        final int moves = 2000;
+        final String[] guesses = { answer, "bbbbbbbbb", "aaaabaaaa", "bbbbabbbb" };
+        final List<Thread> threads = new ArrayList<>();
+        for(int t = 0; t < numberThreads; t++) {
+            final Random random = new Random(t);
+            final Player player = players[t % 2];
+            threads.add(new Thread(() -> {
+                for(int move = 0; move < moves; move++) {
+                    final int wordID = 1 + random.nextInt(words.size());
+                    final String guess = guesses[random.nextInt(guesses.length)];
+                    if(random.nextInt(4) == 0) {
+                        currentMatch.challenge(player, wordID, guess);
+                    } else if(currentMatch.tryInsert(player, wordID, guess) == TryResult.SUCCESS) {
+                        currentMatch.isFinished();
+                    }
+                }
+            }));
+        }
+        runAll(threads);
+        
+        currentMatch.checkRep();
+        assertEquals(currentMatch.getVersion(), currentMatch.getSnapshot().getVersion());
+    }
+    
+    /**
+     * Helper method to start threads and wait for all of them to finish
+     * @param threads threads to run
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static void runAll(List<Thread> threads) throws InterruptedException {
+        final long timeoutMillis = TimeUnit.SECONDS.toMillis(60);
+        for(Thread thread : threads) {
+            thread.start();
+        }
+        for(Thread thread : threads) {
+            thread.join(timeoutMillis);
+            assertFalse(thread.isAlive(), "threads are deadlocked");
+        }
+    }
+    
+    // covers toString called again
+    //      without a move, after a failed move, after a successful move
+    @Test
+    public void testToStringAfterMoves() {
+        Match currentMatch = makeTwoWordMatch();
+        Player player = new Player("player");
+        currentMatch.addPlayer(player);
+        
+        String before = currentMatch.toString();
+        assertEquals(before, currentMatch.toString());
+        
+        assertEquals(TryResult.INCORRECT_LENGTH, currentMatch.tryInsert(player, 1, "ca"));
+        assertEquals(before, currentMatch.toString());
+        
+        assertEquals(TryResult.SUCCESS, currentMatch.tryInsert(player, 1, "cat"));
+        String expected = "3x3\n" + 
+                "#c#\n" + 
+                "?a?\n" + 
+                "#t#\n" + 
+                "2\n" + 
+                "0 1 DOWN 1 true false player\n" + 
+                "hint\n" + 
+                "1 0 ACROSS 2 false false \n" + 
+                "hint\n";
+        assertEquals(expected, currentMatch.toString());
+    }
+    
+    //covers getVersion()
+    //      no moves, successful move, failed move
+    @Test
+    public void testGetVersion() {
+        Match currentMatch = makeTwoWordMatch();
+        Player player = new Player("player");
+        currentMatch.addPlayer(player);
+        assertEquals(0, currentMatch.getVersion());
+        
+        assertEquals(TryResult.SUCCESS, currentMatch.tryInsert(player, 1, "cat"));
+        assertEquals(1, currentMatch.getVersion());
+        
+        assertEquals(TryResult.INCORRECT_LENGTH, currentMatch.tryInsert(player, 2, "ma"));
+        assertEquals(1, currentMatch.getVersion());
+    }
+    
+    //covers getUpdateSince()
+    //      since: negative, current version, behind but still in the change log; changes: cells only
+    @Test
+    public void testGetUpdateSinceDelta() {
+        Match currentMatch = makeTwoWordMatch();
+        Player player = new Player("player");
+        currentMatch.addPlayer(player);
+        
+        assertEquals("snapshot 0\n" + currentMatch.toString(), currentMatch.getUpdateSince(-1));
+        assertEquals("delta 0 0\n0\n", currentMatch.getUpdateSince(0));
+        
+        assertEquals(TryResult.SUCCESS, currentMatch.tryInsert(player, 1, "cat"));
+        assertEquals("delta 0 1\n4\n"
+                + "cell 0 1 c\n"
+                + "cell 1 1 a\n"
+                + "cell 2 1 t\n"
+                + "word 1 true false player\n", currentMatch.getUpdateSince(0));
+        assertEquals("delta 1 1\n0\n", currentMatch.getUpdateSince(1));
+    }
+    
+    //covers getUpdateSince()
+    //      since: ahead of the current version; changes: cells and words
+    @Test
+    public void testGetUpdateSinceChallenge() {
+        Match currentMatch = makeTwoWordMatch();
+        Player first = new Player("first");
+        Player second = new Player("second");
+        currentMatch.addPlayer(first);
+        currentMatch.addPlayer(second);
+        
+        assertEquals(TryResult.SUCCESS, currentMatch.tryInsert(first, 2, "mat"));
+        assertEquals(ChallengeResult.CORRECT, currentMatch.challenge(second, 2, "mab"));
+        
+        String update = currentMatch.getUpdateSince(1);
+        assertTrue(update.startsWith("delta 1 2\n"), "expected a delta from 1 to 2, got " + update);
+        assertTrue(update.contains("cell 1 2 b\n"), "expected the changed cell, got " + update);
+        assertTrue(update.contains("word 2 true true second\n"), "expected the confirmed word, got " + update);
+        
+        assertEquals("snapshot 2\n" + currentMatch.toString(), currentMatch.getUpdateSince(3));
+    }
+    
+    //covers getUpdateSince()
+    //      since: behind by more than the change log keeps
+    @Test
+    public void testGetUpdateSinceTooFarBehind() {
+        Match currentMatch = makeTwoWordMatch();
+        Player player = new Player("player");
+        currentMatch.addPlayer(player);
+        
+        final int moves = 100;
+        for(int i = 0; i < moves; i++) {
+            assertEquals(TryResult.SUCCESS, currentMatch.tryInsert(player, 2, i % 2 == 0 ? "mat" : "man"));
+        }
+        assertEquals(moves, currentMatch.getVersion());
+        
+        assertEquals("snapshot " + moves + "\n" + currentMatch.toString(), currentMatch.getUpdateSince(0));
+        assertEquals("delta " + (moves - 1) + " " + moves + "\n1\ncell 1 2 n\n", currentMatch.getUpdateSince(moves - 1));
+    }
+    
+    //covers getSnapshot()
+    //      after a player joins, before a move, after a move, earlier snapshot unchanged by later moves,
+    //      board text shared by snapshots of the same board, player not in the match
+    @Test
+    public void testGetSnapshot() {
+        Match currentMatch = makeTwoWordMatch();
+        Player first = new Player("first");
+        Player second = new Player("second");
+        currentMatch.addPlayer(first);
+        MatchSnapshot waiting = currentMatch.getSnapshot();
+        String boardWaiting = waiting.toString();
+        currentMatch.addPlayer(second);
+        
+        MatchSnapshot before = currentMatch.getSnapshot();
+        assertEquals(1, waiting.getNumberPlayers());
+        assertEquals(waiting.getVersion(), before.getVersion());
+        assertSame(boardWaiting, before.toString(), "a new player doesn't change the board, so its text is reused");
+        String boardBefore = before.toString();
+        assertThrows(IllegalArgumentException.class, () -> waiting.getScore(second));
+        assertThrows(IllegalArgumentException.class, () -> before.getChallengePoints(new Player("third")));
+        assertEquals(0, before.getVersion());
+        assertEquals(2, before.getNumberPlayers());
+        assertEquals(second, before.getOtherPlayer(first));
+        
+        assertEquals(TryResult.SUCCESS, currentMatch.tryInsert(first, 2, "mab"));
+        MatchSnapshot afterTry = currentMatch.getSnapshot();
+        assertEquals(1, afterTry.getVersion());
+        assertEquals(currentMatch.toString(), afterTry.toString());
+        assertEquals(currentMatch.getUpdateSince(0), afterTry.getUpdateSince(0));
+        
+        assertEquals(ChallengeResult.INCORRECT, currentMatch.challenge(second, 2, "mat"));
+        MatchSnapshot afterChallenge = currentMatch.getSnapshot();
+        assertEquals(currentMatch.toString(), afterChallenge.toString());
+        assertEquals(currentMatch.getScore(second), afterChallenge.getScore(second));
+        assertEquals(currentMatch.getChallengePoints(second), afterChallenge.getChallengePoints(second));
+        assertEquals(0, afterTry.getChallengePoints(second));
+        
+        assertEquals(0, before.getVersion());
+        assertEquals(boardBefore, before.toString());
+        assertEquals(0, before.getScore(first));
+    }
+    
+    //covers Match(PuzzleTemplate)
+    //      allocation: board where every cell is part of two words
+    @Test
+    public void testConstructorAllocationPerCell() {
+        final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled(),
+                "this JVM does not measure allocation per thread");
+        
+        final List<WordTuple> words = new ArrayList<>();
+        for(int i = 0; i < ALLOCATION_BOARD_SIZE; i++) {
+            words.add(new WordTuple(i, 0, "hint", "a".repeat(ALLOCATION_BOARD_SIZE), "ACROSS"));
+            words.add(new WordTuple(0, i, "hint", "a".repeat(ALLOCATION_BOARD_SIZE), "DOWN"));
+        }
+        final PuzzleTemplate template = new PuzzleTemplate("Match name", "Match description", words);
+        
+        long allocated = Long.MAX_VALUE;
+        for(int round = 0; round < ALLOCATION_ROUNDS; round++) { // the first rounds also load and initialize classes
+            final long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            final Match match = new Match(template);
+            allocated = Math.min(allocated, threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before);
+            assertEquals("Match name", match.getMatchName());
+        }
+        
+        final long cells = ALLOCATION_BOARD_SIZE * ALLOCATION_BOARD_SIZE;
+        assertTrue(allocated / cells <= MAX_BYTES_PER_CELL, "allocated " + allocated / cells + " bytes per cell");
+    }
+    
     /**
      * Helper method to make a new match with two words, cat and map, that  overlap at letter 'a'.
      * @return match stated above
@@ -2,6 +2,8 @@ package crossword;
 
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -41,6 +43,8 @@ public class ParserGrammerTest {
      *      backslash inside literal
      *      contains \n, \r, \t
      * Hyphens
+     * PuzzleParser on every puzzle file in test-puzzles, one-puzzle and puzzles
+     *      accepted by the grammar: same name, description and entries; rejected by the grammar: also rejected
      * 
      * 
      */
@@ -267,6 +271,42 @@ public class ParserGrammerTest {
         }
     }
     
+    //covers PuzzleParser on every puzzle file
+    @Test public void testPuzzleParserMatchesGrammar() throws IOException {
+        for (String folder : List.of("test-puzzles", "one-puzzle", "puzzles")) {
+            for (File puzzleFile : new File(folder).listFiles()) {
+                PuzzleParser streaming;
+                try {
+                    streaming = new PuzzleParser(new BufferedReader(new FileReader(puzzleFile)));
+                } catch (UnableToParseException e) {
+                    streaming = null;
+                }
+                
+                ParseTree<PuzzleGrammar> parseTree;
+                try {
+                    parseTree = parser.parse(puzzleFile);
+                } catch (UnableToParseException e) {
+                    assertNull(streaming, puzzleFile.toString());
+                    continue;
+                }
+                
+                assertNotNull(streaming, puzzleFile.toString());
+                assertEquals(getName(parseTree), streaming.getName());
+                assertEquals(getDescription(parseTree), streaming.getDescription());
+                
+                final List<WordTuple> words = new ArrayList<>();
+                try {
+                    for (WordTuple word = streaming.nextEntry(); word != null; word = streaming.nextEntry()) {
+                        words.add(word);
+                    }
+                } catch (UnableToParseException e) {
+                    throw new AssertionError(puzzleFile + ": " + e.getMessage(), e);
+                }
+                assertEquals(getWordTuples(parseTree), words, puzzleFile.toString());
+            }
+        }
+    }
+    
     /**
      * Find the name of the puzzle
      * @param parseTree tree to find the name of
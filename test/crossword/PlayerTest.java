@@ -2,6 +2,7 @@ package crossword;
 
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
@@ -21,6 +22,9 @@ public class PlayerTest {
      *  
      * Test hashCode()
      * 
+     * Test isValidID()
+     *  letters and digits, empty, other characters
+     * 
      */
     
     
@@ -63,5 +67,17 @@ public class PlayerTest {
 
     }
     
+    //covers isValidID()
+    //  letters and digits, empty, other characters
+    @Test
+    public void testIsValidID() {
+        
+        assertTrue(Player.isValidID("Player12"));
+        assertFalse(Player.isValidID(""));
+        assertFalse(Player.isValidID("two words"));
+        assertFalse(Player.isValidID("quote\""));
+
+    }
+    
     
 }
@@ -0,0 +1,306 @@
+package crossword;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the catalog of valid puzzles
+ */
+public class PuzzleCatalogTest {
+
+    /*
+     * Testing strategy for PuzzleCatalog:
+     *
+     * Test getValidPuzzleNames()
+     *  folder has valid puzzles only, valid and inconsistent puzzles
+     *
+     * Test refresh()
+     *  nothing changed, file added, file changed, file removed
+     *  changed file: valid -> inconsistent, inconsistent -> valid
+     *
+     *  compiled puzzle: newer than the puzzle file, older than the puzzle file; not listed as a puzzle
+     *
+     * Test PuzzleCatalog(folder, loadInBackground), awaitLoaded()
+     *  load in background: yes, no
+     *  files: more than one batch, malformed file among valid ones
+     *
+     * Test PuzzleCatalog(folder, loadInBackground, manifest), getTemplate()
+     *  manifest: missing, written by an earlier catalog, holding a verdict for a file's contents
+     *  puzzle: valid, listed as valid but no longer valid, not listed
+     *  template asked for again: file unchanged, only its modification time changed, contents changed
+     *  template of a puzzle parsed to check it: kept without reading the file again
+     *  template of a puzzle valid without being parsed: file changed after the refresh, while loading the template
+     *
+     * Test startWatching()
+     *  file added while watching, file removed while watching
+     *
+     * Test stopWatching()
+     *  file added after watching stopped
+     */
+
+    private static final long WATCH_TIMEOUT_MILLIS = 10_000;
+
+    //covers getValidPuzzleNames()
+    //      valid and inconsistent puzzles
+    @Test
+    public void testValidPuzzleNamesSkipsInconsistent() {
+        final PuzzleCatalog catalog = new PuzzleCatalog("one-puzzle");
+
+        assertEquals(Set.of("comments.puzzle", "standard.puzzle", "warmup.puzzle"), catalog.getValidPuzzleNames());
+    }
+
+    //covers getValidPuzzleNames()
+    //      returned set is unmodifiable
+    @Test
+    public void testValidPuzzleNamesUnmodifiable() {
+        final PuzzleCatalog catalog = new PuzzleCatalog("puzzles");
+
+        assertThrows(UnsupportedOperationException.class, () -> catalog.getValidPuzzleNames().add("other.puzzle"));
+    }
+
+    //covers refresh()
+    //      nothing changed, file added, file removed
+    @Test
+    public void testRefreshParsesOnlyChangedFiles() throws IOException {
+        final Path folder = copyOf("puzzles");
+        final PuzzleCatalog catalog = new PuzzleCatalog(folder.toString());
+
+        assertEquals(0, catalog.refresh());
+        assertEquals(Set.of("simple.puzzle"), catalog.getValidPuzzleNames());
+
+        Files.copy(Paths.get("one-puzzle", "warmup.puzzle"), folder.resolve("warmup.puzzle"));
+        assertEquals(1, catalog.refresh());
+        assertEquals(Set.of("simple.puzzle", "warmup.puzzle"), catalog.getValidPuzzleNames());
+
+        Files.delete(folder.resolve("simple.puzzle"));
+        assertEquals(0, catalog.refresh());
+        assertEquals(Set.of("warmup.puzzle"), catalog.getValidPuzzleNames());
+    }
+
+    //covers refresh()
+    //      file changed: valid -> inconsistent, inconsistent -> valid
+    @Test
+    public void testRefreshChangedFile() throws IOException {
+        final Path folder = copyOf("puzzles");
+        final PuzzleCatalog catalog = new PuzzleCatalog(folder.toString());
+
+        Files.copy(folder.resolve("inconsistent.puzzle"), folder.resolve("simple.puzzle"), StandardCopyOption.REPLACE_EXISTING);
+        assertEquals(1, catalog.refresh());
+        assertEquals(Set.of(), catalog.getValidPuzzleNames());
+
+        Files.copy(Paths.get("puzzles", "simple.puzzle"), folder.resolve("inconsistent.puzzle"), StandardCopyOption.REPLACE_EXISTING);
+        assertEquals(1, catalog.refresh());
+        assertEquals(Set.of("inconsistent.puzzle"), catalog.getValidPuzzleNames());
+    }
+
+    //covers refresh()
+    //      compiled puzzle newer than the puzzle file, older than the puzzle file, not listed as a puzzle
+    @Test
+    public void testRefreshPrefersNewerCompiledPuzzle() throws IOException {
+        final Path folder = copyOf("puzzles");
+        final File puzzle = folder.resolve("simple.puzzle").toFile();
+        final File compiled = CompiledPuzzle.compiledFileOf(puzzle);
+        compiled.deleteOnExit();
+
+        final List<WordTuple> words = new ArrayList<>();
+        words.add(new WordTuple(0, 0, "\"hint\"", "cat", "ACROSS"));
+        CompiledPuzzle.write(new PuzzleTemplate("\"Compiled\"", "\"From the compiled file\"", words), compiled);
+        assertTrue(compiled.setLastModified(puzzle.lastModified() + 10_000));
+
+        final PuzzleCatalog catalog = new PuzzleCatalog(folder.toString());
+        assertEquals(Set.of("simple.puzzle"), catalog.getValidPuzzleNames());
+        assertEquals("\"Compiled\"", catalog.getTemplate("simple.puzzle").getName());
+
+        assertTrue(compiled.setLastModified(puzzle.lastModified() - 10_000));
+        assertEquals(1, catalog.refresh());
+        assertEquals("\"Easy\"", catalog.getTemplate("simple.puzzle").getName());
+    }
+
+    //covers PuzzleCatalog(folder, loadInBackground), awaitLoaded()
+    //      load in background, more than one batch, malformed file among valid ones
+    @Test
+    public void testLoadInBackground() throws IOException, InterruptedException {
+        final Path folder = copyOf("puzzles");
+        final Set<String> expected = new HashSet<>(Set.of("simple.puzzle"));
+        for (int i = 0; i < 300; i++) {
+            final Path copy = folder.resolve("copy" + i + ".puzzle");
+            Files.copy(folder.resolve("simple.puzzle"), copy);
+            copy.toFile().deleteOnExit();
+            expected.add("copy" + i + ".puzzle");
+        }
+        final Path malformed = folder.resolve("malformed.puzzle");
+        Files.write(malformed, ">> \"Name\" \"Description\" (star, \"hint\", ACROSS, 99999999999, 0)".getBytes());
+        malformed.toFile().deleteOnExit();
+
+        final PuzzleCatalog catalog = new PuzzleCatalog(folder.toString(), true);
+        catalog.awaitLoaded();
+        assertEquals(expected, catalog.getValidPuzzleNames());
+        assertEquals(0, catalog.refresh());
+
+        final PuzzleCatalog loadedNow = new PuzzleCatalog(folder.toString(), false);
+        assertEquals(expected, loadedNow.getValidPuzzleNames());
+    }
+
+    //covers PuzzleCatalog(folder, loadInBackground, manifest), getTemplate()
+    //      manifest missing, written by an earlier catalog, holding a verdict; valid, no longer valid, not listed
+    @Test
+    public void testManifestSkipsCheckedContents() throws IOException {
+        final Path folder = copyOf("puzzles");
+        final File manifest = folder.resolve(PuzzleManifest.FILE_NAME).toFile();
+        manifest.deleteOnExit();
+        final String simple = PuzzleManifest.hash(Files.readAllBytes(folder.resolve("simple.puzzle")));
+        final String inconsistent = PuzzleManifest.hash(Files.readAllBytes(folder.resolve("inconsistent.puzzle")));
+
+        final PuzzleCatalog catalog = new PuzzleCatalog(folder.toString(), false, manifest);
+        assertEquals(Set.of("simple.puzzle"), catalog.getValidPuzzleNames());
+        assertEquals(Map.of(simple, true, inconsistent, false), PuzzleManifest.read(manifest));
+        assertEquals("\"Easy\"", catalog.getTemplate("simple.puzzle").getName());
+        assertNull(catalog.getTemplate("inconsistent.puzzle"));
+        assertNull(catalog.getTemplate("missing.puzzle"));
+
+        // a manifest verdict is trusted without checking the file, until a match is created from it
+        PuzzleManifest.write(Map.of(simple, true, inconsistent, true), manifest);
+        final PuzzleCatalog restarted = new PuzzleCatalog(folder.toString(), false, manifest);
+        assertEquals(Set.of("simple.puzzle", "inconsistent.puzzle"), restarted.getValidPuzzleNames());
+        assertEquals(0, restarted.refresh());
+        assertNull(restarted.getTemplate("inconsistent.puzzle"));
+        assertEquals("\"Easy\"", restarted.getTemplate("simple.puzzle").getName());
+    }
+
+    //covers getTemplate()
+    //      asked for again: file unchanged, only its modification time changed, contents changed
+    @Test
+    public void testGetTemplateKeptUntilContentsChange() throws IOException {
+        final Path folder = copyOf("puzzles");
+        final Path puzzle = folder.resolve("simple.puzzle");
+        final PuzzleCatalog catalog = new PuzzleCatalog(folder.toString());
+
+        final PuzzleTemplate template = catalog.getTemplate("simple.puzzle");
+        assertEquals("\"Easy\"", template.getName());
+        assertSame(template, catalog.getTemplate("simple.puzzle"));
+
+        assertTrue(puzzle.toFile().setLastModified(puzzle.toFile().lastModified() + 10_000));
+        assertEquals(1, catalog.refresh());
+        assertSame(template, catalog.getTemplate("simple.puzzle"), "same contents, so the template is kept");
+
+        final String contents = new String(Files.readAllBytes(puzzle), UTF_8);
+        Files.write(puzzle, contents.replace("\"Easy\"", "\"Changed\"").getBytes(UTF_8));
+        assertEquals(1, catalog.refresh());
+        assertEquals("\"Changed\"", catalog.getTemplate("simple.puzzle").getName());
+    }
+
+    //covers getTemplate()
+    //      template of a puzzle parsed to check it: kept without reading the file again
+    @Test
+    public void testGetTemplateParsedWhenChecked() throws IOException {
+        final Path folder = copyOf("puzzles");
+        final PuzzleCatalog catalog = new PuzzleCatalog(folder.toString());
+
+        // without a refresh, the catalog still lists the file, and has the template it parsed to check it
+        Files.delete(folder.resolve("simple.puzzle"));
+        assertEquals("\"Easy\"", catalog.getTemplate("simple.puzzle").getName());
+    }
+
+    //covers getTemplate()
+    //      template of a puzzle valid without being parsed: file changed after the refresh, while loading the template
+    @Test
+    public void testGetTemplateFileChangedSinceRefresh() throws IOException {
+        final Path folder = copyOf("puzzles");
+        final Path puzzle = folder.resolve("simple.puzzle");
+        final byte[] contents = Files.readAllBytes(puzzle);
+        final File manifest = folder.resolve(PuzzleManifest.FILE_NAME).toFile();
+        manifest.deleteOnExit();
+        PuzzleManifest.write(Map.of(PuzzleManifest.hash(contents), true), manifest);
+        final PuzzleCatalog catalog = new PuzzleCatalog(folder.toString(), false, manifest);
+
+        // the manifest says the file is valid, so it is only read when a template is asked for, after it changed
+        final String changed = new String(contents, UTF_8).replace("\"Easy\"", "\"Changed\"");
+        Files.write(puzzle, changed.getBytes(UTF_8));
+        assertEquals("\"Changed\"", catalog.getTemplate("simple.puzzle").getName());
+
+        // that template was not read from the version the catalog lists, so it isn't kept for that version
+        Files.write(puzzle, contents);
+        final PuzzleTemplate template = catalog.getTemplate("simple.puzzle");
+        assertEquals("\"Easy\"", template.getName());
+        assertSame(template, catalog.getTemplate("simple.puzzle"));
+    }
+
+    //covers startWatching(), stopWatching()
+    //      file added while watching, file removed while watching, file added after stopped
+    @Test
+    public void testWatchingFolder() throws IOException, InterruptedException {
+        final Path folder = copyOf("puzzles");
+        final PuzzleCatalog catalog = new PuzzleCatalog(folder.toString());
+        catalog.startWatching();
+
+        Files.copy(Paths.get("one-puzzle", "warmup.puzzle"), folder.resolve("warmup.puzzle"));
+        assertTrue(waitFor(catalog, Set.of("simple.puzzle", "warmup.puzzle")));
+
+        Files.delete(folder.resolve("simple.puzzle"));
+        assertTrue(waitFor(catalog, Set.of("warmup.puzzle")));
+
+        catalog.stopWatching();
+        Files.copy(Paths.get("one-puzzle", "standard.puzzle"), folder.resolve("standard.puzzle"));
+        assertEquals(Set.of("warmup.puzzle"), catalog.getValidPuzzleNames());
+    }
+
+    @Test
+    public void testAssertionsEnabled() {
+        assertThrows(AssertionError.class, () -> { assert false; },
+                "make sure assertions are enabled with VM argument '-ea'");
+    }
+
+    /**
+     * Helper method to copy a folder of puzzles into a new temporary folder
+     * @param folderPath folder to copy
+     * @return path to the new folder
+     * @throws IOException if the folder cannot be copied
+     */
+    private static Path copyOf(String folderPath) throws IOException {
+        final Path copy = Files.createTempDirectory("puzzles");
+        copy.toFile().deleteOnExit();
+
+        for (Path puzzle : Files.newDirectoryStream(Paths.get(folderPath))) {
+            Files.copy(puzzle, copy.resolve(puzzle.getFileName()));
+            copy.resolve(puzzle.getFileName()).toFile().deleteOnExit();
+        }
+        return copy;
+    }
+
+    /**
+     * Helper method to wait until a watched catalog has a given set of valid puzzles
+     * @param catalog catalog to wait on
+     * @param expected the set of valid puzzle names to wait for
+     * @return true iff the catalog had exactly the expected puzzles before timing out
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static boolean waitFor(PuzzleCatalog catalog, Set<String> expected) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + WATCH_TIMEOUT_MILLIS;
+
+        while (System.currentTimeMillis() < deadline) {
+            if (expected.equals(catalog.getValidPuzzleNames())) {
+                return true;
+            }
+            Thread.sleep(10);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,91 @@
+package crossword;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for manifests of checked puzzle contents
+ */
+public class PuzzleManifestTest {
+
+    /*
+     * Testing strategy for PuzzleManifest:
+     *
+     * Test hash()
+     *  contents: empty, non-empty; same contents, different contents
+     *
+     * Test write(), read()
+     *  number of hashes: 0, >1
+     *  verdicts: valid, invalid
+     *  file: written by write(), missing, not a manifest, corrupt line
+     */
+
+    //covers hash()
+    //      empty, non-empty, same contents, different contents
+    @Test
+    public void testHash() {
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", PuzzleManifest.hash(new byte[0]));
+        assertEquals(PuzzleManifest.hash("puzzle".getBytes(UTF_8)), PuzzleManifest.hash("puzzle".getBytes(UTF_8)));
+        assertNotEquals(PuzzleManifest.hash("puzzle".getBytes(UTF_8)), PuzzleManifest.hash("puzzles".getBytes(UTF_8)));
+    }
+
+    //covers write(), read()
+    //      0 hashes, >1 hashes, valid, invalid
+    @Test
+    public void testRoundTrip() throws IOException {
+        final File manifest = temporaryFile();
+        PuzzleManifest.write(Map.of(), manifest);
+        assertEquals(Map.of(), PuzzleManifest.read(manifest));
+
+        final Map<String, Boolean> checked = Map.of(PuzzleManifest.hash("a".getBytes(UTF_8)), true,
+                PuzzleManifest.hash("b".getBytes(UTF_8)), false);
+        PuzzleManifest.write(checked, manifest);
+        assertEquals(checked, PuzzleManifest.read(manifest));
+    }
+
+    //covers read()
+    //      missing, not a manifest, corrupt line
+    @Test
+    public void testInvalidFiles() throws IOException {
+        final File missing = temporaryFile();
+        Files.delete(missing.toPath());
+        assertEquals(Map.of(), PuzzleManifest.read(missing));
+
+        final File notManifest = temporaryFile();
+        Files.write(notManifest.toPath(), List.of(">> \"Name\" \"Description\""), UTF_8);
+        assertThrows(IOException.class, () -> PuzzleManifest.read(notManifest));
+
+        final File corrupt = temporaryFile();
+        PuzzleManifest.write(Map.of(PuzzleManifest.hash(new byte[0]), true), corrupt);
+        Files.write(corrupt.toPath(), List.of("abc maybe"), UTF_8, StandardOpenOption.APPEND);
+        assertThrows(IOException.class, () -> PuzzleManifest.read(corrupt));
+    }
+
+    @Test
+    public void testAssertionsEnabled() {
+        assertThrows(AssertionError.class, () -> { assert false; },
+                "make sure assertions are enabled with VM argument '-ea'");
+    }
+
+    /**
+     * Helper method to make a temporary file that is deleted when the tests end
+     * @return a new empty file
+     * @throws IOException if the file cannot be created
+     */
+    private static File temporaryFile() throws IOException {
+        final File file = Files.createTempFile("manifest", ".manifest").toFile();
+        file.deleteOnExit();
+        return file;
+    }
+}
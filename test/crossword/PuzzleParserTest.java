@@ -0,0 +1,164 @@
+package crossword;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import crossword.Server.PuzzleGrammar;
+import edu.mit.eecs.parserlib.Parser;
+import edu.mit.eecs.parserlib.UnableToParseException;
+
+/**
+ * Tests for the single-pass puzzle parser
+ */
+public class PuzzleParserTest {
+
+    /*
+     * Testing strategy for PuzzleParser:
+     *
+     * Test PuzzleParser(), getName(), getDescription()
+     *  whitespace and comments: none, before the header, between tokens, comment at the end of the file
+     *  description: plain, escapes, tab
+     *  invalid header: missing ">>", tab or backslash in name, invalid escape, newline in a string
+     *
+     * Test nextEntry()
+     *  number of entries: 0, 1, >1
+     *  whitespace and comments: none, between tokens, between the letters of the word
+     *  word: letters, hyphens
+     *  numbers: leading zeros, too large for an int
+     *  invalid entry: uppercase word, direction split by a space, number split by a space, lone '/', missing ')'
+     *  accepts exactly the inputs that the grammar accepts
+     *
+     * Test parse()
+     *  every entry is in the template, in order
+     *
+     * Files of the test-puzzles, one-puzzle and puzzles folders are compared with the grammar in ParserGrammerTest.
+     */
+
+    private static final Parser<PuzzleGrammar> GRAMMAR = Server.makeParser();
+    private static final String HEADER = ">> \"Name\" \"Description\"\n";
+
+    //covers PuzzleParser(), getName(), getDescription()
+    //      no whitespace, plain description
+    //covers nextEntry()
+    //      0 entries
+    @Test
+    public void testHeaderOnly() throws UnableToParseException, IOException {
+        final PuzzleParser parser = parser(">>\"Name\"\"Description\"");
+        assertEquals("\"Name\"", parser.getName());
+        assertEquals("\"Description\"", parser.getDescription());
+        assertNull(parser.nextEntry());
+        assertNull(parser.nextEntry());
+    }
+
+    //covers PuzzleParser(), getDescription()
+    //      whitespace and comments before the header and between tokens, escapes and tab in description,
+    //      comment at the end of the file
+    //covers nextEntry()
+    //      1 entry, whitespace and comments between tokens, hyphens, leading zeros
+    @Test
+    public void testWhitespaceAndComments() throws UnableToParseException, IOException {
+        final PuzzleParser parser = parser(" // intro\n>> \"Name\" //comment\r\n \"a\\\\b\\n\tc\"\n\n"
+                + "( st-ar ,\"twinkle // not a comment\" , //here\n ACROSS ,\t01 ,\r\n 0 ) // end");
+        assertEquals("\"Name\"", parser.getName());
+        assertEquals("\"a\\\\b\\n\tc\"", parser.getDescription());
+        assertEquals(new WordTuple(1, 0, "\"twinkle // not a comment\"", "st-ar", "ACROSS"), parser.nextEntry());
+        assertNull(parser.nextEntry());
+    }
+
+    //covers nextEntry()
+    //      whitespace and comments between the letters of the word
+    @Test
+    public void testSkipInsideWord() throws UnableToParseException, IOException {
+        final PuzzleParser parser = parser(HEADER + "(st ar//x\nt, \"h\", DOWN, 1, 0)");
+        assertEquals(new WordTuple(1, 0, "\"h\"", "start", "DOWN"), parser.nextEntry());
+    }
+
+    //covers parse()
+    //      >1 entries, in order
+    @Test
+    public void testParse() throws UnableToParseException, IOException {
+        final PuzzleTemplate template = PuzzleParser.parse(new StringReader(HEADER
+                + "(star, \"twinkle twinkle\", ACROSS, 1, 0)(market, \"Farmers ______\", DOWN, 0, 2)"));
+        assertEquals("\"Name\"", template.getName());
+        assertEquals(2, template.getNumberWords());
+        assertEquals("star", template.getAnswer(0));
+        assertEquals("market", template.getAnswer(1));
+        assertEquals(Word.Direction.DOWN, template.getDirection(1));
+        assertEquals(2, template.getStartCol(1));
+    }
+
+    //covers PuzzleParser(), nextEntry()
+    //      invalid headers and entries, too large for an int
+    @Test
+    public void testInvalid() {
+        for (String puzzle : List.of("> > \"N\" \"D\"", ">> \"N\t\" \"D\"", ">> \"N\\\\\" \"D\"", ">> \"N\" \"D\\x\"",
+                ">> \"N\n\" \"D\"", HEADER + "(STAR, \"h\", ACROSS, 1, 0)", HEADER + "(star, \"h\", ACR OSS, 1, 0)",
+                HEADER + "(star, \"h\", ACROSS, 1 0, 0)", HEADER + "(star, \"h\", ACROSS, 1, 0)/",
+                HEADER + "(star, \"h\", ACROSS, 1, 0", HEADER + "(star, \"h\", ACROSS, 99999999999, 0)", "")) {
+            assertThrows(UnableToParseException.class, () -> PuzzleParser.parse(new StringReader(puzzle)), puzzle);
+        }
+    }
+
+    //covers PuzzleParser(), nextEntry()
+    //      accepts exactly the inputs that the grammar accepts
+    @Test
+    public void testSameLanguageAsGrammar() {
+        for (String puzzle : List.of(">> \"\" \"\"", ">>\"N\"\"D\"(star,\"h\",ACROSS,1,0)", "//c\n" + HEADER,
+                HEADER + "(star, \"h\", ACROSS, 1, 0)//end", HEADER + "(st ar, \"h\", DOWN, 1, 0)  \n\n",
+                ">> \"N\" \"D\"\f", "//a\r(b", HEADER + "(star, \"h\", ACROSS, 1, 0) x",
+                HEADER + "(star, \"h\\t\", DOWN, 1, 0)", HEADER + "(star, \"h\", ACROSS, 1, 0 )",
+                ">> \"N\" \"D\"/", HEADER + "(-, \"h\", ACROSS, 1, 0)", HEADER + "(, \"h\", ACROSS, 1, 0)")) {
+            assertEquals(grammarAccepts(puzzle), parserAccepts(puzzle), puzzle);
+        }
+    }
+
+    @Test
+    public void testAssertionsEnabled() {
+        assertThrows(AssertionError.class, () -> { assert false; },
+                "make sure assertions are enabled with VM argument '-ea'");
+    }
+
+    /**
+     * Helper method to start parsing a puzzle held in a string
+     * @param puzzle text of the puzzle
+     * @return parser that has read the header of puzzle
+     * @throws UnableToParseException if puzzle doesn't start with a valid header
+     * @throws IOException never
+     */
+    private static PuzzleParser parser(String puzzle) throws UnableToParseException, IOException {
+        return new PuzzleParser(new StringReader(puzzle));
+    }
+
+    /**
+     * @param puzzle text of a puzzle
+     * @return true iff the grammar in PuzzleGrammar.g accepts puzzle
+     */
+    private static boolean grammarAccepts(String puzzle) {
+        try {
+            GRAMMAR.parse(puzzle);
+            return true;
+        } catch (UnableToParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param puzzle text of a puzzle
+     * @return true iff PuzzleParser accepts puzzle
+     */
+    private static boolean parserAccepts(String puzzle) {
+        try {
+            PuzzleParser.parse(new StringReader(puzzle));
+            return true;
+        } catch (UnableToParseException | IOException e) {
+            return false;
+        }
+    }
+}
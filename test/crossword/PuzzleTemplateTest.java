@@ -0,0 +1,167 @@
+package crossword;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import crossword.Word.Direction;
+import crossword.Word.TryResult;
+
+/**
+ * Tests for compiled puzzle templates
+ */
+public class PuzzleTemplateTest {
+
+    /*
+     * Testing strategy for PuzzleTemplate:
+     *
+     * Test PuzzleTemplate()
+     *  number of words: 0, 1, >1
+     *  answers: lowercase, mixed case
+     *  words: across only, down only, across and down
+     *
+     * Test isPresent()
+     *  cell covered by a word, cell not covered by any word
+     *
+     * Test Match(PuzzleTemplate)
+     *  same board as a match built from the word tuples
+     *  two matches from the same template: state of one doesn't change the other
+     */
+
+    //covers PuzzleTemplate()
+    //      0 words
+    @Test
+    public void testEmptyTemplate() {
+        final PuzzleTemplate template = new PuzzleTemplate("Empty", "Nothing here", new ArrayList<>());
+
+        assertEquals("Empty", template.getName());
+        assertEquals("Nothing here", template.getDescription());
+        assertEquals(0, template.getNumberWords());
+        assertEquals(0, template.getRows());
+        assertEquals(0, template.getColumns());
+    }
+
+    //covers PuzzleTemplate()
+    //      1 word, mixed case answer, across only
+    @Test
+    public void testOneWordMixedCase() {
+        final List<WordTuple> words = new ArrayList<>();
+        words.add(new WordTuple(1, 2, "hint", "CaT", "ACROSS"));
+        final PuzzleTemplate template = new PuzzleTemplate("Match name", "Match description", words);
+
+        assertEquals(1, template.getNumberWords());
+        assertEquals("cat", template.getAnswer(0));
+        assertEquals("hint", template.getHint(0));
+        assertEquals(1, template.getStartRow(0));
+        assertEquals(2, template.getStartCol(0));
+        assertEquals(Direction.ACROSS, template.getDirection(0));
+        assertEquals(2, template.getRows());
+        assertEquals(5, template.getColumns());
+    }
+
+    //covers PuzzleTemplate(), isPresent()
+    //      >1 words, lowercase answers, across and down
+    //      cell covered by a word, cell not covered by any word
+    @Test
+    public void testGeometryAcrossAndDown() {
+        final List<WordTuple> words = new ArrayList<>();
+        words.add(new WordTuple(0, 1, "twinkle", "star", "ACROSS"));
+        words.add(new WordTuple(0, 1, "shine", "sun", "DOWN"));
+        final PuzzleTemplate template = new PuzzleTemplate("Match name", "Match description", words);
+
+        assertEquals(2, template.getNumberWords());
+        assertEquals(Direction.DOWN, template.getDirection(1));
+        assertEquals(3, template.getRows());
+        assertEquals(5, template.getColumns());
+
+        for (int col = 1; col < 5; col++) {
+            assertTrue(template.isPresent(0, col));
+        }
+        assertTrue(template.isPresent(1, 1));
+        assertTrue(template.isPresent(2, 1));
+        assertFalse(template.isPresent(0, 0));
+        assertFalse(template.isPresent(1, 2));
+        assertFalse(template.isPresent(2, 4));
+    }
+
+    //covers getMoveWords(), getMoveLocks(), getMoveCells(), getAllWords(), getPresentCells()
+    //      word crossed by no word, by one word, by a word that is crossed by another word
+    @Test
+    public void testMoveTables() {
+        // sun DOWN from (0,1) crosses star ACROSS at (0,1) and nap ACROSS at (2,1), which crosses pa DOWN at (2,3);
+        // ox ACROSS at (5,0) crosses nothing
+        final List<WordTuple> words = new ArrayList<>();
+        words.add(new WordTuple(0, 1, "twinkle", "star", "ACROSS"));
+        words.add(new WordTuple(0, 1, "shine", "sun", "DOWN"));
+        words.add(new WordTuple(2, 1, "sleep", "nap", "ACROSS"));
+        words.add(new WordTuple(2, 3, "father", "pa", "DOWN"));
+        words.add(new WordTuple(5, 0, "bull", "ox", "ACROSS"));
+        final PuzzleTemplate template = new PuzzleTemplate("Match name", "Match description", words);
+        final int columns = template.getColumns();
+
+        assertArrayEquals(new int[] {4}, template.getMoveWords(4));
+        assertArrayEquals(new int[] {4}, template.getMoveLocks(4));
+        assertArrayEquals(new int[] {5 * columns, 5 * columns + 1}, template.getMoveCells(4));
+
+        assertArrayEquals(new int[] {0, 1}, template.getMoveWords(0));
+        assertArrayEquals(new int[] {0, 1, 2}, template.getMoveLocks(0));
+        assertArrayEquals(new int[] {1, 2, 3, 4, columns + 1, 2 * columns + 1}, template.getMoveCells(0));
+
+        assertArrayEquals(new int[] {1, 2, 3}, template.getMoveWords(2));
+        assertArrayEquals(new int[] {0, 1, 2, 3}, template.getMoveLocks(2));
+
+        assertArrayEquals(new int[] {0, 1, 2, 3, 4}, template.getAllWords());
+        assertEquals(4 + 2 + 2 + 1 + 2, template.getPresentCells().length);
+        for (int cell : template.getPresentCells()) {
+            assertTrue(template.isPresent(cell / columns, cell % columns));
+        }
+    }
+
+    //covers Match(PuzzleTemplate)
+    //      same board as a match built from the word tuples
+    @Test
+    public void testMatchFromTemplateSameBoard() {
+        final List<WordTuple> words = new ArrayList<>();
+        words.add(new WordTuple(0, 1, "twinkle", "star", "ACROSS"));
+        words.add(new WordTuple(0, 1, "shine", "sun", "DOWN"));
+
+        final Match fromTuples = new Match("Match name", "Match description", words);
+        final Match fromTemplate = new Match(new PuzzleTemplate("Match name", "Match description", words));
+
+        assertEquals(fromTuples.toString(), fromTemplate.toString());
+        assertEquals(fromTuples.checkConsistency(), fromTemplate.checkConsistency());
+    }
+
+    //covers Match(PuzzleTemplate)
+    //      two matches from the same template: state of one doesn't change the other
+    @Test
+    public void testMatchesFromTemplateIndependent() {
+        final List<WordTuple> words = new ArrayList<>();
+        words.add(new WordTuple(0, 1, "twinkle", "star", "ACROSS"));
+        words.add(new WordTuple(0, 1, "shine", "sun", "DOWN"));
+        final PuzzleTemplate template = new PuzzleTemplate("Match name", "Match description", words);
+
+        final Match first = new Match(template);
+        final Match second = new Match(template);
+        final String before = second.toString();
+        final Player player = new Player("player");
+        first.addPlayer(player);
+
+        assertEquals(TryResult.SUCCESS, first.tryInsert(player, 1, "star"));
+        assertEquals(before, second.toString());
+        assertFalse(first.toString().equals(second.toString()));
+    }
+
+    @Test
+    public void testAssertionsEnabled() {
+        assertThrows(AssertionError.class, () -> { assert false; },
+                "make sure assertions are enabled with VM argument '-ea'");
+    }
+}
@@ -0,0 +1,99 @@
+package crossword;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the linear-time puzzle consistency checker
+ */
+public class PuzzleValidatorTest {
+
+    /*
+     * Testing strategy for PuzzleValidator:
+     *
+     * Test findConflicts(), isConsistent()
+     *  number of entries: 0, 1, >1
+     *  conflicts: none, same answer, same direction overlap (across, down), crossing with different letters
+     *  crossing: same letter, different letter; across placed first, down placed first
+     *  overlapping pair shares: one cell, several cells
+     *  number of conflicts: 0, 1, >1
+     *  verdict: same as checkConsistency() of a match of the puzzle
+     */
+
+    //covers findConflicts(), isConsistent()
+    //      0 entries, 1 entry, no conflicts
+    @Test
+    public void testNoEntries() {
+        final List<WordTuple> words = new ArrayList<>();
+        assertEquals(List.of(), PuzzleValidator.findConflicts(template(words)));
+
+        words.add(new WordTuple(0, 0, "hint", "cat", "ACROSS"));
+        assertTrue(PuzzleValidator.isConsistent(template(words)));
+    }
+
+    //covers findConflicts()
+    //      >1 entries, crossing with same letter, across placed first, down placed first
+    @Test
+    public void testCrossingSameLetter() {
+        final List<WordTuple> words = new ArrayList<>();
+        words.add(new WordTuple(1, 0, "hint", "mab", "ACROSS"));
+        words.add(new WordTuple(0, 1, "hint", "cat", "DOWN"));
+        words.add(new WordTuple(3, 0, "hint", "star", "ACROSS"));
+        assertEquals(List.of(), PuzzleValidator.findConflicts(template(words)));
+        assertTrue(new Match(template(words)).checkConsistency());
+    }
+
+    //covers findConflicts()
+    //      same answer, crossing with different letters, 1 conflict each, verdict same as checkConsistency()
+    @Test
+    public void testSameAnswerAndCrossing() {
+        final List<WordTuple> words = new ArrayList<>();
+        words.add(new WordTuple(0, 0, "hint", "cat", "ACROSS"));
+        words.add(new WordTuple(5, 5, "hint", "CAT", "DOWN"));
+        assertEquals(List.of("entries 1 and 2 have the same answer cat"), PuzzleValidator.findConflicts(template(words)));
+
+        final List<WordTuple> crossing = new ArrayList<>();
+        crossing.add(new WordTuple(0, 1, "hint", "cow", "DOWN"));
+        crossing.add(new WordTuple(1, 0, "hint", "mab", "ACROSS"));
+        assertEquals(List.of("entries 1 and 2 cross at 1 1 with different letters o and a"),
+                PuzzleValidator.findConflicts(template(crossing)));
+        assertFalse(new Match(template(crossing)).checkConsistency());
+    }
+
+    //covers findConflicts()
+    //      same direction overlap across sharing several cells, down sharing one cell, >1 conflicts
+    @Test
+    public void testOverlaps() {
+        final List<WordTuple> words = new ArrayList<>();
+        words.add(new WordTuple(0, 0, "hint", "cat", "ACROSS"));
+        words.add(new WordTuple(0, 1, "hint", "atom", "ACROSS"));
+        words.add(new WordTuple(2, 5, "hint", "dog", "DOWN"));
+        words.add(new WordTuple(4, 5, "hint", "goat", "DOWN"));
+        assertEquals(List.of("entries 1 and 2 overlap in the same direction at 0 1",
+                "entries 3 and 4 overlap in the same direction at 4 5"), PuzzleValidator.findConflicts(template(words)));
+        assertFalse(PuzzleValidator.isConsistent(template(words)));
+        assertFalse(new Match(template(words)).checkConsistency());
+    }
+
+    @Test
+    public void testAssertionsEnabled() {
+        assertThrows(AssertionError.class, () -> { assert false; },
+                "make sure assertions are enabled with VM argument '-ea'");
+    }
+
+    /**
+     * Helper method to compile a puzzle
+     * @param words the entries of the puzzle
+     * @return template of a puzzle with those entries
+     */
+    private static PuzzleTemplate template(List<WordTuple> words) {
+        return new PuzzleTemplate("Puzzle", "Puzzle description", words);
+    }
+}
@@ -2,6 +2,7 @@ package crossword;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -9,11 +10,30 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
 import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import crossword.Word.TryResult;
+
 @Tag("no-didit")
 /**
  * Tests for server for our puzzle
@@ -25,15 +45,19 @@ public class ServerTest {
      * 
      * Test init()
      * 
+     * Test start()
+     *  puzzles still loading in the background: the server answers before they are all loaded
+     * 
      * Test handleStart()
-     *  fails precondition, passes precondition (with multiple players)
+     *  fails precondition (ID taken, ID not alphanumeric), passes precondition (with multiple players)
      *      passing precondition: no matches to play (only new games), matches to play
      *  
      * Test chooseNewMatch()
      *  fails precondition, passes precondition
-     *      failure: non-unique match ID, non-existing puzzle ID
+     *      failure: non-unique match ID, non-existing puzzle ID, player not logged in
      *      
      * Test waitForJoin()
+     *  second player joins, creator exits before anyone joins
      *  
      * Test playMatch()
      *  fails precondition (matchID doesn't exist), passes precondition
@@ -61,9 +85,37 @@ public class ServerTest {
      *  challenge move updates board
      *  any move finishes board
      * 
+     * Test streamBoard()
+     *  first event is the current board, then one event per move, finishing move sends show_score and ends the stream
+     *  match not being played: stream ends without events
+     * 
+     * Test versioned boards (since=VERSION on tryPlay(), challenge(), watchBoard(), streamBoard())
+     *  since: not given (whole board), negative (snapshot), current version (delta), behind the current version
+     *      (watchBoard() answers without waiting for a move)
+     * 
+     * Test streamMatches()
+     *  first event is the current list of matches, then one event per added or removed match
+     *  lobby changes while the stream is being opened: the change is never missed
+     * 
+     * Concurrency tests:
+     *  tryPlay() on many matches at once: a try held up in one match, a try in another match
+     *  executor mode: cached, virtual (or unsupported before Java 21), bounded
+     *      waitForJoin() and watchBoard() complete in every mode
+     *      bounded: more watchMatches() long-polls than threads, other requests still answered
+     *  streamMatches() client that never reads: waitForJoin() is still answered
+     *  streamBoard() clients that never read, in more matches than there are dispatcher threads: watchBoard() of
+     *      another match is still answered
      * 
      */
     
+    // how long a test waits for the server before giving up
+    private static final long TIMEOUT_SECONDS = 10;
+    // enough puzzles that loading them takes far longer than starting the server
+    private static final int SLOW_LOAD_PUZZLES = 400;
+    // enough board events, of a hint this long, to fill the socket buffers of a client that never reads
+    private static final int STALLED_HINT_CHARS = 64 * 1024;
+    private static final int STALLED_MOVES = 60;
+    
     
     
     
@@ -140,6 +192,45 @@ public class ServerTest {
         
     }
     
+    //covers start()
+    //      puzzles still loading in the background: the server answers before they are all loaded
+    @Test
+    public void testStartDuringSlowLoad() throws IOException, InterruptedException {
+        
+        final Path folder = Files.createTempDirectory("puzzles");
+        folder.toFile().deleteOnExit();
+        final String simple = new String(Files.readAllBytes(Paths.get("puzzles", "simple.puzzle")), UTF_8);
+        for (int i = 0; i < SLOW_LOAD_PUZZLES; i++) {
+            // different descriptions, so every file is parsed and checked
+            final Path puzzle = folder.resolve("copy" + i + ".puzzle");
+            Files.write(puzzle, simple.replace("An easy puzzle", "Puzzle " + i).getBytes(UTF_8));
+            puzzle.toFile().deleteOnExit();
+        }
+        
+        final Server server = new Server(folder.toString(), 0, ExecutorMode.CACHED, true, null);
+        server.start();
+        final String root = "http://localhost:" + server.port();
+        
+        final String lobby = getResult(new BufferedReader(new InputStreamReader(
+                openWithTimeout(new URL(root + "/start/player1")), UTF_8)));
+        int listed = Integer.parseInt(lobby.split("\n")[2]);
+        assertTrue(listed < SLOW_LOAD_PUZZLES, "start() waited for all " + listed + " puzzles to load");
+        
+        // the rest of the puzzles are offered once they are loaded
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        int player = 1;
+        while (listed < SLOW_LOAD_PUZZLES && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            player++;
+            final String later = getResult(new BufferedReader(new InputStreamReader(
+                    openWithTimeout(new URL(root + "/start/player" + player)), UTF_8)));
+            listed = Integer.parseInt(later.split("\n")[2]);
+        }
+        assertEquals(SLOW_LOAD_PUZZLES, listed);
+        
+        server.stop();
+    }
+    
     //covers handleStart()
     //      fails precondition
     @Test 
@@ -163,6 +254,28 @@ public class ServerTest {
         
     }
     
+    //covers handleStart()
+    //      fails precondition, ID not alphanumeric
+    //covers chooseNewMatch()
+    //      player not logged in
+    @Test 
+    public void testHandleStartInvalidID() throws IOException {
+        
+        final Server server = new Server("one-puzzle", 0);
+        server.start();
+        final String root = "http://localhost:" + server.port();
+        
+        final BufferedReader start = new BufferedReader(new InputStreamReader(
+                new URL(root + "/start/bad%20id").openStream(), UTF_8));
+        assertEquals("start\ntry again", getResult(start));
+        
+        final BufferedReader choose = new BufferedReader(new InputStreamReader(
+                new URL(root + "/choose/nobody/thisMatch/warmup.puzzle/hi").openStream(), UTF_8));
+        assertTrue(getResult(choose).startsWith("choose\ntry again\n"));
+        
+        server.stop();
+    }
+    
     //covers handleStart()
     //      passes precondition with multiple players, no matches to join yet
     @Test 
@@ -399,6 +512,58 @@ public class ServerTest {
         
     }
     
+    //covers waitForJoin()
+    //      creator exits before anyone joins
+    @Test
+    public void testWaitForJoinCreatorExits() throws IOException, InterruptedException {
+        
+        final CountDownLatch waiterRegistered = new CountDownLatch(1);
+        final List<CompletableFuture<Match>> waits = Collections.synchronizedList(new ArrayList<>());
+        final Server server = new Server("puzzles", 0) {
+            @Override
+            protected Match newMatch(PuzzleTemplate template) {
+                // records the future that waitForJoin waits on, so the test exits only once the waiter is registered
+                return new Match(template) {
+                    @Override
+                    public CompletableFuture<Match> whenStarted() {
+                        final CompletableFuture<Match> wait = super.whenStarted();
+                        waits.add(wait);
+                        waiterRegistered.countDown();
+                        return wait;
+                    }
+                };
+            }
+        };
+        server.start();
+        final String root = "http://localhost:" + server.port();
+        
+        new URL(root + "/start/player1").openStream().close();
+        new URL(root + "/choose/player1/thisMatch/simple.puzzle/hi").openStream().close();
+        
+        final List<String> joined = Collections.synchronizedList(new ArrayList<>());
+        final Thread waiter = new Thread(() -> {
+            try {
+                final URL waitURL = new URL(root + "/waitforjoin/player1/thisMatch");
+                joined.add(new String(waitURL.openStream().readAllBytes(), UTF_8)); // getResult() needs a non-empty response
+            } catch (IOException e) {
+                joined.add(e.toString());
+            }
+        });
+        waiter.start();
+        assertTrue(waiterRegistered.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), "waitForJoin never waited on the match");
+        
+        new URL(root + "/exit/wait/player1/thisMatch").openStream().close();
+        waiter.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        assertFalse(waiter.isAlive(), "exiting should answer the pending waitForJoin");
+        assertEquals(1, waits.size());
+        final CompletionException answered = assertThrows(CompletionException.class, waits.get(0)::join);
+        assertTrue(answered.getCause() instanceof CancellationException,
+                "the pending waitForJoin should be answered by cancelling it");
+        assertEquals(List.of(""), joined);
+        
+        server.stop();
+    }
+    
     //covers exit()
     //      gamestate == play
     @Test 
@@ -686,6 +851,479 @@ public class ServerTest {
     }
     
     
+    //covers concurrency for tryPlay()
+    //      >1 matches: a try held up in one match doesn't hold up a try in another match
+    @Test
+    public void testTriesInDifferentMatchesOverlap() throws IOException, InterruptedException {
+        
+        final CountDownLatch blockedTryStarted = new CountDownLatch(1);
+        final CountDownLatch releaseBlockedTry = new CountDownLatch(1);
+        final AtomicInteger matchesMade = new AtomicInteger();
+        final Server server = new Server("test-puzzles", 0) {
+            @Override
+            protected Match newMatch(PuzzleTemplate template) {
+                if (matchesMade.getAndIncrement() > 0) {
+                    return super.newMatch(template);
+                }
+                // the first match holds up every try until the test releases it
+                return new Match(template) {
+                    @Override
+                    public TryResult tryInsert(Player player, int wordID, String tryWord) {
+                        blockedTryStarted.countDown();
+                        try {
+                            releaseBlockedTry.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return super.tryInsert(player, wordID, tryWord);
+                    }
+                };
+            }
+        };
+        server.start();
+        final String root = "http://localhost:" + server.port();
+        
+        for (String match : List.of("blocked", "free")) {
+            new URL(root + "/start/" + match + "A").openStream().close();
+            new URL(root + "/start/" + match + "B").openStream().close();
+            new URL(root + "/choose/" + match + "A/" + match + "/verysimple.puzzle/hi").openStream().close();
+            new URL(root + "/play/" + match + "B/" + match).openStream().close();
+        }
+        
+        final List<String> blockedResult = Collections.synchronizedList(new ArrayList<>());
+        final Thread blockedTry = new Thread(() -> {
+            try {
+                blockedResult.add(getResult(new BufferedReader(new InputStreamReader(
+                        new URL(root + "/try/blockedA/blocked/1/star").openStream(), UTF_8))));
+            } catch (IOException e) {
+                blockedResult.add(e.toString());
+            }
+        });
+        blockedTry.start();
+        assertTrue(blockedTryStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), "the try in the first match started");
+        
+        // answered while the try in the other match is still running, so tries in different matches don't serialize
+        final String freeResult = getResult(new BufferedReader(new InputStreamReader(
+                new URL(root + "/try/freeA/free/1/star").openStream(), UTF_8)));
+        assertTrue(freeResult.startsWith("play\nsuccess\n"), freeResult);
+        assertTrue(blockedTry.isAlive(), "the try in the first match is still held up");
+        
+        releaseBlockedTry.countDown();
+        blockedTry.join();
+        assertEquals(1, blockedResult.size());
+        assertTrue(blockedResult.get(0).startsWith("play\nsuccess\n"), blockedResult.get(0));
+        
+        server.stop();
+    }
+    
+    
+    //covers streamBoard()
+    //      first event is the current board, one event per move, finishing move ends the stream
+    @Test
+    public void testStreamBoard() throws IOException {
+        
+        final Server server = new Server("test-puzzles", 0);
+        server.start();
+        final String root = "http://localhost:" + server.port();
+        
+        new URL(root + "/start/player1").openStream().close();
+        new URL(root + "/start/player2").openStream().close();
+        new URL(root + "/choose/player1/thisMatch/verysimple.puzzle/hi").openStream().close();
+        new URL(root + "/play/player2/thisMatch").openStream().close();
+        
+        final BufferedReader events = new BufferedReader(new InputStreamReader(
+                new URL(root + "/streamboard/player1/thisMatch").openStream(), UTF_8));
+        final List<String> received = new ArrayList<>();
+        
+        ClientManager.receiveEvents(events, event -> {
+            received.add(event);
+            try {
+                if (received.size() == 1) { // a move that changes the board
+                    new URL(root + "/try/player2/thisMatch/1/stab").openStream().close();
+                } else if (received.size() == 2) { // moves that finish the match
+                    new URL(root + "/try/player2/thisMatch/1/star").openStream().close();
+                    new URL(root + "/try/player2/thisMatch/2/market").openStream().close();
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            return true;
+        });
+        events.close();
+        
+        // the board after the first finishing move may or may not get its own event, depending on timing
+        final String last = received.get(received.size() - 1);
+        assertTrue(received.size() == 3 || received.size() == 4, received.toString());
+        assertTrue(received.get(0).startsWith("play\nupdate\nplayer1\n"), received.get(0));
+        assertTrue(received.get(1).startsWith("play\nupdate\nplayer1\n"), received.get(1));
+        assertTrue(received.get(1).contains("stab"), received.get(1));
+        assertTrue(last.startsWith("show_score\nplayer2\nplayer1\n"), last);
+        
+        server.stop();
+    }
+    
+    //covers versioned boards
+    //      since: not given, negative, current version
+    @Test
+    public void testVersionedBoards() throws IOException {
+        
+        final Server server = new Server("test-puzzles", 0);
+        server.start();
+        final String root = "http://localhost:" + server.port();
+        
+        new URL(root + "/start/player1").openStream().close();
+        new URL(root + "/start/player2").openStream().close();
+        new URL(root + "/choose/player1/thisMatch/verysimple.puzzle/hi").openStream().close();
+        new URL(root + "/play/player2/thisMatch").openStream().close();
+        
+        final String whole = getResult(new BufferedReader(new InputStreamReader(
+                new URL(root + "/try/player2/thisMatch/1/stab").openStream(), UTF_8)));
+        assertTrue(whole.startsWith("play\nsuccess\nplayer2\n"), whole);
+        assertTrue(!whole.contains("snapshot") && !whole.contains("delta"), whole);
+        
+        final String snapshot = getResult(new BufferedReader(new InputStreamReader(
+                new URL(root + "/try/player2/thisMatch/1/stab?since=-1").openStream(), UTF_8)));
+        assertTrue(snapshot.contains("\nsnapshot 1\n"), snapshot);
+        
+        final BufferedReader events = new BufferedReader(new InputStreamReader(
+                new URL(root + "/streamboard/player1/thisMatch?since=1").openStream(), UTF_8));
+        final List<String> received = new ArrayList<>();
+        ClientManager.receiveEvents(events, event -> {
+            received.add(event);
+            try {
+                if (received.size() == 1) {
+                    new URL(root + "/try/player2/thisMatch/1/star").openStream().close();
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            return received.size() < 2;
+        });
+        events.close();
+        
+        assertTrue(received.get(0).contains("\ndelta 1 1\n0\n"), received.get(0));
+        assertTrue(received.get(1).contains("\ndelta 1 2\n"), received.get(1));
+        assertTrue(received.get(1).contains("cell 1 3 r\n"), received.get(1));
+        
+        // the client is behind, so watchBoard answers right away instead of waiting for the next move
+        final String behind = getResult(new BufferedReader(new InputStreamReader(
+                new URL(root + "/watchboard/player1/thisMatch?since=1").openStream(), UTF_8)));
+        assertTrue(behind.contains("\ndelta 1 2\n"), behind);
+        
+        server.stop();
+    }
+    
+    //covers streamBoard()
+    //      match not being played
+    @Test
+    public void testStreamBoardNoMatch() throws IOException {
+        
+        final Server server = new Server("puzzles", 0);
+        server.start();
+        
+        final BufferedReader events = new BufferedReader(new InputStreamReader(
+                new URL("http://localhost:" + server.port() + "/streamboard/player1/noMatch").openStream(), UTF_8));
+        final List<String> received = new ArrayList<>();
+        ClientManager.receiveEvents(events, received::add);
+        
+        assertEquals(List.of(), received);
+        server.stop();
+    }
+    
+    //covers streamMatches()
+    //      first event is the current list, one event per added or removed match
+    @Test
+    public void testStreamMatches() throws IOException {
+        
+        final Server server = new Server("puzzles", 0);
+        server.start();
+        final String root = "http://localhost:" + server.port();
+        
+        new URL(root + "/start/player1").openStream().close();
+        
+        final BufferedReader events = new BufferedReader(new InputStreamReader(
+                new URL(root + "/streammatches/").openStream(), UTF_8));
+        final List<String> received = new ArrayList<>();
+        
+        ClientManager.receiveEvents(events, event -> {
+            received.add(event);
+            try {
+                if (received.size() == 1) { // add a match
+                    new URL(root + "/choose/player1/thisMatch/simple.puzzle/hi").openStream().close();
+                } else if (received.size() == 2) { // remove it again
+                    new URL(root + "/exit/wait/player1/thisMatch").openStream().close();
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            return received.size() < 3;
+        });
+        events.close();
+        
+        // the same data as watchMatches responses, which end with a newline
+        assertEquals(List.of("choose\nupdate\n1\nsimple.puzzle\n0\n",
+                "choose\nupdate\n1\nsimple.puzzle\n1\nthisMatch\nhi\n",
+                "choose\nupdate\n1\nsimple.puzzle\n0\n"), received);
+        
+        server.stop();
+    }
+    
+    //covers streamMatches()
+    //      lobby changes while the stream is being opened: the change is never missed
+    @Test
+    public void testStreamMatchesOpenedDuringChange() throws IOException, InterruptedException {
+        
+        final Server server = new Server("puzzles", 0);
+        server.start();
+        final String root = "http://localhost:" + server.port();
+        
+        for (int i = 0; i < 20; i++) {
+            final String matchID = "race" + i;
+            new URL(root + "/start/" + matchID).openStream().close();
+            final Thread chooser = new Thread(() -> {
+                try {
+                    new URL(root + "/choose/" + matchID + "/" + matchID + "/simple.puzzle/hi").openStream().close();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            
+            // the match is added at about the same time as the stream opens, so it is either in the first event or
+            // in a later one, and the stream times out if the change was lost in between
+            chooser.start();
+            final BufferedReader events = new BufferedReader(new InputStreamReader(
+                    openWithTimeout(new URL(root + "/streammatches/")), UTF_8));
+            final List<String> received = new ArrayList<>();
+            ClientManager.receiveEvents(events, event -> {
+                received.add(event);
+                return !event.contains("\n" + matchID + "\n");
+            });
+            events.close();
+            chooser.join();
+            
+            assertTrue(received.get(received.size() - 1).contains("\n" + matchID + "\n"), received.toString());
+        }
+        
+        server.stop();
+    }
+    
+    //covers executor mode: cached, virtual, bounded
+    //      waitForJoin() and watchBoard() complete in every mode
+    @Test
+    public void testExecutorModes() throws IOException, InterruptedException {
+        
+        for (ExecutorMode mode : ExecutorMode.values()) {
+            
+            if (mode == ExecutorMode.VIRTUAL && Runtime.version().feature() < 21) {
+                assertThrows(UnsupportedOperationException.class, () -> new Server("puzzles", 0, mode));
+                continue;
+            }
+            
+            final Server server = new Server("puzzles", 0, mode);
+            server.start();
+            final String root = "http://localhost:" + server.port();
+            
+            new URL(root + "/start/player1").openStream().close();
+            new URL(root + "/start/player2").openStream().close();
+            new URL(root + "/choose/player1/thisMatch/simple.puzzle/hi").openStream().close();
+            
+            final List<String> joined = Collections.synchronizedList(new ArrayList<>());
+            final Thread waiter = new Thread(() -> {
+                try {
+                    final URL waitURL = new URL(root + "/waitforjoin/player1/thisMatch");
+                    joined.add(getResult(new BufferedReader(new InputStreamReader(waitURL.openStream(), UTF_8))));
+                } catch (IOException e) {
+                    joined.add(e.toString());
+                }
+            });
+            waiter.start();
+            
+            new URL(root + "/play/player2/thisMatch").openStream().close();
+            waiter.join();
+            assertEquals(1, joined.size());
+            assertTrue(joined.get(0).startsWith("play\nnew\nplayer1\n"), mode + ": " + joined.get(0));
+            
+            final InputStream watch = new URL(root + "/watchboard/player1/thisMatch").openStream();
+            new URL(root + "/try/player2/thisMatch/1/star").openStream().close();
+            final String update = getResult(new BufferedReader(new InputStreamReader(watch, UTF_8)));
+            assertTrue(update.startsWith("play\nupdate\nplayer1\n"), mode + ": " + update);
+            
+            server.stop();
+        }
+    }
+    
+    //covers executor mode: bounded
+    //      more watchMatches() long-polls than threads, other requests still answered
+    @Test
+    public void testBoundedLobbyLongPolls() throws IOException {
+        
+        final int threads = 2;
+        final String previousThreads = System.getProperty("crossword.threads");
+        System.setProperty("crossword.threads", String.valueOf(threads));
+        final Server server;
+        try {
+            server = new Server("puzzles", 0, ExecutorMode.BOUNDED);
+        } finally {
+            if (previousThreads == null) {
+                System.clearProperty("crossword.threads");
+            } else {
+                System.setProperty("crossword.threads", previousThreads);
+            }
+        }
+        server.start();
+        final String root = "http://localhost:" + server.port();
+        
+        // each long-poll has its headers once the request is handled, and then waits for the lobby to change
+        final List<InputStream> watches = new ArrayList<>();
+        for (int i = 0; i < 2 * threads; i++) {
+            watches.add(openWithTimeout(new URL(root + "/watchmatches/")));
+        }
+        
+        assertEquals("choose\nnew\n1\nsimple.puzzle\n0", getResult(new BufferedReader(new InputStreamReader(
+                openWithTimeout(new URL(root + "/start/player1")), UTF_8))));
+        assertEquals("wait", getResult(new BufferedReader(new InputStreamReader(
+                openWithTimeout(new URL(root + "/choose/player1/thisMatch/simple.puzzle/hi")), UTF_8))));
+        
+        for (InputStream watch : watches) {
+            assertEquals("choose\nupdate\n1\nsimple.puzzle\n1\nthisMatch\nhi",
+                    getResult(new BufferedReader(new InputStreamReader(watch, UTF_8))));
+        }
+        
+        server.stop();
+    }
+    
+    //covers streamMatches(), waitForJoin()
+    //      streamMatches() client that never reads: waitForJoin() is still answered
+    @Test
+    public void testStalledLobbyStream() throws IOException, InterruptedException {
+        
+        // long enough that a write blocked on the stalled client would outlast the test's timeout
+        final String previousTimeout = System.getProperty("crossword.writeTimeout");
+        System.setProperty("crossword.writeTimeout", String.valueOf(TimeUnit.SECONDS.toMillis(6 * TIMEOUT_SECONDS)));
+        final Server server;
+        try {
+            server = new Server("puzzles", 0);
+        } finally {
+            if (previousTimeout == null) {
+                System.clearProperty("crossword.writeTimeout");
+            } else {
+                System.setProperty("crossword.writeTimeout", previousTimeout);
+            }
+        }
+        server.start();
+        final String root = "http://localhost:" + server.port();
+        
+        try (Socket stalled = new Socket()) {
+            stalled.setReceiveBufferSize(1024);
+            stalled.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.port()));
+            final OutputStream request = stalled.getOutputStream();
+            request.write("GET /streammatches/ HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(UTF_8));
+            request.flush();
+            
+            // every match added sends the whole, growing, list of matches to the client, which never reads it, so the
+            // socket buffers fill up and the writes to it block
+            final String description = "x".repeat(2000);
+            for (int i = 0; i < 100; i++) {
+                new URL(root + "/start/stalled" + i).openStream().close();
+                new URL(root + "/choose/stalled" + i + "/stalled" + i + "/simple.puzzle/" + description)
+                        .openStream().close();
+            }
+            
+            new URL(root + "/start/player1").openStream().close();
+            new URL(root + "/start/player2").openStream().close();
+            new URL(root + "/choose/player1/thisMatch/simple.puzzle/hi").openStream().close();
+            
+            final List<String> joined = Collections.synchronizedList(new ArrayList<>());
+            final Thread waiter = new Thread(() -> {
+                try {
+                    final URL waitURL = new URL(root + "/waitforjoin/player1/thisMatch");
+                    joined.add(getResult(new BufferedReader(new InputStreamReader(openWithTimeout(waitURL), UTF_8))));
+                } catch (IOException e) {
+                    joined.add(e.toString());
+                }
+            });
+            waiter.start();
+            
+            new URL(root + "/play/player2/thisMatch").openStream().close();
+            waiter.join();
+            assertEquals(1, joined.size());
+            assertTrue(joined.get(0).startsWith("play\nnew\nplayer1\n"), joined.get(0));
+        } finally {
+            server.stop();
+        }
+    }
+    
+    //covers streamBoard(), watchBoard()
+    //      streamBoard() clients that never read, in more matches than there are dispatcher threads
+    @Test
+    public void testStalledBoardStreams() throws IOException, InterruptedException {
+        
+        // every board event carries the hints, so a long hint makes every event large
+        final Path folder = Files.createTempDirectory("puzzles");
+        folder.toFile().deleteOnExit();
+        final Path puzzle = folder.resolve("large.puzzle");
+        Files.write(puzzle, (">> \"Large\" \"Long hints\"\n(star, \"" + "x".repeat(STALLED_HINT_CHARS)
+                + "\", ACROSS, 0, 0)\n").getBytes(UTF_8));
+        puzzle.toFile().deleteOnExit();
+        
+        final String previousTimeout = System.getProperty("crossword.writeTimeout");
+        System.setProperty("crossword.writeTimeout", String.valueOf(TimeUnit.SECONDS.toMillis(6 * TIMEOUT_SECONDS)));
+        final Server server;
+        try {
+            server = new Server(folder.toString(), 0);
+        } finally {
+            if (previousTimeout == null) {
+                System.clearProperty("crossword.writeTimeout");
+            } else {
+                System.setProperty("crossword.writeTimeout", previousTimeout);
+            }
+        }
+        server.start();
+        final String root = "http://localhost:" + server.port();
+        
+        final List<Socket> stalled = new ArrayList<>();
+        try {
+            // one more stalled match than the board watchers have dispatcher threads
+            final int stalledMatches = 3;
+            for (int i = 0; i < stalledMatches + 1; i++) {
+                new URL(root + "/start/first" + i).openStream().close();
+                new URL(root + "/start/second" + i).openStream().close();
+                new URL(root + "/choose/first" + i + "/match" + i + "/large.puzzle/hi").openStream().close();
+                new URL(root + "/play/second" + i + "/match" + i).openStream().close();
+            }
+            
+            for (int i = 0; i < stalledMatches; i++) {
+                final Socket client = new Socket();
+                stalled.add(client);
+                client.setReceiveBufferSize(1024);
+                client.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.port()));
+                final OutputStream request = client.getOutputStream();
+                request.write(("GET /streamboard/first" + i + "/match" + i + " HTTP/1.1\r\nHost: localhost\r\n\r\n")
+                        .getBytes(UTF_8));
+                request.flush();
+            }
+            
+            // every try changes the board, so every stalled stream gets an event, until its socket buffers are full
+            for (int move = 0; move < STALLED_MOVES; move++) {
+                for (int i = 0; i < stalledMatches; i++) {
+                    new URL(root + "/try/second" + i + "/match" + i + "/1/" + (move % 2 == 0 ? "stab" : "stay"))
+                            .openStream().close();
+                }
+            }
+            
+            final int other = stalledMatches;
+            final InputStream watch = openWithTimeout(new URL(root + "/watchboard/first" + other + "/match" + other));
+            new URL(root + "/try/second" + other + "/match" + other + "/1/stab").openStream().close();
+            final String update = getResult(new BufferedReader(new InputStreamReader(watch, UTF_8)));
+            assertTrue(update.startsWith("play\nupdate\nfirst" + other + "\n"), update);
+        } finally {
+            server.stop();
+            for (Socket client : stalled) {
+                client.close();
+            }
+        }
+    }
+    
     @Test
     public void testAssertionsEnabled() {
         assertThrows(AssertionError.class, () -> { assert false; },
@@ -694,6 +1332,20 @@ public class ServerTest {
     
     
     
+    
+    /**
+     * Helper method to send a request that fails instead of hanging if the server doesn't answer in time
+     * @param url the URL to request
+     * @return the body of the response, once its headers have arrived
+     * @throws IOException if the request fails, or the server doesn't answer within TIMEOUT_SECONDS
+     */
+    private static InputStream openWithTimeout(URL url) throws IOException {
+        final URLConnection connection = url.openConnection();
+        connection.setConnectTimeout((int) TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        connection.setReadTimeout((int) TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        return connection.getInputStream();
+    }
+    
     /**
      * Helper method to help parse resulting stream
      * @param reader to read stream
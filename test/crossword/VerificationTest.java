@@ -0,0 +1,155 @@
+package crossword;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import crossword.Word.TryResult;
+
+/**
+ * Tests for the verification levels of matches
+ */
+public class VerificationTest {
+
+    /*
+     * Testing strategy for Verification:
+     *
+     * Test parse()
+     *  name: lowercase, uppercase, surrounding whitespace, not a level
+     *
+     * Test fromSystemProperty()
+     *  property not set (assertions enabled), property set
+     *
+     * Test sampleRateFromSystemProperty()
+     *  property not set, positive, not positive
+     *
+     * Test shouldVerify()
+     *  level: OFF, SAMPLED (command is a multiple of the rate, is not), FULL
+     *
+     * Test check()
+     *  condition holds, condition doesn't hold
+     *
+     * Test matches at every level
+     *  moves run and the board is the same at OFF, SAMPLED, FULL
+     */
+
+    //covers parse()
+    //      lowercase, uppercase, surrounding whitespace, not a level
+    @Test
+    public void testParse() {
+        assertEquals(Verification.OFF, Verification.parse("off"));
+        assertEquals(Verification.FULL, Verification.parse("FULL"));
+        assertEquals(Verification.SAMPLED, Verification.parse(" Sampled "));
+        assertThrows(IllegalArgumentException.class, () -> Verification.parse("sometimes"));
+    }
+
+    //covers fromSystemProperty(), sampleRateFromSystemProperty()
+    //      property not set, property set; rate positive, not positive
+    @Test
+    public void testFromSystemProperty() {
+        final String previousLevel = System.getProperty(Verification.PROPERTY);
+        final String previousRate = System.getProperty(Verification.SAMPLE_RATE_PROPERTY);
+        try {
+            System.clearProperty(Verification.PROPERTY);
+            System.clearProperty(Verification.SAMPLE_RATE_PROPERTY);
+            assertEquals(Verification.FULL, Verification.fromSystemProperty(), "assertions are enabled in tests");
+            assertEquals(Verification.DEFAULT_SAMPLE_RATE, Verification.sampleRateFromSystemProperty());
+
+            System.setProperty(Verification.PROPERTY, "sampled");
+            System.setProperty(Verification.SAMPLE_RATE_PROPERTY, "7");
+            assertEquals(Verification.SAMPLED, Verification.fromSystemProperty());
+            assertEquals(7, Verification.sampleRateFromSystemProperty());
+
+            System.setProperty(Verification.SAMPLE_RATE_PROPERTY, "0");
+            assertEquals(Verification.DEFAULT_SAMPLE_RATE, Verification.sampleRateFromSystemProperty());
+        } finally {
+            restore(Verification.PROPERTY, previousLevel);
+            restore(Verification.SAMPLE_RATE_PROPERTY, previousRate);
+        }
+    }
+
+    //covers shouldVerify()
+    //      OFF, SAMPLED (multiple of the rate, not a multiple), FULL
+    @Test
+    public void testShouldVerify() {
+        assertFalse(Verification.OFF.shouldVerify(1, 1));
+        assertTrue(Verification.SAMPLED.shouldVerify(6, 3));
+        assertFalse(Verification.SAMPLED.shouldVerify(7, 3));
+        assertTrue(Verification.FULL.shouldVerify(7, 3));
+    }
+
+    //covers check()
+    //      condition holds, condition doesn't hold
+    @Test
+    public void testCheck() {
+        Verification.check(true, "holds");
+        final AssertionError error = assertThrows(AssertionError.class, () -> Verification.check(false, "x >= 0"));
+        assertTrue(error.getMessage().contains("x >= 0"), error.getMessage());
+    }
+
+    //covers matches at every level
+    @Test
+    public void testMatchAtEveryLevel() {
+        final String previousLevel = System.getProperty(Verification.PROPERTY);
+        final String previousRate = System.getProperty(Verification.SAMPLE_RATE_PROPERTY);
+        try {
+            final List<String> boards = new ArrayList<>();
+            System.setProperty(Verification.SAMPLE_RATE_PROPERTY, "2");
+            for (Verification level : Verification.values()) {
+                System.setProperty(Verification.PROPERTY, level.name());
+                final Match match = makeMatch();
+                final Player first = new Player("first");
+                final Player second = new Player("second");
+                match.addPlayer(first);
+                match.addPlayer(second);
+                assertEquals(TryResult.SUCCESS, match.tryInsert(first, 1, "cat"));
+                assertEquals(TryResult.INCONSISTENT_CURRENT, match.tryInsert(second, 2, "mob"));
+                assertEquals(TryResult.SUCCESS, match.tryInsert(second, 2, "mab"));
+                assertTrue(match.isFinished());
+                match.checkRep();
+                boards.add(match.toString());
+            }
+            assertEquals(boards.get(0), boards.get(1));
+            assertEquals(boards.get(0), boards.get(2));
+        } finally {
+            restore(Verification.PROPERTY, previousLevel);
+            restore(Verification.SAMPLE_RATE_PROPERTY, previousRate);
+        }
+    }
+
+    @Test
+    public void testAssertionsEnabled() {
+        assertThrows(AssertionError.class, () -> { assert false; },
+                "make sure assertions are enabled with VM argument '-ea'");
+    }
+
+    /**
+     * Helper method to make a new match with two words, cat and mab, that overlap at letter 'a'.
+     * @return match stated above
+     */
+    private static Match makeMatch() {
+        final List<WordTuple> words = new ArrayList<>();
+        words.add(new WordTuple(0, 1, "hint", "cat", "DOWN"));
+        words.add(new WordTuple(1, 0, "hint", "mab", "ACROSS"));
+        return new Match("Match name", "Match description", words);
+    }
+
+    /**
+     * Set a system property back to what it was
+     * @param key the property
+     * @param previous its previous value, or null if it wasn't set
+     */
+    private static void restore(String key, String previous) {
+        if (previous == null) {
+            System.clearProperty(key);
+        } else {
+            System.setProperty(key, previous);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package crossword;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import crossword.Word.ChallengeResult;
+import crossword.Word.TryResult;
+
+/**
+ * Tests for a client's copy of a versioned board
+ */
+public class VersionedBoardTest {
+
+    /*
+     * Testing strategy for VersionedBoard:
+     *
+     * Test getVersion(), getBoard()
+     *  no board yet, after a snapshot, after a delta
+     *
+     * Test apply()
+     *  update: snapshot, delta with no changes, delta with cell changes, delta with word changes
+     *  copy: has no board yet, has a board at the start version of the delta, has a board at another version
+     *  board afterwards matches the server's board: yes
+     */
+
+    //covers getVersion(), getBoard()
+    //      no board yet
+    @Test
+    public void testNoBoardYet() {
+        final VersionedBoard board = new VersionedBoard();
+        assertEquals(-1, board.getVersion());
+        assertEquals("", board.getBoard());
+    }
+
+    //covers apply()
+    //      snapshot, delta with no changes, delta with cell changes, delta with word changes;
+    //      has a board at the start version of the delta; board matches the server's board
+    @Test
+    public void testFollowsMatch() {
+        final Match match = makeMatch();
+        final Player first = new Player("first");
+        final Player second = new Player("second");
+        match.addPlayer(first);
+        match.addPlayer(second);
+
+        final VersionedBoard board = new VersionedBoard();
+        assertEquals(match.toString(), board.apply(match.getUpdateSince(board.getVersion())));
+        assertEquals(0, board.getVersion());
+
+        assertEquals(match.toString(), board.apply(match.getUpdateSince(board.getVersion())));
+        assertEquals(0, board.getVersion());
+
+        assertEquals(TryResult.SUCCESS, match.tryInsert(first, 1, "cat"));
+        assertEquals(match.toString(), board.apply(match.getUpdateSince(board.getVersion())));
+        assertEquals(1, board.getVersion());
+
+        assertEquals(TryResult.SUCCESS, match.tryInsert(first, 2, "mat"));
+        assertEquals(ChallengeResult.CORRECT, match.challenge(second, 2, "mab"));
+        assertEquals(match.toString(), board.apply(match.getUpdateSince(board.getVersion())));
+        assertEquals(match.getVersion(), board.getVersion());
+        assertEquals(match.toString(), board.getBoard());
+    }
+
+    //covers apply()
+    //      delta; has no board yet, has a board at another version
+    @Test
+    public void testDeltaFromOtherVersion() {
+        final Match match = makeMatch();
+        final Player player = new Player("player");
+        match.addPlayer(player);
+
+        final String delta = match.getUpdateSince(0);
+        final VersionedBoard board = new VersionedBoard();
+        assertThrows(IllegalArgumentException.class, () -> board.apply(delta));
+
+        assertEquals(TryResult.SUCCESS, match.tryInsert(player, 1, "cat"));
+        board.apply(match.getUpdateSince(-1));
+        assertThrows(IllegalArgumentException.class, () -> board.apply(delta));
+        assertEquals(1, board.getVersion());
+    }
+
+    @Test
+    public void testAssertionsEnabled() {
+        assertThrows(AssertionError.class, () -> { assert false; },
+                "make sure assertions are enabled with VM argument '-ea'");
+    }
+
+    /**
+     * Helper method to make a new match with two words, cat and mab, that overlap at letter 'a'.
+     * @return match stated above
+     */
+    private static Match makeMatch() {
+        final List<WordTuple> words = new ArrayList<>();
+        words.add(new WordTuple(0, 1, "hint", "cat", "DOWN"));
+        words.add(new WordTuple(1, 0, "hint", "mab", "ACROSS"));
+        return new Match("Match name", "Match description", words);
+    }
+}
@@ -1,6 +1,7 @@
 package crossword;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -58,6 +59,8 @@ public class WordTest {
      *  
      *  Test getCurrentValue - no current value, current value exists
      *  
+     *  Test isCorrect - no letters, some correct letters, all correct letters, was correct and a letter changed
+     *  
      *  Test checkConsistentInsert
      *   consistent insert
      *      nothing has been inserted yet
@@ -387,6 +390,32 @@ public class WordTest {
     
     
 
+    //covers isCorrect
+    //      no letters, some correct letters, all correct letters, was correct and a letter changed
+    @Test
+    public void testIsCorrect() {
+        
+        Word firstWord = new Word(0, 0, "hint", 1, "cat", "ACROSS");
+        for (int i = 0; i < firstWord.getLength(); i++) {
+            Cell cell = new Cell(0, i, Exist.PRESENT);
+            cell.addWord(firstWord);
+            firstWord.addInvolvedCell(cell);
+        }
+        Player player = new Player("hey");
+        assertFalse(firstWord.isCorrect());
+        
+        assertEquals(TryResult.SUCCESS, firstWord.tryInsertNewWord(player, "cot"));
+        assertFalse(firstWord.isCorrect());
+        
+        assertEquals(TryResult.SUCCESS, firstWord.tryInsertNewWord(player, "cat"));
+        assertTrue(firstWord.isCorrect());
+        
+        assertEquals(TryResult.SUCCESS, firstWord.tryInsertNewWord(player, "cab"));
+        assertFalse(firstWord.isCorrect());
+        
+    }
+    
+    
     //covers checkConsistentInsert
     //      valid insert, changes own previously entered word
     //      valid insert, nothing has been inserted yet
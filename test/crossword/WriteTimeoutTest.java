@@ -0,0 +1,100 @@
+package crossword;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import org.junit.jupiter.api.Test;
+
+import crossword.web.WriteTimeout;
+
+/**
+ * Tests for the deadlines of writes to clients
+ */
+public class WriteTimeoutTest {
+
+    /*
+     * Testing strategy for WriteTimeout:
+     *
+     * Test run(), getTimeouts()
+     *  write: finishes in time, fails in time, blocked on a client that never reads
+     *  after run() returns: calling thread is not interrupted, even once the deadline has passed
+     */
+
+    private static final long TIMEOUT_MILLIS = 200;
+    private static final int CHUNK_BYTES = 64 * 1024;
+
+    //covers run(), getTimeouts(), getPendingDeadlines()
+    //      finishes in time, not interrupted after the deadline passed, deadline no longer pending
+    @Test
+    public void testWriteInTime() throws IOException, InterruptedException {
+        final WriteTimeout writeTimeout = new WriteTimeout(TIMEOUT_MILLIS);
+        final StringBuilder written = new StringBuilder();
+        writeTimeout.run(() -> written.append("done"));
+
+        assertEquals("done", written.toString());
+        assertEquals(0, writeTimeout.getPendingDeadlines(), "a finished write leaves no deadline queued");
+        Thread.sleep(2 * TIMEOUT_MILLIS);
+        assertFalse(Thread.currentThread().isInterrupted());
+        assertEquals(0, writeTimeout.getTimeouts());
+        writeTimeout.shutdown();
+    }
+
+    //covers run(), getTimeouts()
+    //      fails in time
+    @Test
+    public void testWriteFails() {
+        final WriteTimeout writeTimeout = new WriteTimeout(TIMEOUT_MILLIS);
+        final IOException thrown = assertThrows(IOException.class, () -> writeTimeout.run(() -> {
+            throw new IOException("client went away");
+        }));
+
+        assertEquals("client went away", thrown.getMessage());
+        assertEquals(0, writeTimeout.getTimeouts());
+        writeTimeout.shutdown();
+    }
+
+    //covers run(), getTimeouts()
+    //      blocked on a client that never reads, not interrupted after run() returns
+    @Test
+    public void testStalledClient() throws IOException {
+        final WriteTimeout writeTimeout = new WriteTimeout(TIMEOUT_MILLIS);
+        try (ServerSocketChannel listener = ServerSocketChannel.open()) {
+            listener.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            try (SocketChannel client = SocketChannel.open(listener.getLocalAddress());
+                    SocketChannel connection = listener.accept()) {
+                assertTrue(client.isConnected());
+
+                // the client never reads, so the writes block as soon as the socket buffers are full
+                final ByteBuffer chunk = ByteBuffer.allocate(CHUNK_BYTES);
+                assertThrows(SocketTimeoutException.class, () -> writeTimeout.run(() -> {
+                    while (true) {
+                        chunk.clear();
+                        connection.write(chunk);
+                    }
+                }));
+
+                assertFalse(connection.isOpen(), "the connection to the stalled client is dropped");
+                assertFalse(Thread.currentThread().isInterrupted());
+                assertEquals(1, writeTimeout.getTimeouts());
+            }
+        } finally {
+            writeTimeout.shutdown();
+        }
+    }
+
+    @Test
+    public void testAssertionsEnabled() {
+        assertThrows(AssertionError.class, () -> { assert false; },
+                "make sure assertions are enabled with VM argument '-ea'");
+    }
+}